@@ -0,0 +1,72 @@
+package bank.configuration;
+
+import bank.dto.TransactionDto;
+import bank.enums.Country;
+import bank.enums.TransactionDirection;
+import bank.request.CreateAccountRequest;
+import bank.request.TransactionRequest;
+import bank.service.AccountService;
+import bank.service.TransactionService;
+import bank.support.Applications;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * createTransaction throughput of the default settings and of the performance profile, many threads posting to
+ * random accounts. Needs Docker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+public class PerformanceProfileBenchmark {
+
+    private static final int ACCOUNTS = 100;
+
+    @Param({"default", "performance"})
+    String profile;
+
+    private ConfigurableApplicationContext context;
+
+    private TransactionService transactionService;
+
+    private TransactionRequest[] requests;
+
+    @Setup
+    public void setUp() {
+        context = Applications.start("profile-" + profile, profile);
+        transactionService = context.getBean(TransactionService.class);
+        var accountService = context.getBean(AccountService.class);
+
+        requests = new TransactionRequest[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            var account = accountService.createAccount(new CreateAccountRequest()
+                    .setCustomerId(UUID.randomUUID().toString())
+                    .setCountry(Country.EE)
+                    .setCurrencies(new HashSet<>(BankConf.ALLOWED_CURRENCIES)));
+            requests[i] = new TransactionRequest()
+                    .setAccountId(account.getId())
+                    .setAmount(BigDecimal.valueOf(100L))
+                    .setCurrency(Currency.getInstance("EUR"))
+                    .setDirection(TransactionDirection.IN)
+                    .setDescription("Transaction description");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionDto createTransaction() {
+        return transactionService.createTransaction(requests[ThreadLocalRandom.current().nextInt(ACCOUNTS)]);
+    }
+}
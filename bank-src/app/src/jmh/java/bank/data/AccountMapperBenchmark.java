@@ -0,0 +1,63 @@
+package bank.data;
+
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.enums.Country;
+import bank.support.Applications;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading an account with its balances in a single join against the nested select mapping. Runs outside of a
+ * transaction, so that every call gets its own session and no session cache. Needs Docker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AccountMapperBenchmark {
+
+    private ConfigurableApplicationContext context;
+
+    private AccountMapper accountMapper;
+
+    private NestedAccountMapper nestedAccountMapper;
+
+    private Long accountId;
+
+    @Setup
+    public void setUp() {
+        context = Applications.start("account-mapper", "default");
+        accountMapper = context.getBean(AccountMapper.class);
+        nestedAccountMapper = context.getBean(NestedAccountMapper.class);
+        var balanceMapper = context.getBean(BalanceMapper.class);
+
+        var account = new Account().setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+        for (var currency : new String[]{"EUR", "GBP", "SEK", "USD"}) {
+            balanceMapper.insertBalance(
+                    new Balance().setCurrency(Currency.getInstance(currency)).setAmount(BigDecimal.ONE), account
+            );
+        }
+        accountId = account.getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account selectAccountWithJoin() {
+        return accountMapper.selectAccount(accountId).orElseThrow();
+    }
+
+    @Benchmark
+    public Account selectAccountWithNestedSelect() {
+        return nestedAccountMapper.selectAccount(accountId).orElseThrow();
+    }
+}
@@ -0,0 +1,57 @@
+package bank.data;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Currency conversions of {@link CurrencyTypeHandler}, against proxies standing in for the JDBC driver
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CurrencyTypeHandlerBenchmark {
+
+    private final CurrencyTypeHandler typeHandler = new CurrencyTypeHandler();
+
+    private final Currency currency = Currency.getInstance("EUR");
+
+    private ResultSet resultSet;
+
+    private PreparedStatement preparedStatement;
+
+    @Setup
+    public void setUp() {
+        resultSet = (ResultSet) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> method.getName().equals("getString") ? "EUR" : null
+        );
+        preparedStatement = (PreparedStatement) Proxy.newProxyInstance(
+                getClass().getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> null
+        );
+    }
+
+    @Benchmark
+    public void setParameter() throws SQLException {
+        typeHandler.setNonNullParameter(preparedStatement, 1, currency, null);
+    }
+
+    @Benchmark
+    public void getResultByColumnName(Blackhole blackhole) throws SQLException {
+        blackhole.consume(typeHandler.getNullableResult(resultSet, "currency"));
+    }
+
+    @Benchmark
+    public void getResultByColumnIndex(Blackhole blackhole) throws SQLException {
+        blackhole.consume(typeHandler.getNullableResult(resultSet, 1));
+    }
+}
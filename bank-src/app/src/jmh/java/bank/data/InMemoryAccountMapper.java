@@ -0,0 +1,72 @@
+package bank.data;
+
+import bank.domain.Account;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for {@link AccountMapper}, sharing its balances with an {@link InMemoryBalanceMapper}
+ */
+public class InMemoryAccountMapper implements AccountMapper {
+
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final InMemoryBalanceMapper balanceMapper;
+
+    public InMemoryAccountMapper(InMemoryBalanceMapper balanceMapper) {
+        this.balanceMapper = balanceMapper;
+    }
+
+    @Override
+    public Optional<Account> selectAccount(Long id) {
+        return Optional.ofNullable(accounts.get(id)).map(this::withBalances);
+    }
+
+    @Override
+    public List<Account> selectAccounts(Collection<Long> ids) {
+        var result = new ArrayList<Account>(ids.size());
+        for (var id : new TreeSet<>(ids)) {
+            selectAccount(id).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Account> selectAccountsForUpdate(Collection<Long> ids) {
+        return selectAccounts(ids);
+    }
+
+    @Override
+    public long selectNextAccountId() {
+        return ids.incrementAndGet();
+    }
+
+    @Override
+    public void insertAccount(Account account) {
+        if (account.getId() == null) {
+            account.setId(ids.incrementAndGet());
+        }
+        accounts.put(account.getId(), new Account()
+                .setId(account.getId())
+                .setCustomerId(account.getCustomerId())
+                .setCountry(account.getCountry()));
+    }
+
+    private Account withBalances(Account account) {
+        var copy = new Account()
+                .setId(account.getId())
+                .setCustomerId(account.getCustomerId())
+                .setCountry(account.getCountry());
+        copy.getBalances().addAll(balanceMapper.selectBalances(account.getId()));
+        return copy;
+    }
+}
@@ -0,0 +1,57 @@
+package bank.data;
+
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.BalanceChange;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for {@link BalanceMapper}
+ */
+public class InMemoryBalanceMapper implements BalanceMapper {
+
+    private final Map<Long, Balance> balances = new ConcurrentHashMap<>();
+
+    private final Map<Long, Long> accountIds = new ConcurrentHashMap<>();
+
+    private final AtomicLong ids = new AtomicLong();
+
+    @Override
+    public void insertBalance(Balance balance, Account account) {
+        balance.setId(ids.incrementAndGet());
+        balances.put(balance.getId(), copy(balance));
+        accountIds.put(balance.getId(), account.getId());
+    }
+
+    @Override
+    public void updateBalance(Balance balance, BigDecimal balanceChange) {
+        balances.computeIfPresent(balance.getId(), (id, b) -> b.setAmount(b.getAmount().add(balanceChange)));
+    }
+
+    @Override
+    public void updateBalances(List<BalanceChange> changes) {
+        changes.forEach(c -> balances.computeIfPresent(
+                c.getBalanceId(), (id, b) -> b.setAmount(b.getAmount().add(c.getChange()))
+        ));
+    }
+
+    List<Balance> selectBalances(Long accountId) {
+        var result = new ArrayList<Balance>();
+        accountIds.forEach((balanceId, owner) -> {
+            if (owner.equals(accountId)) {
+                result.add(copy(balances.get(balanceId)));
+            }
+        });
+        return result;
+    }
+
+    private static Balance copy(Balance balance) {
+        return new Balance().setId(balance.getId()).setCurrency(balance.getCurrency()).setAmount(balance.getAmount());
+    }
+}
@@ -0,0 +1,24 @@
+package bank.data;
+
+/**
+ * In-memory stand-in for {@link JournalProjectionMapper}
+ */
+public class InMemoryJournalProjectionMapper implements JournalProjectionMapper {
+
+    private volatile long position;
+
+    @Override
+    public long selectPosition() {
+        return position;
+    }
+
+    @Override
+    public long selectPositionForUpdate() {
+        return position;
+    }
+
+    @Override
+    public void updatePosition(long position) {
+        this.position = position;
+    }
+}
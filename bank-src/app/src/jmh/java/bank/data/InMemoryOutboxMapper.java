@@ -0,0 +1,42 @@
+package bank.data;
+
+import bank.domain.OutboxMessage;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory stand-in for {@link OutboxMapper} that drops messages and only counts them
+ */
+public class InMemoryOutboxMapper implements OutboxMapper {
+
+    private final LongAdder inserted = new LongAdder();
+
+    @Override
+    public void insertMessage(OutboxMessage message) {
+        inserted.increment();
+    }
+
+    @Override
+    public void insertMessages(List<OutboxMessage> messages) {
+        inserted.add(messages.size());
+    }
+
+    @Override
+    public List<OutboxMessage> selectMessages(int limit) {
+        return List.of();
+    }
+
+    @Override
+    public void deleteMessages(List<Long> ids) {
+    }
+
+    @Override
+    public boolean tryLockRelay() {
+        return true;
+    }
+
+    public long getInserted() {
+        return inserted.sum();
+    }
+}
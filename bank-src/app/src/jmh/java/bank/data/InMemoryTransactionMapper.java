@@ -0,0 +1,96 @@
+package bank.data;
+
+import bank.domain.Transaction;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory stand-in for {@link TransactionMapper} that only assigns ids to inserted transactions
+ */
+public class InMemoryTransactionMapper implements TransactionMapper {
+
+    private final AtomicLong ids = new AtomicLong();
+
+    @Override
+    public void insertTransaction(Transaction transaction) {
+        transaction.setId(ids.incrementAndGet()).setCreatedAt(Instant.now());
+    }
+
+    @Override
+    public void insertTransactions(List<Transaction> transactions) {
+        transactions.forEach(this::insertTransaction);
+    }
+
+    @Override
+    public void insertTransactionsWithIds(List<Transaction> transactions) {
+    }
+
+    @Override
+    public List<Long> reserveIds(int count) {
+        var reserved = new ArrayList<Long>(count);
+        for (int i = 0; i < count; i++) {
+            reserved.add(ids.incrementAndGet());
+        }
+        return reserved;
+    }
+
+    @Override
+    public Optional<Transaction> selectTransaction(Long id) {
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Transaction> selectByAccountId(Long accountId, Instant from, Instant to) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Transaction> selectPageByAccountId(Long accountId, Long afterId, Instant from, Instant to, int limit) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public Cursor<Transaction> selectCursorByAccountId(Long accountId, Instant from, Instant to) {
+        return new EmptyCursor();
+    }
+
+    /**
+     * Cursor over no transactions, like {@link #selectByAccountId}
+     */
+    private static final class EmptyCursor implements Cursor<Transaction> {
+
+        private boolean open = true;
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public boolean isConsumed() {
+            return true;
+        }
+
+        @Override
+        public int getCurrentIndex() {
+            return -1;
+        }
+
+        @Override
+        public Iterator<Transaction> iterator() {
+            return Collections.emptyIterator();
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package bank.data;
+
+import bank.domain.Account;
+import bank.domain.Balance;
+import org.apache.ibatis.annotations.Many;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Account mapping with balances loaded by a nested select, kept as a baseline for {@link AccountMapperBenchmark}
+ */
+@Mapper
+public interface NestedAccountMapper {
+
+    @Select("select * from account where id = #{id}")
+    @Results({
+            @Result(property = "id", column = "id", id = true),
+            @Result(property = "customerId", column = "customer_id"),
+            @Result(property = "country", column = "country"),
+            @Result(property = "balances", column = "id", javaType = List.class,
+                    many = @Many(select = "selectBalances"))
+    })
+    Optional<Account> selectAccount(Long id);
+
+    @Select("select * from balance where account_id = #{accountId}")
+    @Results({
+            @Result(property = "id", column = "id", id = true),
+            @Result(property = "amount", column = "amount"),
+            @Result(property = "currency", column = "currency", typeHandler = CurrencyTypeHandler.class)
+    })
+    List<Balance> selectBalances(Long accountId);
+
+}
@@ -0,0 +1,98 @@
+package bank.data;
+
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.Transaction;
+import bank.enums.Country;
+import bank.support.Applications;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The account and transaction history queries of one account of 1000 transactions, by the size of the transaction
+ * table. Rows are generated by the database and committed, so that the planner works with real statistics.
+ * Needs Docker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionMapperBenchmark {
+
+    private static final int OTHER_ACCOUNTS = 1_000;
+    private static final int ACCOUNT_TRANSACTIONS = 1_000;
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    int tableSize;
+
+    private ConfigurableApplicationContext context;
+
+    private AccountMapper accountMapper;
+
+    private TransactionMapper transactionMapper;
+
+    private Long accountId;
+
+    private Long middleCursor;
+
+    @Setup
+    public void setUp() {
+        context = Applications.start("transaction-mapper-" + tableSize, "default");
+        accountMapper = context.getBean(AccountMapper.class);
+        transactionMapper = context.getBean(TransactionMapper.class);
+        var balanceMapper = context.getBean(BalanceMapper.class);
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        var account = new Account().setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+        balanceMapper.insertBalance(
+                new Balance().setCurrency(Currency.getInstance("EUR")).setAmount(BigDecimal.ONE), account
+        );
+        accountId = account.getId();
+        insertTransactions(jdbcTemplate, accountId, 1, ACCOUNT_TRANSACTIONS);
+
+        var firstOtherAccountId = jdbcTemplate.queryForList(
+                "insert into account(customer_id, country) select ? || g, 'EE' from generate_series(1, ?) g returning id",
+                Long.class, "benchmark-", OTHER_ACCOUNTS
+        ).stream().min(Long::compare).orElseThrow();
+        insertTransactions(jdbcTemplate, firstOtherAccountId, OTHER_ACCOUNTS, tableSize - ACCOUNT_TRANSACTIONS);
+        jdbcTemplate.execute("analyze transaction");
+
+        middleCursor = transactionMapper.selectByAccountId(accountId).get(ACCOUNT_TRANSACTIONS / 2).getId();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Account selectAccount() {
+        return accountMapper.selectAccount(accountId).orElseThrow();
+    }
+
+    @Benchmark
+    public List<Transaction> selectFirstPage() {
+        return transactionMapper.selectPageByAccountId(accountId, null, null, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Transaction> selectMiddlePage() {
+        return transactionMapper.selectPageByAccountId(accountId, middleCursor, null, null, PAGE_SIZE);
+    }
+
+    private static void insertTransactions(JdbcTemplate jdbcTemplate, long firstAccountId, int accounts, long count) {
+        jdbcTemplate.update(
+                "insert into transaction(account_id, amount, currency, direction, description, balance_after) "
+                        + "select ? + g % ?, 1, 'EUR', 'IN', 'benchmark', g from generate_series(1, ?) g",
+                firstAccountId, accounts, count
+        );
+    }
+}
@@ -0,0 +1,126 @@
+package bank.dto;
+
+import bank.configuration.BankConf;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.Transaction;
+import bank.enums.Country;
+import bank.enums.TransactionDirection;
+import bank.messaging.CborMessageConverter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapping of domain objects to dtos, and serialization of dtos for http responses and broker messages, in JSON and
+ * in CBOR, whose payloads are smaller, see DtoSerializerTest. The {@code AsBean} benchmarks serialize with
+ * Jackson's bean serializers instead of the dto serializers; compare their allocation with the gc profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DtoBenchmark {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Serializes the dtos as beans, ignoring their serializers, as a baseline
+     */
+    private final ObjectMapper beanMapper = objectMapper.copy().disable(MapperFeature.USE_ANNOTATIONS);
+
+    private final ObjectMapper cborMapper = BankConf.cborMapper();
+
+    private final Jackson2JsonMessageConverter messageConverter = new Jackson2JsonMessageConverter();
+
+    private final CborMessageConverter cborMessageConverter = new CborMessageConverter(cborMapper, "*");
+
+    private Account account;
+
+    private Transaction transaction;
+
+    private AccountDto accountDto;
+
+    private TransactionDto transactionDto;
+
+    @Setup
+    public void setUp() {
+        account = new Account().setId(1L).setCustomerId("CUSTOMER").setCountry(Country.EE);
+        long balanceId = 1;
+        for (var currency : new String[]{"EUR", "GBP", "SEK", "USD"}) {
+            account.getBalances().add(new Balance()
+                    .setId(balanceId++)
+                    .setCurrency(Currency.getInstance(currency))
+                    .setAmount(new BigDecimal("1234.56")));
+        }
+
+        transaction = new Transaction()
+                .setId(1L)
+                .setAccountId(1L)
+                .setAmount(new BigDecimal("100.00"))
+                .setCurrency(Currency.getInstance("EUR"))
+                .setDirection(TransactionDirection.IN)
+                .setDescription("Transaction description")
+                .setBalanceAfter(new BigDecimal("1334.56"));
+
+        accountDto = AccountDto.from(account);
+        transactionDto = TransactionDto.from(transaction);
+    }
+
+    @Benchmark
+    public AccountDto accountDtoFrom() {
+        return AccountDto.from(account);
+    }
+
+    @Benchmark
+    public TransactionDto transactionDtoFrom() {
+        return TransactionDto.from(transaction);
+    }
+
+    @Benchmark
+    public byte[] serializeAccountDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(accountDto);
+    }
+
+    @Benchmark
+    public byte[] serializeTransactionDto() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(transactionDto);
+    }
+
+    @Benchmark
+    public byte[] serializeAccountDtoAsBean() throws JsonProcessingException {
+        return beanMapper.writeValueAsBytes(accountDto);
+    }
+
+    @Benchmark
+    public byte[] serializeTransactionDtoAsBean() throws JsonProcessingException {
+        return beanMapper.writeValueAsBytes(transactionDto);
+    }
+
+    @Benchmark
+    public byte[] serializeAccountDtoCbor() throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(accountDto);
+    }
+
+    @Benchmark
+    public byte[] serializeTransactionDtoCbor() throws JsonProcessingException {
+        return cborMapper.writeValueAsBytes(transactionDto);
+    }
+
+    @Benchmark
+    public Message transactionDtoToMessage() {
+        return messageConverter.toMessage(transactionDto, new MessageProperties());
+    }
+
+    @Benchmark
+    public Message transactionDtoToCborMessage() {
+        return cborMessageConverter.toMessage(transactionDto, new MessageProperties());
+    }
+}
@@ -0,0 +1,81 @@
+package bank.engine;
+
+import bank.configuration.BankConf;
+import bank.dto.TransactionDto;
+import bank.enums.Country;
+import bank.enums.TransactionDirection;
+import bank.request.CreateAccountRequest;
+import bank.request.TransactionRequest;
+import bank.service.AccountService;
+import bank.service.TransactionService;
+import bank.support.Applications;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.HashSet;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many threads posting single transactions to few accounts, directly and through posting lanes with a batch delay.
+ * Needs Docker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(128)
+public class PostingLanesBenchmark {
+
+    private static final int ACCOUNTS = 16;
+
+    @Param({"false", "true"})
+    boolean lanes;
+
+    private ConfigurableApplicationContext context;
+
+    private TransactionService transactionService;
+
+    private PostingLanes postingLanes;
+
+    private TransactionRequest[] requests;
+
+    @Setup
+    public void setUp() {
+        context = Applications.start("posting-lanes-" + lanes, "default",
+                "bank.posting-lanes.enabled=" + lanes,
+                "bank.posting-lanes.lanes=4",
+                "bank.posting-lanes.max-batch-delay-us=500"
+        );
+        transactionService = context.getBean(TransactionService.class);
+        postingLanes = lanes ? context.getBean(PostingLanes.class) : null;
+        var accountService = context.getBean(AccountService.class);
+
+        requests = new TransactionRequest[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            var account = accountService.createAccount(new CreateAccountRequest()
+                    .setCustomerId(UUID.randomUUID().toString())
+                    .setCountry(Country.EE)
+                    .setCurrencies(new HashSet<>(BankConf.ALLOWED_CURRENCIES)));
+            requests[i] = new TransactionRequest()
+                    .setAccountId(account.getId())
+                    .setAmount(BigDecimal.valueOf(100L))
+                    .setCurrency(Currency.getInstance("EUR"))
+                    .setDirection(TransactionDirection.IN)
+                    .setDescription("Transaction description");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public TransactionDto createTransaction() {
+        var request = requests[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        return postingLanes != null ? postingLanes.post(request) : transactionService.createTransaction(request);
+    }
+}
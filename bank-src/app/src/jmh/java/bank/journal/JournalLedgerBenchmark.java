@@ -0,0 +1,81 @@
+package bank.journal;
+
+import bank.data.InMemoryAccountMapper;
+import bank.data.InMemoryBalanceMapper;
+import bank.data.InMemoryJournalProjectionMapper;
+import bank.data.InMemoryTransactionMapper;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.dto.TransactionResult;
+import bank.enums.Country;
+import bank.enums.TransactionDirection;
+import bank.request.TransactionRequest;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posting single transactions from concurrent threads to the journal, each waiting until its transaction is durable.
+ * Syncs are shared between the threads waiting at the same time, so throughput grows with the number of threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+public class JournalLedgerBenchmark {
+
+    private static final int ACCOUNTS = 1024;
+
+    private JournalLedger journalLedger;
+
+    private Path directory;
+
+    private TransactionRequest[] requests;
+
+    @Setup
+    public void setUp() throws IOException {
+        var balanceMapper = new InMemoryBalanceMapper();
+        var accountMapper = new InMemoryAccountMapper(balanceMapper);
+        requests = new TransactionRequest[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            var account = new Account().setCustomerId("CUSTOMER" + i).setCountry(Country.EE);
+            accountMapper.insertAccount(account);
+            balanceMapper.insertBalance(
+                    new Balance().setCurrency(Currency.getInstance("EUR")).setAmount(BigDecimal.ZERO), account
+            );
+            requests[i] = new TransactionRequest()
+                    .setAccountId(account.getId())
+                    .setAmount(BigDecimal.valueOf(100L))
+                    .setCurrency(Currency.getInstance("EUR"))
+                    .setDirection(TransactionDirection.IN)
+                    .setDescription("Transaction description");
+        }
+
+        directory = Files.createTempDirectory("journal-benchmark");
+        journalLedger = new JournalLedger();
+        journalLedger.accountMapper = accountMapper;
+        journalLedger.transactionMapper = new InMemoryTransactionMapper();
+        journalLedger.journalProjectionMapper = new InMemoryJournalProjectionMapper();
+        journalLedger.directory = directory.toString();
+        journalLedger.init();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journalLedger.shutdown();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public List<TransactionResult> post() {
+        return journalLedger.post(List.of(requests[ThreadLocalRandom.current().nextInt(ACCOUNTS)]));
+    }
+}
@@ -0,0 +1,69 @@
+package bank.service;
+
+import bank.dto.ReconciliationReportDto;
+import bank.support.Applications;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciliation of 10M committed transactions of 10k accounts, generated by the database with consistent balances.
+ * Needs Docker.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReconciliationBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final int TRANSACTIONS_PER_ACCOUNT = 1_000;
+
+    private ConfigurableApplicationContext context;
+
+    private ReconciliationService reconciliationService;
+
+    private long firstAccountId;
+
+    @Setup
+    public void setUp() {
+        context = Applications.start("reconciliation", "default",
+                "bank.reconciliation.enabled=true",
+                "bank.reconciliation.interval-ms=86400000",
+                "bank.reconciliation.parallelism=8"
+        );
+        reconciliationService = context.getBean(ReconciliationService.class);
+        var jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        firstAccountId = jdbcTemplate.queryForList(
+                "insert into account(customer_id, country) select ? || g, 'EE' from generate_series(1, ?) g returning id",
+                Long.class, "benchmark-", ACCOUNTS
+        ).stream().min(Long::compare).orElseThrow();
+        jdbcTemplate.update(
+                "insert into balance(amount, currency, account_id) select ?, 'EUR', ? + g from generate_series(0, ? - 1) g",
+                TRANSACTIONS_PER_ACCOUNT, firstAccountId, ACCOUNTS
+        );
+        // the n-th transaction of every account has balance after n
+        jdbcTemplate.update(
+                "insert into transaction(account_id, amount, currency, direction, description, balance_after) "
+                        + "select ? + g % ?, 1, 'EUR', 'IN', 'benchmark', g / ? + 1 from generate_series(0, ? - 1) g",
+                firstAccountId, ACCOUNTS, ACCOUNTS, ACCOUNTS * TRANSACTIONS_PER_ACCOUNT
+        );
+        jdbcTemplate.execute("analyze transaction");
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReconciliationReportDto reconcile() {
+        var report = reconciliationService.reconcile(firstAccountId, firstAccountId + ACCOUNTS);
+        if (!report.isConsistent()) {
+            throw new IllegalStateException("Generated history is inconsistent");
+        }
+        return report;
+    }
+}
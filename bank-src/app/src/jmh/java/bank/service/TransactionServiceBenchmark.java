@@ -0,0 +1,88 @@
+package bank.service;
+
+import bank.data.InMemoryAccountMapper;
+import bank.data.InMemoryBalanceMapper;
+import bank.data.InMemoryOutboxMapper;
+import bank.data.InMemoryTransactionMapper;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.dto.BatchTransactionResultDto;
+import bank.dto.TransactionDto;
+import bank.enums.Country;
+import bank.enums.TransactionDirection;
+import bank.messaging.EventPublisher;
+import bank.request.TransactionRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static bank.support.Beans.inject;
+
+/**
+ * Transaction posting hot path with in-memory mappers, measuring everything except the database and the broker
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TransactionServiceBenchmark {
+
+    @Param({"100"})
+    int batchSize;
+
+    private TransactionService transactionService;
+
+    private TransactionRequest request;
+
+    private List<TransactionRequest> batch;
+
+    @Setup
+    public void setUp() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var balanceMapper = new InMemoryBalanceMapper();
+        var accountMapper = new InMemoryAccountMapper(balanceMapper);
+        var eventPublisher = inject(new EventPublisher(), "outboxMapper", new InMemoryOutboxMapper());
+        inject(eventPublisher, "messageConverter", new Jackson2JsonMessageConverter());
+        inject(eventPublisher, "meterRegistry", meterRegistry);
+
+        transactionService = new TransactionService();
+        inject(transactionService, "transactionMapper", new InMemoryTransactionMapper());
+        inject(transactionService, "balanceMapper", balanceMapper);
+        inject(transactionService, "accountMapper", accountMapper);
+        inject(transactionService, "eventPublisher", eventPublisher);
+        inject(transactionService, "meterRegistry", meterRegistry);
+
+        var account = new Account().setCustomerId("CUSTOMER").setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+        balanceMapper.insertBalance(
+                new Balance().setCurrency(Currency.getInstance("EUR")).setAmount(BigDecimal.ZERO), account
+        );
+
+        request = new TransactionRequest()
+                .setAccountId(account.getId())
+                .setAmount(BigDecimal.valueOf(100L))
+                .setCurrency(Currency.getInstance("EUR"))
+                .setDirection(TransactionDirection.IN)
+                .setDescription("Transaction description");
+
+        batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            batch.add(request);
+        }
+    }
+
+    @Benchmark
+    public TransactionDto createTransaction() {
+        return transactionService.createTransaction(request);
+    }
+
+    @Benchmark
+    public BatchTransactionResultDto createTransactions() {
+        return transactionService.createTransactions(batch);
+    }
+}
@@ -0,0 +1,37 @@
+package bank.support;
+
+import bank.App;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application for benchmarks that need a database, against a PostgreSQL test container of its own,
+ * without web server and without relaying the outbox. Needs Docker.
+ */
+public final class Applications {
+
+    private Applications() {
+    }
+
+    /**
+     * @param database name of the database, a container is started per name
+     * @param profile Spring profile
+     * @param properties further application properties, as {@code name=value}
+     * @return application context, to be closed by the caller
+     */
+    public static ConfigurableApplicationContext start(String database, String profile, String... properties) {
+        var args = new ArrayList<>(List.of(
+                "--spring.main.web-application-type=none",
+                "--spring.datasource.url=jdbc:tc:postgresql:14.1:///" + database,
+                "--spring.datasource.driver-class-name=org.testcontainers.jdbc.ContainerDatabaseDriver",
+                "--bank.outbox.relay-interval-ms=3600000"
+        ));
+        for (var property : properties) {
+            args.add("--" + property);
+        }
+        return new SpringApplicationBuilder(App.class).profiles(profile).run(args.toArray(String[]::new));
+    }
+}
@@ -0,0 +1,21 @@
+package bank.support;
+
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Objects;
+
+/**
+ * Wires benchmark stand-ins into the autowired fields of application beans, without a Spring context
+ */
+public final class Beans {
+
+    private Beans() {
+    }
+
+    public static <T> T inject(T bean, String fieldName, Object value) {
+        var field = Objects.requireNonNull(ReflectionUtils.findField(bean.getClass(), fieldName), fieldName);
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, bean, value);
+        return bean;
+    }
+}
@@ -0,0 +1,203 @@
+package bank.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop load generator for {@code POST /transaction} of a running application.
+ *
+ * Creates a set of accounts, then keeps a fixed number of clients posting small incoming transactions to random
+ * accounts, each client sending its next request as soon as the previous one is answered. Reports throughput and
+ * latency percentiles of the measured period, after a warmup period.
+ *
+ * Usage: {@code LoadGenerator [--url=http://localhost:8080] [--accounts=100] [--concurrency=64]
+ * [--warmup-seconds=5] [--duration-seconds=30]}
+ */
+public class LoadGenerator {
+
+    private final String url;
+    private final int accounts;
+    private final int concurrency;
+    private final Duration warmup;
+    private final Duration duration;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public LoadGenerator(String url, int accounts, int concurrency, Duration warmup, Duration duration) {
+        this.url = url;
+        this.accounts = accounts;
+        this.concurrency = concurrency;
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            var option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        var generator = new LoadGenerator(
+                options.getOrDefault("url", "http://localhost:8080"),
+                Integer.parseInt(options.getOrDefault("accounts", "100")),
+                Integer.parseInt(options.getOrDefault("concurrency", "64")),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup-seconds", "5"))),
+                Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-seconds", "30")))
+        );
+        System.out.println(generator.run());
+    }
+
+    /**
+     * Create the accounts and generate load
+     * @return report of the measured period
+     */
+    public Report run() throws IOException, InterruptedException, ExecutionException {
+        var accountIds = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = createAccount();
+        }
+
+        generate(accountIds, warmup);
+        var start = System.nanoTime();
+        var clients = generate(accountIds, duration);
+        var elapsed = System.nanoTime() - start;
+
+        var errors = 0L;
+        var latencies = new long[clients.stream().mapToInt(client -> client.count).sum()];
+        var offset = 0;
+        for (var client : clients) {
+            System.arraycopy(client.latencies, 0, latencies, offset, client.count);
+            offset += client.count;
+            errors += client.errors;
+        }
+        Arrays.sort(latencies);
+
+        return new Report(
+                latencies.length,
+                errors,
+                latencies.length * 1e9 / elapsed,
+                percentile(latencies, 0.5),
+                percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1000
+        );
+    }
+
+    private List<Client> generate(long[] accountIds, Duration period) throws InterruptedException, ExecutionException {
+        var deadline = System.nanoTime() + period.toNanos();
+        var executor = Executors.newFixedThreadPool(concurrency);
+        try {
+            var futures = new ArrayList<Future<Client>>();
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit((Callable<Client>) () -> {
+                    var client = new Client();
+                    while (System.nanoTime() < deadline) {
+                        client.send(accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)]);
+                    }
+                    return client;
+                }));
+            }
+            var clients = new ArrayList<Client>(concurrency);
+            for (var future : futures) {
+                clients.add(future.get());
+            }
+            return clients;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private long createAccount() throws IOException, InterruptedException {
+        var body = objectMapper.writeValueAsString(Map.of(
+                "customerId", "load-" + UUID.randomUUID(),
+                "country", "EE",
+                "currencies", List.of("EUR")
+        ));
+        var response = httpClient.send(post("/account", body), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 201) {
+            throw new IllegalStateException("Could not create account: " + response.statusCode() + " " + response.body());
+        }
+        return objectMapper.readTree(response.body()).get("id").asLong();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1000;
+    }
+
+    /**
+     * Latencies of the requests of a single client, in nanoseconds
+     */
+    private final class Client {
+        long[] latencies = new long[1024];
+        int count;
+        long errors;
+
+        void send(long accountId) throws IOException, InterruptedException {
+            var body = "{\"accountId\":" + accountId
+                    + ",\"amount\":1,\"currency\":\"EUR\",\"direction\":\"IN\",\"description\":\"load\"}";
+            var start = System.nanoTime();
+            var response = httpClient.send(post("/transaction", body), HttpResponse.BodyHandlers.discarding());
+            var latency = System.nanoTime() - start;
+            if (response.statusCode() != 201) {
+                errors++;
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+
+    /**
+     * Outcome of a load run, latencies in microseconds
+     */
+    @Value
+    public static class Report {
+
+        long requests;
+        long errors;
+        double throughput;
+        long p50;
+        long p99;
+        long max;
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%,d requests, %,d errors, %,.0f requests/s, latency p50 %,d us, p99 %,d us, max %,d us",
+                    requests, errors, throughput, p50, p99, max
+            );
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package bank.cache;
+
+import bank.dto.AccountDto;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of account dtos.
+ *
+ * Entries are invalidated when a transaction that changes the account commits. While such a transaction is
+ * committing, reads of the accounts in the same stripe bypass the cache, and a value loaded before the commit is
+ * never stored, so a read never observes an account older than the last transaction committed on this node.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.account-cache.enabled", havingValue = "true", matchIfMissing = true)
+public class AccountCache {
+
+    private static final int STRIPES = 1024;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    @Value("${bank.account-cache.maximum-size:10000}")
+    long maximumSize = 10_000;
+
+    @Value("${bank.account-cache.ttl-ms:30000}")
+    long ttl = 30_000;
+
+    /**
+     * Runs the cache maintenance, such as eviction
+     */
+    Executor executor = ForkJoinPool.commonPool();
+
+    private Cache<Long, AccountDto> cache;
+
+    private final AtomicLongArray epochs = new AtomicLongArray(STRIPES);
+
+    private final AtomicIntegerArray committing = new AtomicIntegerArray(STRIPES);
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttl))
+                .executor(executor)
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "account");
+        }
+    }
+
+    /**
+     * Get account dto from the cache, or load and cache it.
+     * Inside a transaction the cache is bypassed, as the transaction may see its own uncommitted changes.
+     * @param id account id
+     * @param loader loads the account dto from the database
+     * @return account dto
+     */
+    public AccountDto get(Long id, Function<Long, AccountDto> loader) {
+        var stripe = stripeFor(id);
+        if (TransactionSynchronizationManager.isActualTransactionActive() || committing.get(stripe) > 0) {
+            return loader.apply(id);
+        }
+
+        var cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        var epoch = epochs.get(stripe);
+        var loaded = loader.apply(id);
+        cache.asMap().compute(id, (key, current) ->
+                committing.get(stripe) == 0 && epochs.get(stripe) == epoch ? loaded : current
+        );
+        return loaded;
+    }
+
+    /**
+     * Invalidate the cached account once the current transaction commits, or immediately if there is none
+     * @param id account id
+     */
+    public void invalidate(Long id) {
+        var stripe = stripeFor(id);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id, stripe);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean committingStarted;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                committing.incrementAndGet(stripe);
+                committingStarted = true;
+                evict(id, stripe);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (committingStarted) {
+                    evict(id, stripe);
+                    committing.decrementAndGet(stripe);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return hit, miss and eviction statistics
+     */
+    public CacheStats stats() {
+        cache.cleanUp();
+        return cache.stats();
+    }
+
+    private void evict(Long id, int stripe) {
+        epochs.incrementAndGet(stripe);
+        cache.invalidate(id);
+    }
+
+    private static int stripeFor(Long id) {
+        var hash = Long.hashCode(id) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
@@ -1,8 +1,13 @@
 package bank.configuration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import java.util.Currency;
 import java.util.Set;
@@ -10,6 +15,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 @Configuration
+@EnableScheduling
 public class BankConf {
 
     public static final Set<Currency> ALLOWED_CURRENCIES = Stream.of("EUR", "SEK", "GBP", "USD")
@@ -17,6 +23,22 @@ public class BankConf {
 
     @Bean
     ObjectMapper objectMapper() {
-        return new ObjectMapper();
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    /**
+     * Mapper of the compact binary (CBOR) representation, negotiated with {@code application/cbor}.
+     * Unlike in JSON, instants are written as numeric timestamps.
+     * @return new CBOR mapper
+     */
+    public static ObjectMapper cborMapper() {
+        return new CBORMapper().registerModule(new JavaTimeModule());
+    }
+
+    @Bean
+    MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper());
     }
 }
@@ -1,10 +1,14 @@
 package bank.configuration;
 
+import bank.messaging.CborMessageConverter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Exchange;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -19,15 +23,23 @@ public class RabbitMqConf {
     }
 
     @Bean
-    RabbitTemplate rabbitTemplate(final ConnectionFactory connectionFactory) {
+    RabbitTemplate rabbitTemplate(final ConnectionFactory connectionFactory,
+                                  final MessageConverter messageConverter) {
         final var rabbitTemplate = new RabbitTemplate(connectionFactory);
-        rabbitTemplate.setMessageConverter(producerJackson2MessageConverter());
+        rabbitTemplate.setMessageConverter(messageConverter);
         return rabbitTemplate;
     }
 
     @Bean
-    Jackson2JsonMessageConverter producerJackson2MessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    @ConditionalOnProperty(name = "bank.messaging.format", havingValue = "json", matchIfMissing = true)
+    Jackson2JsonMessageConverter producerJackson2MessageConverter(final ObjectMapper objectMapper) {
+        return new Jackson2JsonMessageConverter(objectMapper);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "bank.messaging.format", havingValue = "cbor")
+    CborMessageConverter producerCborMessageConverter() {
+        return new CborMessageConverter(BankConf.cborMapper(), "*");
     }
 
 }
@@ -0,0 +1,82 @@
+package bank.configuration;
+
+import bank.controller.ReplicaLsnAdvice;
+import bank.data.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+
+/**
+ * Read replicas, enabled with {@code bank.replicas.enabled=true}.
+ *
+ * The primary pool is configured by the usual {@code spring.datasource} properties. Every replica of
+ * {@code bank.replicas.urls} gets a read-only pool of the same settings, and the application data source routes
+ * read-only transactions to them, see {@link ReplicaRoutingDataSource}.
+ */
+@Configuration
+@ConditionalOnProperty(name = "bank.replicas.enabled", havingValue = "true")
+public class ReplicaConf {
+
+    @Value("${bank.replicas.urls}")
+    String[] urls;
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource) {
+        var replicas = new ArrayList<HikariDataSource>();
+        for (int i = 0; i < urls.length; i++) {
+            var config = new HikariConfig();
+            primaryDataSource.copyStateTo(config);
+            config.setJdbcUrl(urls[i].trim());
+            config.setPoolName("replica-" + (i + 1));
+            config.setReadOnly(true);
+            replicas.add(new HikariDataSource(config));
+        }
+        var routingDataSource = new ReplicaRoutingDataSource(primaryDataSource, replicas);
+        routingDataSource.refreshReplayLsns();
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    MeterBinder replicaMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return registry -> FunctionCounter.builder("bank.replicas.primary-fallbacks", replicaRoutingDataSource,
+                        ReplicaRoutingDataSource::getPrimaryFallbacks)
+                .description("Read-only transactions served by the primary, as no replica had caught up")
+                .register(registry);
+    }
+
+    @Bean
+    WebMvcConfigurer replicaLsnConfigurer(ReplicaLsnAdvice replicaLsnAdvice) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(replicaLsnAdvice);
+            }
+        };
+    }
+}
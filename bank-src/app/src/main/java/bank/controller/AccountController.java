@@ -1,8 +1,11 @@
 package bank.controller;
 
+import bank.dto.AccountBalanceDto;
 import bank.dto.AccountDto;
 import bank.request.CreateAccountRequest;
 import bank.service.AccountService;
+import bank.service.BalanceSnapshotService;
+import bank.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +13,7 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.time.Instant;
 
 import static bank.controller.AccountController.PATH;
 
@@ -26,6 +30,12 @@ public class AccountController {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired(required = false)
+    private ShardRouter shardRouter;
+
     @PostMapping
     ResponseEntity<AccountDto> create(@RequestBody @Valid CreateAccountRequest request) {
         return ResponseEntity.status(HttpStatus.CREATED).body(accountService.createAccount(request));
@@ -33,6 +43,22 @@ public class AccountController {
 
     @GetMapping("/{id}")
     ResponseEntity<AccountDto> get(@PathVariable Long id) {
+        checkOwner(id);
         return ResponseEntity.ok(accountService.find(id));
     }
+
+    /**
+     * Balances of the account at a point in time, now if not given
+     */
+    @GetMapping("/{id}/balance")
+    ResponseEntity<AccountBalanceDto> getBalance(@PathVariable Long id, @RequestParam(required = false) Instant at) {
+        checkOwner(id);
+        return ResponseEntity.ok(balanceSnapshotService.findBalancesAt(id, at != null ? at : Instant.now()));
+    }
+
+    private void checkOwner(Long id) {
+        if (shardRouter != null) {
+            shardRouter.checkOwner(id);
+        }
+    }
 }
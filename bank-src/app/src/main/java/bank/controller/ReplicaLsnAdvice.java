@@ -0,0 +1,90 @@
+package bank.controller;
+
+import bank.data.Lsn;
+import bank.data.ReplicaRoutingDataSource;
+import bank.exception.InvalidLsnException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Read-your-writes over read replicas.
+ *
+ * Successful writes answer with the write-ahead log position of the primary in {@link #LSN_HEADER}. A client that
+ * passes the last position it got in the same header is only served from replicas that have replayed up to it, and
+ * from the primary while none has.
+ */
+@ControllerAdvice
+@ConditionalOnProperty(name = "bank.replicas.enabled", havingValue = "true")
+public class ReplicaLsnAdvice implements HandlerInterceptor, ResponseBodyAdvice<Object> {
+
+    public static final String LSN_HEADER = "X-Bank-LSN";
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLsnAdvice.class);
+
+    @Autowired
+    ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        var lsn = request.getHeader(LSN_HEADER);
+        if (lsn != null) {
+            try {
+                ReplicaRoutingDataSource.requireLsn(Lsn.parse(lsn.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidLsnException(lsn);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ReplicaRoutingDataSource.clearRequiredLsn();
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    /**
+     * Add the position of the primary to responses of writes, which have committed by now. Accepted asynchronous
+     * postings have not, so they get none.
+     */
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        var method = request.getMethod();
+        if (method == HttpMethod.GET || method == HttpMethod.HEAD || !(response instanceof ServletServerHttpResponse)) {
+            return body;
+        }
+        var status = HttpStatus.resolve(((ServletServerHttpResponse) response).getServletResponse().getStatus());
+        if (status != null && status.is2xxSuccessful() && status != HttpStatus.ACCEPTED) {
+            try {
+                response.getHeaders().set(LSN_HEADER, Lsn.format(replicaRoutingDataSource.currentPrimaryLsn()));
+            } catch (IllegalStateException e) {
+                // the write has committed, so answer without a position rather than fail it
+                log.warn("Responding without log sequence number", e);
+            }
+        }
+        return body;
+    }
+}
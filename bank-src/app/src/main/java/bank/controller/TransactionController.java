@@ -1,16 +1,33 @@
 package bank.controller;
 
+import bank.dto.BatchTransactionResultDto;
+import bank.dto.PostingStatusDto;
 import bank.dto.TransactionDto;
+import bank.engine.AsyncPosting;
+import bank.exception.PostingNotFoundException;
+import bank.request.BatchTransactionRequest;
 import bank.request.TransactionRequest;
+import bank.service.IdempotencyService;
 import bank.service.TransactionService;
+import bank.sharding.ShardRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import static bank.controller.TransactionController.PATH;
 
@@ -24,16 +41,120 @@ public class TransactionController {
 
     public static final String PATH = "/transaction";
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private AsyncPosting asyncPosting;
+
+    @Autowired(required = false)
+    private ShardRouter shardRouter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping
-    ResponseEntity<TransactionDto> create(@RequestBody @Valid TransactionRequest request) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(transactionService.createTransaction(request));
+    ResponseEntity<TransactionDto> create(
+            @RequestBody @Valid TransactionRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) {
+        checkOwner(request.getAccountId());
+        var transaction = idempotencyService.createTransaction(request, idempotencyKey);
+        return ResponseEntity.status(HttpStatus.CREATED).body(transaction);
+    }
+
+    /**
+     * Accept a transaction for posting in the background, answering with its status resource
+     */
+    @PostMapping("/async")
+    ResponseEntity<PostingStatusDto> createAsync(
+            @RequestBody @Valid TransactionRequest request,
+            @RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) {
+        checkOwner(request.getAccountId());
+        var status = asyncPosting.accept(request, idempotencyKey);
+        return ResponseEntity.accepted()
+                .location(URI.create(PATH + "/async/" + status.getId()))
+                .body(status);
+    }
+
+    @GetMapping("/async/{id}")
+    ResponseEntity<PostingStatusDto> getAsync(@PathVariable UUID id) {
+        if (shardRouter != null) {
+            shardRouter.checkOwner(id);
+        }
+        return ResponseEntity.ok(asyncPosting.find(id).orElseThrow(() -> new PostingNotFoundException(id)));
+    }
+
+    @PostMapping("/batch")
+    ResponseEntity<BatchTransactionResultDto> createBatch(@RequestBody @Valid BatchTransactionRequest request) {
+        if (shardRouter != null) {
+            var accountIds = new ArrayList<Long>(request.getTransactions().size());
+            for (var transaction : request.getTransactions()) {
+                accountIds.add(transaction.getAccountId());
+            }
+            shardRouter.checkOwner(accountIds);
+        }
+        return ResponseEntity.ok(transactionService.createTransactions(request.getTransactions()));
     }
 
     @GetMapping("/{accountId}")
-    ResponseEntity<List<TransactionDto>> get(@PathVariable Long accountId) {
-        return ResponseEntity.ok(transactionService.findAllByAccountId(accountId));
+    ResponseEntity<List<TransactionDto>> get(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) Integer limit
+    ) {
+        checkOwner(accountId);
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(transactionService.findAllByAccountId(accountId, from, to));
+        }
+        var page = transactionService.findPageByAccountId(
+                accountId, after, from, to, limit != null ? limit : TransactionService.DEFAULT_PAGE_SIZE
+        );
+        var response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor().toString());
+        }
+        return response.body(page.getTransactions());
+    }
+
+    @GetMapping("/{accountId}/stream")
+    ResponseEntity<StreamingResponseBody> stream(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to
+    ) {
+        checkOwner(accountId);
+        transactionService.checkAccountExists(accountId);
+
+        var writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (var generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                transactionService.streamAllByAccountId(accountId, from, to, transaction -> {
+                    try {
+                        writer.writeValue(generator, transaction);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private void checkOwner(Long accountId) {
+        if (shardRouter != null) {
+            shardRouter.checkOwner(accountId);
+        }
     }
 }
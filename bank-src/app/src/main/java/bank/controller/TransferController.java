@@ -0,0 +1,44 @@
+package bank.controller;
+
+import bank.dto.TransferDto;
+import bank.request.TransferRequest;
+import bank.service.TransferService;
+import bank.sharding.ShardRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.List;
+
+import static bank.controller.TransferController.PATH;
+
+/**
+ * Transfer controller
+ */
+@Validated
+@RestController
+@RequestMapping(PATH)
+public class TransferController {
+
+    public static final String PATH = "/transfer";
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired(required = false)
+    private ShardRouter shardRouter;
+
+    @PostMapping
+    ResponseEntity<TransferDto> create(@RequestBody @Valid TransferRequest request) {
+        if (shardRouter != null) {
+            shardRouter.checkOwner(List.of(request.getFromAccountId(), request.getToAccountId()));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(transferService.transfer(request));
+    }
+}
@@ -3,6 +3,8 @@ package bank.data;
 import bank.domain.Account;
 import org.apache.ibatis.annotations.Mapper;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Mapper
@@ -10,6 +12,15 @@ public interface AccountMapper {
 
     Optional<Account> selectAccount(Long id);
 
+    List<Account> selectAccounts(Collection<Long> ids);
+
+    List<Account> selectAccountsForUpdate(Collection<Long> ids);
+
+    long selectNextAccountId();
+
+    /**
+     * Insert the account, with a generated id unless it has one
+     */
     void insertAccount(Account account);
 
 }
@@ -2,9 +2,11 @@ package bank.data;
 
 import bank.domain.Account;
 import bank.domain.Balance;
+import bank.domain.BalanceChange;
 import org.apache.ibatis.annotations.Mapper;
 
 import java.math.BigDecimal;
+import java.util.List;
 
 @Mapper
 public interface BalanceMapper {
@@ -13,4 +15,6 @@ public interface BalanceMapper {
 
     void updateBalance(Balance balance, BigDecimal balanceChange);
 
+    void updateBalances(List<BalanceChange> changes);
+
 }
@@ -0,0 +1,23 @@
+package bank.data;
+
+import bank.domain.Balance;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface BalanceSnapshotMapper {
+
+    boolean tryLockSnapshots();
+
+    LocalDate selectWatermark();
+
+    void updateWatermark(LocalDate day);
+
+    int insertSnapshots(LocalDate day, Instant from, Instant to);
+
+    List<Balance> selectBalancesAt(Long accountId, Instant at);
+
+}
@@ -21,16 +21,20 @@ public class CurrencyTypeHandler extends BaseTypeHandler<Currency> {
 
     @Override
     public Currency getNullableResult(ResultSet rs, String columnName) throws SQLException {
-        return Currency.getInstance(rs.getString(columnName));
+        return toCurrency(rs.getString(columnName));
     }
 
     @Override
     public Currency getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
-        return Currency.getInstance(rs.getString(columnIndex));
+        return toCurrency(rs.getString(columnIndex));
     }
 
     @Override
     public Currency getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
-        return Currency.getInstance(cs.getString(columnIndex));
+        return toCurrency(cs.getString(columnIndex));
+    }
+
+    private static Currency toCurrency(String code) {
+        return code != null ? Currency.getInstance(code) : null;
     }
 }
@@ -0,0 +1,27 @@
+package bank.data;
+
+import bank.domain.Transaction;
+import bank.journal.JournalEntry;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Mapper
+public interface IdempotencyKeyMapper {
+
+    int insertKey(String key);
+
+    void updateTransaction(String key, Long transactionId, Instant transactionCreatedAt);
+
+    void insertKeys(List<JournalEntry> entries);
+
+    Optional<Transaction> selectTransaction(String key);
+
+    void deleteKey(String key);
+
+    int deleteKeysCreatedBefore(LocalDateTime before);
+
+}
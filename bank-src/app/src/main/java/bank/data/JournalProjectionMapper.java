@@ -0,0 +1,14 @@
+package bank.data;
+
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface JournalProjectionMapper {
+
+    long selectPosition();
+
+    long selectPositionForUpdate();
+
+    void updatePosition(long position);
+
+}
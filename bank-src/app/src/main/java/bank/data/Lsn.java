@@ -0,0 +1,47 @@
+package bank.data;
+
+/**
+ * PostgreSQL write-ahead log sequence numbers, as text of the form {@code 16/B374D848} and as longs that order
+ * like the positions they stand for
+ */
+public final class Lsn {
+
+    private Lsn() {
+    }
+
+    /**
+     * @param text log sequence number as text
+     * @return log sequence number
+     * @throws IllegalArgumentException if the text is not a log sequence number
+     */
+    public static long parse(String text) {
+        var separator = text.indexOf('/');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid log sequence number " + text);
+        }
+        return parseHalf(text, 0, separator) << 32 | parseHalf(text, separator + 1, text.length());
+    }
+
+    private static long parseHalf(String text, int from, int to) {
+        if (to - from < 1 || to - from > 8) {
+            throw new IllegalArgumentException("Invalid log sequence number " + text);
+        }
+        long half = 0;
+        for (int i = from; i < to; i++) {
+            var digit = Character.digit(text.charAt(i), 16);
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid log sequence number " + text);
+            }
+            half = half << 4 | digit;
+        }
+        return half;
+    }
+
+    /**
+     * @param lsn log sequence number
+     * @return log sequence number as text
+     */
+    public static String format(long lsn) {
+        return Long.toHexString(lsn >>> 32).toUpperCase() + "/" + Long.toHexString(lsn & 0xFFFFFFFFL).toUpperCase();
+    }
+}
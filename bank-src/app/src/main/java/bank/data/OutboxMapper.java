@@ -0,0 +1,21 @@
+package bank.data;
+
+import bank.domain.OutboxMessage;
+import org.apache.ibatis.annotations.Mapper;
+
+import java.util.List;
+
+@Mapper
+public interface OutboxMapper {
+
+    void insertMessage(OutboxMessage message);
+
+    void insertMessages(List<OutboxMessage> messages);
+
+    List<OutboxMessage> selectMessages(int limit);
+
+    void deleteMessages(List<Long> ids);
+
+    boolean tryLockRelay();
+
+}
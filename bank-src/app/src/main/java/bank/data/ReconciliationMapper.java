@@ -0,0 +1,26 @@
+package bank.data;
+
+import bank.domain.Account;
+import bank.domain.Transaction;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface ReconciliationMapper {
+
+    Long selectMaxAccountId();
+
+    List<Account> selectAccountsInRange(long fromAccountId, long toAccountId);
+
+    List<Account> selectOpeningBalancesInRange(long fromAccountId, long toAccountId, LocalDate beforeDay);
+
+    /**
+     * @param since only transactions created at or after this instant, null for all
+     */
+    Cursor<Transaction> selectTransactionsInRange(long fromAccountId, long toAccountId, Instant since);
+
+}
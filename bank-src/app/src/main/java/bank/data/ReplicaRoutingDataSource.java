@@ -0,0 +1,183 @@
+package bank.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Data source that sends read-only transactions to streaming replicas of the primary database.
+ *
+ * A connection is taken from a replica only when the current Spring transaction is read-only, everything else,
+ * including the reads inside a writing transaction, goes to the primary. Replicas are used round-robin among those
+ * that have replayed the write-ahead log at least up to the log sequence number required by the current thread, see
+ * {@link #requireLsn(long)}, so a caller that passes the position of its last write reads its own writes. Replay
+ * positions are polled in the background, and as they only advance, a replica caught up at the last poll is still
+ * caught up; when no replica is, or none is reachable, the connection is taken from the primary.
+ *
+ * The transaction flags are set after the transaction manager has taken its connection, so this data source is
+ * meant to be wrapped in a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private static final long UNAVAILABLE = -1;
+
+    private static final ThreadLocal<Long> requiredLsn = new ThreadLocal<>();
+
+    private final DataSource primary;
+
+    private final Replica[] replicas;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final LongAdder primaryFallbacks = new LongAdder();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toArray(Replica[]::new);
+    }
+
+    /**
+     * Only read from replicas that have replayed the write-ahead log up to the log sequence number, on this thread
+     * until {@link #clearRequiredLsn()}
+     * @param lsn log sequence number
+     */
+    public static void requireLsn(long lsn) {
+        requiredLsn.set(lsn);
+    }
+
+    public static void clearRequiredLsn() {
+        requiredLsn.remove();
+    }
+
+    /**
+     * @return whether reads on this thread require a log sequence number
+     */
+    public static boolean isLsnRequired() {
+        return requiredLsn.get() != null;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return determineTarget().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return determineTarget().getConnection(username, password);
+    }
+
+    private DataSource determineTarget() {
+        if (replicas.length == 0 || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary;
+        }
+        var required = requiredLsn.get();
+        var start = next.getAndIncrement();
+        for (int i = 0; i < replicas.length; i++) {
+            var replica = replicas[Math.floorMod(start + i, replicas.length)];
+            if (replica.hasReplayed(required != null ? required : 0)) {
+                return replica.dataSource;
+            }
+        }
+        primaryFallbacks.increment();
+        return primary;
+    }
+
+    /**
+     * Poll the replay positions of the replicas
+     */
+    @Scheduled(fixedDelayString = "${bank.replicas.lag-check-interval-ms:100}")
+    public void refreshReplayLsns() {
+        for (var replica : replicas) {
+            replica.refresh();
+        }
+    }
+
+    /**
+     * @return current write-ahead log position of the primary, covering every transaction committed so far
+     */
+    public long currentPrimaryLsn() {
+        try (var connection = primary.getConnection();
+             var statement = connection.createStatement();
+             var resultSet = statement.executeQuery("select pg_current_wal_lsn()::text")) {
+            resultSet.next();
+            return Lsn.parse(resultSet.getString(1));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read the write-ahead log position of the primary", e);
+        }
+    }
+
+    /**
+     * @return read-only transactions served by the primary, as no replica had caught up
+     */
+    public long getPrimaryFallbacks() {
+        return primaryFallbacks.sum();
+    }
+
+    @Override
+    public void close() {
+        for (var replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                try {
+                    ((Closeable) replica.dataSource).close();
+                } catch (IOException e) {
+                    log.warn("Failed to close replica {}", replica.dataSource, e);
+                }
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final DataSource dataSource;
+
+        private volatile long replayLsn = UNAVAILABLE;
+
+        private boolean checked;
+
+        Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        boolean hasReplayed(long lsn) {
+            var replayed = replayLsn;
+            return replayed != UNAVAILABLE && Long.compareUnsigned(replayed, lsn) >= 0;
+        }
+
+        void refresh() {
+            var wasAvailable = !checked || replayLsn != UNAVAILABLE;
+            checked = true;
+            try (var connection = dataSource.getConnection();
+                 var statement = connection.createStatement();
+                 var resultSet = statement.executeQuery("select pg_last_wal_replay_lsn()::text")) {
+                resultSet.next();
+                var text = resultSet.getString(1);
+                if (text == null) {
+                    if (wasAvailable) {
+                        log.warn("Database of {} is not a replica, reading from the primary", dataSource);
+                    }
+                    replayLsn = UNAVAILABLE;
+                    return;
+                }
+                replayLsn = Lsn.parse(text);
+            } catch (SQLException | RuntimeException e) {
+                if (wasAvailable) {
+                    log.warn("Replica {} is unavailable, reading from the primary", dataSource, e);
+                }
+                replayLsn = UNAVAILABLE;
+            }
+        }
+    }
+}
@@ -2,14 +2,33 @@ package bank.data;
 
 import bank.domain.Transaction;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.cursor.Cursor;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 @Mapper
 public interface TransactionMapper {
 
     void insertTransaction(Transaction transaction);
 
-    List<Transaction> selectByAccountId(Long accountId);
+    void insertTransactions(List<Transaction> transactions);
+
+    void insertTransactionsWithIds(List<Transaction> transactions);
+
+    List<Long> reserveIds(int count);
+
+    Optional<Transaction> selectTransaction(Long id);
+
+    default List<Transaction> selectByAccountId(Long accountId) {
+        return selectByAccountId(accountId, null, null);
+    }
+
+    List<Transaction> selectByAccountId(Long accountId, Instant from, Instant to);
+
+    List<Transaction> selectPageByAccountId(Long accountId, Long afterId, Instant from, Instant to, int limit);
+
+    Cursor<Transaction> selectCursorByAccountId(Long accountId, Instant from, Instant to);
 
 }
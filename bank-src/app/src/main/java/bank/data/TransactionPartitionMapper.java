@@ -0,0 +1,21 @@
+package bank.data;
+
+import org.apache.ibatis.annotations.Mapper;
+
+import java.time.Instant;
+import java.util.List;
+
+@Mapper
+public interface TransactionPartitionMapper {
+
+    boolean tryLockMaintenance();
+
+    List<String> selectPartitionNames();
+
+    void createPartition(String name, Instant from, Instant to);
+
+    void detachPartition(String name);
+
+    void archivePartition(String name);
+
+}
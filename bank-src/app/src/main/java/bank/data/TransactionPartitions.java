@@ -0,0 +1,102 @@
+package bank.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashSet;
+import java.util.regex.Pattern;
+
+/**
+ * Maintenance of the monthly partitions of the transaction table.
+ *
+ * Partitions of the current month and the next {@code premake-months} months are created ahead of time, so inserts
+ * never run into a missing partition. With a positive {@code retention-months}, monthly partitions older than that
+ * are detached and moved to the archive schema. The legacy partition, holding the transactions from before
+ * partitioning, is left to operations. A database advisory lock ensures only one node maintains the partitions.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.transaction-partitions.enabled", havingValue = "true", matchIfMissing = true)
+public class TransactionPartitions {
+
+    static final String PREFIX = "transaction_p";
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private static final Pattern MONTHLY_PARTITION = Pattern.compile(PREFIX + "\\d{6}");
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionPartitions.class);
+
+    @Autowired
+    TransactionPartitionMapper transactionPartitionMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${bank.transaction-partitions.premake-months:3}")
+    int premakeMonths = 3;
+
+    @Value("${bank.transaction-partitions.retention-months:0}")
+    int retentionMonths = 0;
+
+    Clock clock = Clock.systemUTC();
+
+    /**
+     * Create upcoming partitions and archive expired ones
+     */
+    @Scheduled(fixedDelayString = "${bank.transaction-partitions.interval-ms:3600000}")
+    public void maintain() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (transactionPartitionMapper.tryLockMaintenance()) {
+                maintainPartitions();
+            }
+        });
+    }
+
+    private void maintainPartitions() {
+        var existing = new HashSet<>(transactionPartitionMapper.selectPartitionNames());
+        var currentMonth = YearMonth.now(clock.withZone(ZoneOffset.UTC));
+
+        for (int i = 0; i <= premakeMonths; i++) {
+            var month = currentMonth.plusMonths(i);
+            var name = name(month);
+            if (!existing.contains(name)) {
+                transactionPartitionMapper.createPartition(name, start(month), start(month.plusMonths(1)));
+                log.info("Created transaction partition {}", name);
+            }
+        }
+
+        if (retentionMonths <= 0) {
+            return;
+        }
+        var oldestRetained = name(currentMonth.minusMonths(retentionMonths));
+        existing.stream()
+                .filter(name -> MONTHLY_PARTITION.matcher(name).matches())
+                .filter(name -> name.compareTo(oldestRetained) < 0)
+                .sorted()
+                .forEach(name -> {
+                    transactionPartitionMapper.detachPartition(name);
+                    transactionPartitionMapper.archivePartition(name);
+                    log.info("Archived transaction partition {}", name);
+                });
+    }
+
+    static String name(YearMonth month) {
+        return PREFIX + month.format(SUFFIX);
+    }
+
+    private static Instant start(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,14 @@
+package bank.domain;
+
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Net change to be applied to a single balance
+ */
+@Value
+public class BalanceChange {
+    Long balanceId;
+    BigDecimal change;
+}
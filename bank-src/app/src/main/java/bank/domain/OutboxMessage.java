@@ -0,0 +1,19 @@
+package bank.domain;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Outbox message entity, a broker message waiting to be relayed
+ */
+@Data
+@Accessors(chain = true)
+public class OutboxMessage {
+    private Long id;
+    private Long accountId;
+    private String exchange;
+    private String routingKey;
+    private String contentType;
+    private String typeId;
+    private byte[] payload;
+}
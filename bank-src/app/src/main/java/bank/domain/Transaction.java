@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.experimental.Accessors;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.Currency;
 
 /**
@@ -20,4 +21,12 @@ public class Transaction {
     private TransactionDirection direction;
     private String description;
     private BigDecimal balanceAfter;
+    private Instant createdAt;
+    /**
+     * Requested amount, currency and rate of a transaction converted into the currency of the balance, null if not
+     * converted
+     */
+    private BigDecimal originalAmount;
+    private Currency originalCurrency;
+    private BigDecimal rate;
 }
@@ -0,0 +1,18 @@
+package bank.dto;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Balances of an account at a point in time
+ */
+@Value
+public class AccountBalanceDto {
+
+    Long accountId;
+    Instant at;
+    List<BalanceDto> balances;
+
+}
@@ -2,15 +2,16 @@ package bank.dto;
 
 import bank.domain.Account;
 import bank.enums.Country;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Value
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonSerialize(using = AccountDtoSerializer.class)
 public class AccountDto {
 
     Long id;
@@ -23,9 +24,7 @@ public class AccountDto {
                 account.getId(),
                 account.getCustomerId(),
                 account.getCountry(),
-                account.getBalances().stream()
-                        .map(BalanceDto::from)
-                        .collect(Collectors.toList())
+                BalanceDto.from(account.getBalances())
         );
     }
 }
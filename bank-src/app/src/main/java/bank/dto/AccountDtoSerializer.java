@@ -0,0 +1,41 @@
+package bank.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+class AccountDtoSerializer extends DtoSerializer<AccountDto> {
+
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString CUSTOMER_ID = new SerializedString("customerId");
+    private static final SerializedString COUNTRY = new SerializedString("country");
+    private static final SerializedString BALANCES = new SerializedString("balances");
+
+    private final BalanceDtoSerializer balanceDtoSerializer = new BalanceDtoSerializer();
+
+    AccountDtoSerializer() {
+        super(AccountDto.class);
+    }
+
+    @Override
+    public void serialize(AccountDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        writeNumber(gen, ID, value.getId());
+        writeString(gen, CUSTOMER_ID, value.getCustomerId());
+        writeString(gen, COUNTRY, value.getCountry());
+        gen.writeFieldName(BALANCES);
+        var balances = value.getBalances();
+        if (balances != null) {
+            gen.writeStartArray(balances, balances.size());
+            for (int i = 0; i < balances.size(); i++) {
+                balanceDtoSerializer.serialize(balances.get(i), gen, provider);
+            }
+            gen.writeEndArray();
+        } else {
+            gen.writeNull();
+        }
+        gen.writeEndObject();
+    }
+}
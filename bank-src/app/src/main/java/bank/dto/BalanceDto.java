@@ -1,15 +1,19 @@
 package bank.dto;
 
 import bank.domain.Balance;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.List;
 
 @Value
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonSerialize(using = BalanceDtoSerializer.class)
 public class BalanceDto {
 
     Currency currency;
@@ -21,4 +25,12 @@ public class BalanceDto {
                 balance.getAmount()
         );
     }
+
+    public static List<BalanceDto> from(List<Balance> balances) {
+        var balanceDtos = new ArrayList<BalanceDto>(balances.size());
+        for (var balance : balances) {
+            balanceDtos.add(from(balance));
+        }
+        return balanceDtos;
+    }
 }
@@ -0,0 +1,25 @@
+package bank.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+class BalanceDtoSerializer extends DtoSerializer<BalanceDto> {
+
+    private static final SerializedString CURRENCY = new SerializedString("currency");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+
+    BalanceDtoSerializer() {
+        super(BalanceDto.class);
+    }
+
+    @Override
+    public void serialize(BalanceDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        writeString(gen, CURRENCY, value.getCurrency());
+        writeNumber(gen, AMOUNT, value.getAmount());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,22 @@
+package bank.dto;
+
+import bank.enums.BatchEntryStatus;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BatchEntryResultDto {
+
+    int index;
+    BatchEntryStatus status;
+    TransactionDto transaction;
+    String error;
+
+    public static BatchEntryResultDto from(int index, TransactionResult result) {
+        return result.isCreated()
+                ? new BatchEntryResultDto(index, BatchEntryStatus.CREATED, result.getTransaction(), null)
+                : new BatchEntryResultDto(index, BatchEntryStatus.REJECTED, null, result.getError().getLocalizedMessage());
+    }
+}
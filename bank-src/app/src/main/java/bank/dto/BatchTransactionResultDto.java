@@ -0,0 +1,30 @@
+package bank.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class BatchTransactionResultDto {
+
+    int created;
+    int rejected;
+    List<BatchEntryResultDto> results;
+
+    public static BatchTransactionResultDto from(List<TransactionResult> results) {
+        var entries = new ArrayList<BatchEntryResultDto>(results.size());
+        int created = 0;
+        for (int i = 0; i < results.size(); i++) {
+            var result = results.get(i);
+            if (result.isCreated()) {
+                created++;
+            }
+            entries.add(BatchEntryResultDto.from(i, result));
+        }
+        return new BatchTransactionResultDto(created, results.size() - created, entries);
+    }
+}
@@ -0,0 +1,39 @@
+package bank.dto;
+
+import bank.enums.DiscrepancyType;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * Difference between a stored amount and the amount recomputed from the transaction history
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class DiscrepancyDto {
+
+    DiscrepancyType type;
+    Long accountId;
+    Currency currency;
+    /**
+     * Transaction with the wrong balance after, null for a balance
+     */
+    Long transactionId;
+    BigDecimal expected;
+    /**
+     * Stored amount, null if there is no balance in the currency
+     */
+    BigDecimal actual;
+
+    public static DiscrepancyDto balance(Long accountId, Currency currency, BigDecimal expected, BigDecimal actual) {
+        return new DiscrepancyDto(DiscrepancyType.BALANCE, accountId, currency, null, expected, actual);
+    }
+
+    public static DiscrepancyDto balanceAfter(Long accountId, Currency currency, Long transactionId,
+                                              BigDecimal expected, BigDecimal actual) {
+        return new DiscrepancyDto(DiscrepancyType.BALANCE_AFTER, accountId, currency, transactionId, expected, actual);
+    }
+}
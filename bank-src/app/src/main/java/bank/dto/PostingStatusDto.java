@@ -0,0 +1,37 @@
+package bank.dto;
+
+import bank.enums.PostingStatus;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Status of a transaction request accepted for asynchronous posting
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class PostingStatusDto {
+
+    UUID id;
+    PostingStatus status;
+    TransactionDto transaction;
+    String error;
+
+    public static PostingStatusDto pending(UUID id) {
+        return new PostingStatusDto(id, PostingStatus.PENDING, null, null);
+    }
+
+    public static PostingStatusDto created(UUID id, TransactionDto transaction) {
+        return new PostingStatusDto(id, PostingStatus.CREATED, transaction, null);
+    }
+
+    public static PostingStatusDto rejected(UUID id, String error) {
+        return new PostingStatusDto(id, PostingStatus.REJECTED, null, error);
+    }
+
+    public static PostingStatusDto failed(UUID id) {
+        return new PostingStatusDto(id, PostingStatus.FAILED, null, null);
+    }
+}
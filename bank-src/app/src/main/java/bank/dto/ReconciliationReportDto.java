@@ -0,0 +1,40 @@
+package bank.dto;
+
+import lombok.Value;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Outcome of reconciling the balances of a range of accounts with their transaction history
+ */
+@Value
+public class ReconciliationReportDto {
+
+    long fromAccountId;
+    long toAccountId;
+    Instant startedAt;
+    Instant finishedAt;
+    long accounts;
+    long transactions;
+    /**
+     * Accounts whose balances changed while reconciled, so they could not be compared
+     */
+    long skippedAccounts;
+    /**
+     * Whether the balance after of every transaction was checked, which it is not with the balance engine
+     */
+    boolean balanceAfterChecked;
+    long discrepancyCount;
+    /**
+     * The first discrepancies found, at most as many as configured
+     */
+    List<DiscrepancyDto> discrepancies;
+
+    /**
+     * @return whether no discrepancies were found and no account was skipped
+     */
+    public boolean isConsistent() {
+        return discrepancyCount == 0 && skippedAccounts == 0;
+    }
+}
@@ -2,15 +2,18 @@ package bank.dto;
 
 import bank.domain.Transaction;
 import bank.enums.TransactionDirection;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Value;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.Currency;
 
 @Value
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
+@JsonSerialize(using = TransactionDtoSerializer.class)
 public class TransactionDto {
 
     Long accountId;
@@ -20,6 +23,10 @@ public class TransactionDto {
     TransactionDirection direction;
     String description;
     BigDecimal balanceAfter;
+    Instant createdAt;
+    BigDecimal originalAmount;
+    Currency originalCurrency;
+    BigDecimal rate;
 
     public static TransactionDto from(Transaction transaction) {
         return new TransactionDto(
@@ -29,7 +36,11 @@ public class TransactionDto {
                 transaction.getCurrency(),
                 transaction.getDirection(),
                 transaction.getDescription(),
-                transaction.getBalanceAfter()
+                transaction.getBalanceAfter(),
+                transaction.getCreatedAt(),
+                transaction.getOriginalAmount(),
+                transaction.getOriginalCurrency(),
+                transaction.getRate()
         );
     }
 
@@ -0,0 +1,43 @@
+package bank.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+class TransactionDtoSerializer extends DtoSerializer<TransactionDto> {
+
+    private static final SerializedString ACCOUNT_ID = new SerializedString("accountId");
+    private static final SerializedString TRANSACTION_ID = new SerializedString("transactionId");
+    private static final SerializedString AMOUNT = new SerializedString("amount");
+    private static final SerializedString CURRENCY = new SerializedString("currency");
+    private static final SerializedString DIRECTION = new SerializedString("direction");
+    private static final SerializedString DESCRIPTION = new SerializedString("description");
+    private static final SerializedString BALANCE_AFTER = new SerializedString("balanceAfter");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString ORIGINAL_AMOUNT = new SerializedString("originalAmount");
+    private static final SerializedString ORIGINAL_CURRENCY = new SerializedString("originalCurrency");
+    private static final SerializedString RATE = new SerializedString("rate");
+
+    TransactionDtoSerializer() {
+        super(TransactionDto.class);
+    }
+
+    @Override
+    public void serialize(TransactionDto value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject(value);
+        writeNumber(gen, ACCOUNT_ID, value.getAccountId());
+        writeNumber(gen, TRANSACTION_ID, value.getTransactionId());
+        writeNumber(gen, AMOUNT, value.getAmount());
+        writeString(gen, CURRENCY, value.getCurrency());
+        writeString(gen, DIRECTION, value.getDirection());
+        writeString(gen, DESCRIPTION, value.getDescription());
+        writeNumber(gen, BALANCE_AFTER, value.getBalanceAfter());
+        writeValue(gen, CREATED_AT, value.getCreatedAt(), provider);
+        writeNumber(gen, ORIGINAL_AMOUNT, value.getOriginalAmount());
+        writeString(gen, ORIGINAL_CURRENCY, value.getOriginalCurrency());
+        writeNumber(gen, RATE, value.getRate());
+        gen.writeEndObject();
+    }
+}
@@ -0,0 +1,19 @@
+package bank.dto;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * A page of transactions of an account, ordered by transaction id
+ */
+@Value
+public class TransactionPageDto {
+
+    List<TransactionDto> transactions;
+    /**
+     * Transaction id to continue after, null if this is the last page
+     */
+    Long nextCursor;
+
+}
@@ -0,0 +1,39 @@
+package bank.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * Outcome of posting a single transaction request, either the created transaction or the reason it was rejected
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransactionResult {
+
+    TransactionDto transaction;
+    RuntimeException error;
+
+    public static TransactionResult created(TransactionDto transaction) {
+        return new TransactionResult(transaction, null);
+    }
+
+    public static TransactionResult rejected(RuntimeException error) {
+        return new TransactionResult(null, error);
+    }
+
+    public boolean isCreated() {
+        return transaction != null;
+    }
+
+    /**
+     * @return created transaction
+     * @throws RuntimeException the reason the transaction was rejected
+     */
+    public TransactionDto getOrThrow() {
+        if (error != null) {
+            throw error;
+        }
+        return transaction;
+    }
+}
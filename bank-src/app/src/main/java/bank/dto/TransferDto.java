@@ -0,0 +1,24 @@
+package bank.dto;
+
+import bank.domain.Transaction;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+/**
+ * Transfer between two balances, as the transactions of its debit and credit legs
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class TransferDto {
+
+    TransactionDto debit;
+    TransactionDto credit;
+    BigDecimal rate;
+
+    public static TransferDto from(Transaction debit, Transaction credit, BigDecimal rate) {
+        return new TransferDto(TransactionDto.from(debit), TransactionDto.from(credit), rate);
+    }
+}
@@ -0,0 +1,171 @@
+package bank.engine;
+
+import bank.configuration.BankConf;
+import bank.dto.PostingStatusDto;
+import bank.exception.InvalidCurrencyException;
+import bank.exception.PostingQueueFullException;
+import bank.fx.FxRateService;
+import bank.request.TransactionRequest;
+import bank.service.IdempotencyService;
+import bank.sharding.ShardRouter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous posting of transaction requests.
+ *
+ * Accepted requests are posted on a dedicated, bounded executor instead of the request thread, through the same
+ * path as synchronous requests, see {@link IdempotencyService#createTransaction}. When the executor queue is full, requests are
+ * refused instead of queueing without bound. The outcome of a request is kept as its status for a while, to be
+ * polled by the client.
+ *
+ * Statuses and accepted requests are kept in memory only. A graceful shutdown posts the accepted requests first,
+ * but a crash loses them together with the statuses, so a client that gets no status for its posting should
+ * resubmit it with the same idempotency key. With sharding, the status id is owned by the accepting node, which
+ * status requests to other nodes are redirected to.
+ */
+@Component
+public class AsyncPosting {
+
+    public static final String QUEUE_GAUGE_NAME = "bank.async-posting.queue.size";
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncPosting.class);
+
+    @Autowired
+    IdempotencyService idempotencyService;
+
+    @Autowired(required = false)
+    FxRateService fxRateService;
+
+    @Autowired(required = false)
+    ShardRouter shardRouter;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    @Value("${bank.async-posting.threads:8}")
+    int threads = 8;
+
+    @Value("${bank.async-posting.queue-capacity:1000}")
+    int queueCapacity = 1000;
+
+    @Value("${bank.async-posting.status-ttl-ms:600000}")
+    long statusTtl = 600_000;
+
+    @Value("${bank.async-posting.max-statuses:100000}")
+    long maxStatuses = 100_000;
+
+    private ThreadPoolExecutor executor;
+
+    private Cache<UUID, PostingStatusDto> statuses;
+
+    private Counter rejections;
+
+    @PostConstruct
+    void init() {
+        var threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    var thread = new Thread(runnable, "async-posting-" + threadNumber.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        statuses = Caffeine.newBuilder()
+                .maximumSize(maxStatuses)
+                .expireAfterWrite(Duration.ofMillis(statusTtl))
+                .build();
+
+        if (meterRegistry != null) {
+            Gauge.builder(QUEUE_GAUGE_NAME, executor, e -> e.getQueue().size())
+                    .description("Transaction requests waiting to be posted asynchronously")
+                    .register(meterRegistry);
+            rejections = Counter.builder("bank.async-posting.rejected")
+                    .description("Transaction requests refused because the queue was full")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Accept a transaction request for posting
+     * @param request transaction request
+     * @param idempotencyKey idempotency key, may be null
+     * @return pending status of the request
+     * @throws PostingQueueFullException if too many requests are waiting to be posted
+     */
+    public PostingStatusDto accept(TransactionRequest request, String idempotencyKey) {
+        var currency = request.getCurrency();
+        if (!BankConf.ALLOWED_CURRENCIES.contains(currency)
+                && (fxRateService == null || !fxRateService.isConvertible(currency))) {
+            throw new InvalidCurrencyException();
+        }
+
+        var id = shardRouter != null ? shardRouter.allocatePostingId() : UUID.randomUUID();
+        var pending = PostingStatusDto.pending(id);
+        statuses.put(pending.getId(), pending);
+        try {
+            executor.execute(() -> statuses.put(pending.getId(), post(pending.getId(), request, idempotencyKey)));
+        } catch (RejectedExecutionException e) {
+            statuses.invalidate(pending.getId());
+            if (rejections != null) {
+                rejections.increment();
+            }
+            throw new PostingQueueFullException();
+        }
+        return pending;
+    }
+
+    /**
+     * @param id id of the accepted request
+     * @return status of the request, empty if unknown or expired
+     */
+    public Optional<PostingStatusDto> find(UUID id) {
+        return Optional.ofNullable(statuses.getIfPresent(id));
+    }
+
+    /**
+     * Stop accepting requests and post everything already accepted
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    private PostingStatusDto post(UUID id, TransactionRequest request, String idempotencyKey) {
+        try {
+            return PostingStatusDto.created(id, idempotencyService.createTransaction(request, idempotencyKey));
+        } catch (RuntimeException e) {
+            var responseStatus = AnnotatedElementUtils.findMergedAnnotation(e.getClass(), ResponseStatus.class);
+            if (responseStatus != null && responseStatus.value().is4xxClientError()) {
+                return PostingStatusDto.rejected(id, e.getLocalizedMessage());
+            }
+            log.error("Asynchronous posting {} failed", id, e);
+            return PostingStatusDto.failed(id);
+        }
+    }
+}
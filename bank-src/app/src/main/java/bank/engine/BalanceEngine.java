@@ -0,0 +1,351 @@
+package bank.engine;
+
+import bank.data.AccountMapper;
+import bank.data.BalanceMapper;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.BalanceChange;
+import bank.exception.AccountNotFoundException;
+import bank.exception.InsufficientFundsException;
+import bank.exception.InvalidCurrencyException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory balance engine.
+ *
+ * Keeps the authoritative balance of every (account, currency) pair it has seen in memory and applies
+ * changes with an atomic check-and-apply under a lock stripe chosen by account id. Committed changes are
+ * accumulated per balance and written through to the database asynchronously as one net delta per balance.
+ *
+ * The engine assumes it is the only writer of the balances it holds, i.e. a single application instance.
+ *
+ * No balance row is locked, so transactions of one account run concurrently and commit in any order. Their ids,
+ * their {@code balanceAfter} and the order of their events follow the order in which they were posted, not the
+ * order in which they committed, and {@code balanceAfter} is the balance as seen by the posting transaction, which
+ * does not include the changes of other transactions not yet committed.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.balance-engine.enabled", havingValue = "true")
+public class BalanceEngine {
+
+    @Autowired
+    AccountMapper accountMapper;
+
+    @Autowired
+    BalanceMapper balanceMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${bank.balance-engine.stripes:64}")
+    int stripeCount = 64;
+
+    private final Map<Long, Map<Currency, Slot>> accounts = new ConcurrentHashMap<>();
+
+    private final Set<Slot> dirty = ConcurrentHashMap.newKeySet();
+
+    private Object[] stripes;
+
+    @PostConstruct
+    void init() {
+        var size = Integer.highestOneBit(Math.max(1, stripeCount - 1) << 1);
+        stripes = new Object[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new Object();
+        }
+    }
+
+    /**
+     * Atomically check and apply a balance change.
+     * Inside a database transaction a debit is reserved at once, so that concurrent debits cannot spend the same
+     * funds, and a credit is only held by the transaction itself: other transactions cannot spend it before it
+     * commits. Both become part of the committed balance and are scheduled for write-through once the transaction
+     * commits, and reservations are released if it rolls back.
+     * @param accountId account id
+     * @param currency balance currency
+     * @param change signed balance change
+     * @return balance after the change, as seen by the transaction: the committed balance plus its own changes.
+     * Debits reserved by other transactions only count for the funds check.
+     */
+    public BigDecimal apply(Long accountId, Currency currency, BigDecimal change) {
+        var slot = load(accountId).get(currency);
+        if (slot == null) {
+            throw new InvalidCurrencyException();
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (stripeFor(accountId)) {
+                var newAmount = slot.committed.subtract(slot.reserved).add(change);
+                if (change.signum() < 0 && newAmount.signum() < 0) {
+                    throw new InsufficientFundsException();
+                }
+                commit(slot, change);
+                return newAmount;
+            }
+        }
+
+        var changes = transactionChanges();
+        var ownCredits = changes.credits.getOrDefault(slot, BigDecimal.ZERO);
+        var ownDebits = changes.debits.getOrDefault(slot, BigDecimal.ZERO);
+        var first = !changes.debits.containsKey(slot) && !changes.credits.containsKey(slot);
+        synchronized (stripeFor(accountId)) {
+            if (change.signum() < 0) {
+                if (slot.committed.subtract(slot.reserved).add(ownCredits).add(change).signum() < 0) {
+                    throw new InsufficientFundsException();
+                }
+                slot.reserved = slot.reserved.subtract(change);
+                changes.debits.merge(slot, change.negate(), BigDecimal::add);
+            } else {
+                changes.credits.merge(slot, change, BigDecimal::add);
+            }
+            if (first) {
+                slot.inFlight++;
+            }
+            return slot.committed.subtract(ownDebits).add(ownCredits).add(change);
+        }
+    }
+
+    /**
+     * @param accountId account id
+     * @return currencies of the balances of the account
+     */
+    public Set<Currency> currencies(Long accountId) {
+        return load(accountId).keySet();
+    }
+
+    /**
+     * @param accountId account id
+     * @return stamp of the balances of the account, which changes whenever a change is committed to them or written
+     * through, 0 if the engine does not hold the account
+     */
+    public long stamp(Long accountId) {
+        var slots = accounts.get(accountId);
+        if (slots == null) {
+            return 0;
+        }
+        synchronized (stripeFor(accountId)) {
+            long stamp = 0;
+            for (var slot : slots.values()) {
+                stamp += slot.version;
+            }
+            return stamp;
+        }
+    }
+
+    /**
+     * Committed balance changes of an account not written through yet, provided that the account is settled: no
+     * change was committed or written through since the stamp was taken and none is under way. The stored balances
+     * plus these changes are then the balances of all transactions committed before the stamp was taken.
+     * @param accountId account id
+     * @param stamp stamp of the account taken earlier, see {@link #stamp(Long)}
+     * @return unflushed change per currency, empty if the engine does not hold the account, or empty optional if the
+     * account is not settled
+     */
+    public Optional<Map<Currency, BigDecimal>> unflushed(Long accountId, long stamp) {
+        var slots = accounts.get(accountId);
+        if (slots == null) {
+            return stamp == 0 ? Optional.of(Map.of()) : Optional.empty();
+        }
+        synchronized (stripeFor(accountId)) {
+            long current = 0;
+            var changes = new HashMap<Currency, BigDecimal>();
+            for (var entry : slots.entrySet()) {
+                var slot = entry.getValue();
+                if (slot.inFlight > 0) {
+                    return Optional.empty();
+                }
+                current += slot.version;
+                changes.put(entry.getKey(), slot.pending);
+            }
+            return current == stamp ? Optional.of(changes) : Optional.empty();
+        }
+    }
+
+    /**
+     * Replace the balances of an account loaded from the database with the committed in-memory balances
+     * @param account account
+     */
+    public void overlay(Account account) {
+        var slots = accounts.get(account.getId());
+        if (slots == null) {
+            return;
+        }
+        synchronized (stripeFor(account.getId())) {
+            account.getBalances().forEach(balance -> {
+                var slot = slots.get(balance.getCurrency());
+                if (slot != null) {
+                    balance.setAmount(slot.committed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Write all committed but not yet persisted balance changes to the database in one transaction
+     */
+    @Scheduled(fixedDelayString = "${bank.balance-engine.flush-interval-ms:50}")
+    public void flush() {
+        var changes = new ArrayList<BalanceChange>();
+        var drained = new HashMap<Slot, BigDecimal>();
+        for (var slot : dirty) {
+            dirty.remove(slot);
+            synchronized (stripeFor(slot.accountId)) {
+                if (slot.pending.signum() != 0) {
+                    drained.put(slot, slot.pending);
+                    changes.add(new BalanceChange(slot.balanceId, slot.pending));
+                    slot.pending = BigDecimal.ZERO;
+                    slot.version++;
+                    slot.inFlight++;
+                }
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        var written = false;
+        try {
+            new TransactionTemplate(transactionManager)
+                    .executeWithoutResult(status -> balanceMapper.updateBalances(changes));
+            written = true;
+        } finally {
+            for (var entry : drained.entrySet()) {
+                var slot = entry.getKey();
+                synchronized (stripeFor(slot.accountId)) {
+                    if (!written) {
+                        slot.pending = slot.pending.add(entry.getValue());
+                        dirty.add(slot);
+                    }
+                    slot.version++;
+                    slot.inFlight--;
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+    private Map<Currency, Slot> load(Long accountId) {
+        var slots = accounts.get(accountId);
+        if (slots != null) {
+            return slots;
+        }
+        // loaded outside of the map, so that the query does not block other accounts; the engine is the only writer
+        // of the balances, so a concurrent load reads the same amounts, and the first one to be put wins
+        var loaded = toSlots(
+                accountMapper.selectAccount(accountId).orElseThrow(() -> new AccountNotFoundException(accountId))
+        );
+        var previous = accounts.putIfAbsent(accountId, loaded);
+        return previous != null ? previous : loaded;
+    }
+
+    private Map<Currency, Slot> toSlots(Account account) {
+        var slots = new HashMap<Currency, Slot>();
+        for (Balance balance : account.getBalances()) {
+            slots.put(balance.getCurrency(), new Slot(account.getId(), balance.getId(), balance.getAmount()));
+        }
+        return Collections.unmodifiableMap(slots);
+    }
+
+    /**
+     * Apply a change to the committed balance, called with the stripe of the account held
+     */
+    private void commit(Slot slot, BigDecimal change) {
+        slot.committed = slot.committed.add(change);
+        slot.pending = slot.pending.add(change);
+        slot.version++;
+        dirty.add(slot);
+    }
+
+    /**
+     * @return changes of the current transaction, registered for completion on first use
+     */
+    private TransactionChanges transactionChanges() {
+        var changes = (TransactionChanges) TransactionSynchronizationManager.getResource(this);
+        if (changes == null) {
+            changes = new TransactionChanges();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(changes);
+        }
+        return changes;
+    }
+
+    private Object stripeFor(Long accountId) {
+        var hash = Long.hashCode(accountId) * 0x9E3779B9;
+        return stripes[(hash ^ (hash >>> 16)) & (stripes.length - 1)];
+    }
+
+    /**
+     * In-memory state of a single balance, guarded by the stripe of its account
+     */
+    private static final class Slot {
+        final Long accountId;
+        final Long balanceId;
+        BigDecimal committed;
+        BigDecimal reserved = BigDecimal.ZERO;
+        BigDecimal pending = BigDecimal.ZERO;
+        /**
+         * Count of the changes committed and written through
+         */
+        long version;
+        /**
+         * Transactions and writes through under way
+         */
+        int inFlight;
+
+        Slot(Long accountId, Long balanceId, BigDecimal amount) {
+            this.accountId = accountId;
+            this.balanceId = balanceId;
+            this.committed = amount;
+        }
+    }
+
+    /**
+     * Debits reserved and credits held by one database transaction
+     */
+    private final class TransactionChanges implements TransactionSynchronization {
+        final Map<Slot, BigDecimal> debits = new HashMap<>();
+        final Map<Slot, BigDecimal> credits = new HashMap<>();
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(BalanceEngine.this);
+            var slots = new HashSet<Slot>(debits.keySet());
+            slots.addAll(credits.keySet());
+            for (var slot : slots) {
+                var debit = debits.getOrDefault(slot, BigDecimal.ZERO);
+                synchronized (stripeFor(slot.accountId)) {
+                    slot.reserved = slot.reserved.subtract(debit);
+                    slot.inFlight--;
+                    if (status == STATUS_COMMITTED) {
+                        commit(slot, credits.getOrDefault(slot, BigDecimal.ZERO).subtract(debit));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package bank.engine;
+
+import bank.dto.TransactionDto;
+import bank.dto.TransactionResult;
+import bank.exception.PostingQueueFullException;
+import bank.exception.PostingTimeoutException;
+import bank.request.TransactionRequest;
+import bank.service.TransactionService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Per-account posting lanes.
+ *
+ * Every account is owned by one lane, chosen by account id, and a lane is a single thread draining its own
+ * queue, so the transactions of an account are posted one lane batch at a time and in submission order.
+ * Whatever has queued up in a lane while the previous batch was being posted is coalesced into one call of
+ * {@link TransactionService#postTransactions}, i.e. one database transaction. Lanes never share an account,
+ * so they do not contend for the same balance rows. Idempotency keys of requests are taken in the same database
+ * transaction.
+ *
+ * With {@code max-batch-delay-us}, a lane waits up to that long after the first request of a batch for more
+ * requests, so that a batch shares one commit even when the lane was idle. This trades latency for throughput;
+ * the time from submission to commit is recorded in {@value #LATENCY_TIMER_NAME}.
+ *
+ * If posting a batch fails, it is split in halves that are posted on their own, down to single requests, so a
+ * request that cannot be posted fails alone instead of failing the requests of other accounts in its batch.
+ *
+ * Callers wait at most {@code timeout-ms} for a place in the queue and for the commit. On shutdown, the lanes post
+ * what is queued, and requests that are still queued after that are failed.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.posting-lanes.enabled", havingValue = "true")
+public class PostingLanes {
+
+    public static final String LATENCY_TIMER_NAME = "bank.posting-lanes.latency";
+
+    @Autowired
+    TransactionService transactionService;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    @Value("${bank.posting-lanes.lanes:16}")
+    int laneCount = 16;
+
+    @Value("${bank.posting-lanes.max-batch-size:500}")
+    int maxBatchSize = 500;
+
+    @Value("${bank.posting-lanes.queue-capacity:10000}")
+    int queueCapacity = 10_000;
+
+    @Value("${bank.posting-lanes.max-batch-delay-us:0}")
+    long maxBatchDelayMicros = 0;
+
+    @Value("${bank.posting-lanes.timeout-ms:10000}")
+    long timeoutMillis = 10_000;
+
+    private Lane[] lanes;
+
+    private DistributionSummary batchSizes;
+
+    private Timer latency;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    void init() {
+        if (meterRegistry != null) {
+            batchSizes = DistributionSummary.builder("bank.posting-lanes.batch.size")
+                    .description("Transactions posted per lane batch")
+                    .register(meterRegistry);
+            latency = Timer.builder(LATENCY_TIMER_NAME)
+                    .description("Time from submitting a transaction to its lane batch being committed")
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        running = true;
+        lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i);
+            lanes[i].thread.start();
+        }
+    }
+
+    /**
+     * Submit a transaction request to the lane of its account
+     * @param request transaction request
+     * @return future completed with the result once the lane batch containing the request is committed
+     * @throws PostingQueueFullException if the lane has no room for the request within the timeout
+     */
+    public CompletableFuture<TransactionResult> submit(TransactionRequest request) {
+        return enqueue(request, null).result;
+    }
+
+    /**
+     * Create new transaction through the lane of its account and wait for it to be committed
+     * @param request transaction request
+     * @return transaction dto
+     * @throws PostingQueueFullException if the request is still queued after the timeout, it is not posted then
+     * @throws PostingTimeoutException if the batch of the request has not committed within the timeout
+     */
+    public TransactionDto post(TransactionRequest request) {
+        return post(request, null);
+    }
+
+    /**
+     * Create new transaction with an idempotency key through the lane of its account and wait for it to be committed,
+     * or find the transaction already created with the key
+     * @param request transaction request
+     * @param idempotencyKey idempotency key, may be null
+     * @return transaction dto
+     * @throws PostingQueueFullException if the request is still queued after the timeout, it is not posted then
+     * @throws PostingTimeoutException if the batch of the request has not committed within the timeout
+     */
+    public TransactionDto post(TransactionRequest request, String idempotencyKey) {
+        var command = enqueue(request, idempotencyKey);
+        try {
+            return command.result.get(timeoutMillis, TimeUnit.MILLISECONDS).getOrThrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for transaction", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            if (laneFor(request.getAccountId()).queue.remove(command)) {
+                throw new PostingQueueFullException();
+            }
+            throw new PostingTimeoutException();
+        }
+    }
+
+    private Command enqueue(TransactionRequest request, String idempotencyKey) {
+        if (!running) {
+            throw new IllegalStateException("Posting lanes are shut down");
+        }
+
+        var command = new Command(request, idempotencyKey);
+        var queue = laneFor(request.getAccountId()).queue;
+        try {
+            if (!queue.offer(command, timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new PostingQueueFullException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing transaction", e);
+        }
+        // shut down while queueing: the lane may have stopped before taking the command, and the queue may have
+        // been failed before it was added, so take it back unless either got it
+        if (!running && queue.remove(command)) {
+            throw new IllegalStateException("Posting lanes are shut down");
+        }
+        return command;
+    }
+
+    /**
+     * Stop accepting requests and post everything already queued
+     */
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        running = false;
+        for (var lane : lanes) {
+            lane.thread.join(TimeUnit.MINUTES.toMillis(1));
+        }
+        for (var lane : lanes) {
+            var rejected = new IllegalStateException("Posting lanes are shut down");
+            Command command;
+            while ((command = lane.queue.poll()) != null) {
+                command.result.completeExceptionally(rejected);
+            }
+        }
+    }
+
+    private Lane laneFor(Long accountId) {
+        var hash = Long.hashCode(accountId) * 0x9E3779B9;
+        return lanes[Math.floorMod(hash ^ (hash >>> 16), lanes.length)];
+    }
+
+    private void postBatch(List<Command> batch) {
+        if (batchSizes != null) {
+            batchSizes.record(batch.size());
+        }
+
+        post(batch);
+
+        if (latency != null) {
+            var now = System.nanoTime();
+            batch.forEach(command -> latency.record(now - command.submittedAt, TimeUnit.NANOSECONDS));
+        }
+    }
+
+    /**
+     * Post the commands in one database transaction. If that fails, it has rolled back, and the halves are posted
+     * on their own, in order, so that only the commands that fail on their own get the error.
+     */
+    private void post(List<Command> commands) {
+        var requests = new ArrayList<TransactionRequest>(commands.size());
+        var idempotencyKeys = new ArrayList<String>(commands.size());
+        var keyed = false;
+        for (var command : commands) {
+            requests.add(command.request);
+            idempotencyKeys.add(command.idempotencyKey);
+            keyed |= command.idempotencyKey != null;
+        }
+
+        List<TransactionResult> results;
+        try {
+            results = keyed
+                    ? transactionService.postTransactions(requests, idempotencyKeys)
+                    : transactionService.postTransactions(requests);
+        } catch (RuntimeException e) {
+            if (commands.size() == 1) {
+                commands.get(0).result.completeExceptionally(e);
+            } else {
+                post(commands.subList(0, commands.size() / 2));
+                post(commands.subList(commands.size() / 2, commands.size()));
+            }
+            return;
+        }
+        for (int i = 0; i < commands.size(); i++) {
+            commands.get(i).result.complete(results.get(i));
+        }
+    }
+
+    private static final class Command {
+        final TransactionRequest request;
+        final String idempotencyKey;
+        final CompletableFuture<TransactionResult> result = new CompletableFuture<>();
+        final long submittedAt = System.nanoTime();
+
+        Command(TransactionRequest request, String idempotencyKey) {
+            this.request = request;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    private final class Lane implements Runnable {
+        final BlockingQueue<Command> queue = new LinkedBlockingQueue<>(queueCapacity);
+        final Thread thread;
+
+        Lane(int index) {
+            thread = new Thread(this, "posting-lane-" + index);
+            thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            var batch = new ArrayList<Command>(maxBatchSize);
+            while (running || !queue.isEmpty()) {
+                Command first;
+                try {
+                    first = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (first == null) {
+                    continue;
+                }
+
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                if (maxBatchDelayMicros > 0) {
+                    try {
+                        linger(batch);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                postBatch(batch);
+                batch.clear();
+            }
+        }
+
+        /**
+         * Wait for more requests until the batch is full or the delay since the first request has passed
+         */
+        private void linger(List<Command> batch) throws InterruptedException {
+            var deadline = batch.get(0).submittedAt + TimeUnit.MICROSECONDS.toNanos(maxBatchDelayMicros);
+            long remaining;
+            while (batch.size() < maxBatchSize && (remaining = deadline - System.nanoTime()) > 0) {
+                var next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+        }
+    }
+}
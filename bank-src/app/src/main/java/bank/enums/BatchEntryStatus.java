@@ -0,0 +1,6 @@
+package bank.enums;
+
+public enum BatchEntryStatus {
+    CREATED,
+    REJECTED
+}
@@ -0,0 +1,6 @@
+package bank.enums;
+
+public enum DiscrepancyType {
+    BALANCE,
+    BALANCE_AFTER
+}
@@ -0,0 +1,8 @@
+package bank.enums;
+
+public enum PostingStatus {
+    PENDING,
+    CREATED,
+    REJECTED,
+    FAILED
+}
@@ -0,0 +1,20 @@
+package bank.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Getter
+@ResponseStatus(value = HttpStatus.TEMPORARY_REDIRECT)
+public class AccountNotOwnedException extends RuntimeException {
+
+    /**
+     * Base url of the node owning the account
+     */
+    private final String ownerUrl;
+
+    public AccountNotOwnedException(Long accountId, String ownerUrl) {
+        super("Account " + accountId + " is owned by " + ownerUrl);
+        this.ownerUrl = ownerUrl;
+    }
+}
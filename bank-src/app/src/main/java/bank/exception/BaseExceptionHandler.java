@@ -1,6 +1,7 @@
 package bank.exception;
 
 import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -9,6 +10,8 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import javax.servlet.http.HttpServletRequest;
+import java.net.URI;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -26,9 +29,53 @@ public class BaseExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    @ExceptionHandler(PostingNotFoundException.class)
+    public final ResponseEntity<Object> handlePostingNotFoundException(PostingNotFoundException ex) {
+        ErrorResponse error = new ErrorResponse("Posting Not Found", List.of(ex.getLocalizedMessage()));
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    }
+
+    @ExceptionHandler(PostingQueueFullException.class)
+    public final ResponseEntity<Object> handlePostingQueueFullException(PostingQueueFullException ex) {
+        ErrorResponse error = new ErrorResponse("Too Many Requests", List.of(ex.getLocalizedMessage()));
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).header(HttpHeaders.RETRY_AFTER, "1").body(error);
+    }
+
+    @ExceptionHandler(PostingTimeoutException.class)
+    public final ResponseEntity<Object> handlePostingTimeoutException(PostingTimeoutException ex) {
+        ErrorResponse error = new ErrorResponse("Posting Timed Out", List.of(ex.getLocalizedMessage()));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    /**
+     * Redirect requests for accounts of another node to the same path on that node
+     */
+    @ExceptionHandler(AccountNotOwnedException.class)
+    public final ResponseEntity<Object> handleAccountNotOwnedException(
+            AccountNotOwnedException ex, HttpServletRequest request
+    ) {
+        ErrorResponse error = new ErrorResponse("Account Not Owned", List.of(ex.getLocalizedMessage()));
+        return redirect(ex.getOwnerUrl(), request, error);
+    }
+
+    /**
+     * Redirect status requests of postings accepted by another node to the same path on that node
+     */
+    @ExceptionHandler(PostingNotOwnedException.class)
+    public final ResponseEntity<Object> handlePostingNotOwnedException(
+            PostingNotOwnedException ex, HttpServletRequest request
+    ) {
+        ErrorResponse error = new ErrorResponse("Posting Not Owned", List.of(ex.getLocalizedMessage()));
+        return redirect(ex.getOwnerUrl(), request, error);
+    }
+
     @ExceptionHandler(value = {
             InvalidCurrencyException.class,
-            InsufficientFundsException.class
+            InsufficientFundsException.class,
+            InvalidIdempotencyKeyException.class,
+            InvalidTransferException.class,
+            InvalidLsnException.class,
+            CrossShardRequestException.class
     })
     public final ResponseEntity<Object> handleInvalidInput(Exception ex) {
         List<String> details = new ArrayList<>();
@@ -37,6 +84,20 @@ public class BaseExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public final ResponseEntity<Object> handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        List<String> details = new ArrayList<>();
+        details.add(ex.getLocalizedMessage());
+        ErrorResponse error = new ErrorResponse("Idempotency Key Reused", details);
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+
+    @ExceptionHandler(IdempotencyKeyExpiredException.class)
+    public final ResponseEntity<Object> handleIdempotencyKeyExpiredException(IdempotencyKeyExpiredException ex) {
+        ErrorResponse error = new ErrorResponse("Idempotency Key Expired", List.of(ex.getLocalizedMessage()));
+        return ResponseEntity.status(HttpStatus.GONE).body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex) {
         List<String> details = new ArrayList<>();
@@ -69,4 +130,10 @@ public class BaseExceptionHandler {
         ErrorResponse error = new ErrorResponse("Server Error", new ArrayList<>());
         return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
     }
+
+    private static ResponseEntity<Object> redirect(String ownerUrl, HttpServletRequest request, ErrorResponse error) {
+        var location = ownerUrl + request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+        return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT).location(URI.create(location)).body(error);
+    }
 }
@@ -0,0 +1,14 @@
+package bank.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.Collection;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class CrossShardRequestException extends RuntimeException {
+
+    public CrossShardRequestException(Collection<Long> accountIds) {
+        super("Accounts are owned by different nodes: " + accountIds);
+    }
+}
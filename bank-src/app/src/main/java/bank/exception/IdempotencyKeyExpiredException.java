@@ -0,0 +1,12 @@
+package bank.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.GONE)
+public class IdempotencyKeyExpiredException extends RuntimeException {
+
+    public IdempotencyKeyExpiredException(String key) {
+        super("The transaction of idempotency key is no longer available: " + key);
+    }
+}
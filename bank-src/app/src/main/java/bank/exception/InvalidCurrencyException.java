@@ -10,4 +10,8 @@ public class InvalidCurrencyException extends RuntimeException {
         super("Invalid currency.");
     }
 
+    public InvalidCurrencyException(String message) {
+        super(message);
+    }
+
 }
@@ -0,0 +1,12 @@
+package bank.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.BAD_REQUEST)
+public class InvalidLsnException extends RuntimeException {
+
+    public InvalidLsnException(String lsn) {
+        super("Invalid log sequence number " + lsn + ", expected the form 16/B374D848.");
+    }
+}
@@ -0,0 +1,14 @@
+package bank.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+@ResponseStatus(value = HttpStatus.NOT_FOUND)
+public class PostingNotFoundException extends RuntimeException {
+
+    public PostingNotFoundException(UUID id) {
+        super("Unknown or expired posting: " + id);
+    }
+}
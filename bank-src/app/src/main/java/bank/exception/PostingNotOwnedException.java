@@ -0,0 +1,22 @@
+package bank.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+@Getter
+@ResponseStatus(value = HttpStatus.TEMPORARY_REDIRECT)
+public class PostingNotOwnedException extends RuntimeException {
+
+    /**
+     * Base url of the node that accepted the posting
+     */
+    private final String ownerUrl;
+
+    public PostingNotOwnedException(UUID id, String ownerUrl) {
+        super("Posting " + id + " was accepted by " + ownerUrl);
+        this.ownerUrl = ownerUrl;
+    }
+}
@@ -0,0 +1,12 @@
+package bank.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.TOO_MANY_REQUESTS)
+public class PostingQueueFullException extends RuntimeException {
+
+    public PostingQueueFullException() {
+        super("Too many transactions are waiting to be posted, try again later.");
+    }
+}
@@ -0,0 +1,13 @@
+package bank.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+public class PostingTimeoutException extends RuntimeException {
+
+    public PostingTimeoutException() {
+        super("The transaction was not confirmed in time and may still be posted, "
+                + "retry with the same Idempotency-Key to find out.");
+    }
+}
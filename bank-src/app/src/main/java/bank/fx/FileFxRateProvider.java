@@ -0,0 +1,54 @@
+package bank.fx;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Properties;
+
+/**
+ * Rates read from a properties file, e.g. maintained by a daily import.
+ *
+ * The file names the base currency as {@code base} and quotes every other currency as units per unit of the
+ * base currency, e.g. {@code USD=1.0843}. The file is read again on every load, so a replaced file is picked up
+ * by the next refresh.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.fx.enabled", havingValue = "true")
+public class FileFxRateProvider implements FxRateProvider {
+
+    static final String BASE_KEY = "base";
+
+    @Value("${bank.fx.rates-location:classpath:fx-rates.properties}")
+    Resource location;
+
+    @Override
+    public FxRates load() {
+        var properties = new Properties();
+        try (var reader = new InputStreamReader(location.getInputStream(), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read rates from " + location, e);
+        }
+
+        var base = properties.getProperty(BASE_KEY);
+        if (base == null) {
+            throw new IllegalStateException("No base currency in " + location);
+        }
+        var quotes = new HashMap<Currency, BigDecimal>();
+        for (var name : properties.stringPropertyNames()) {
+            if (!name.equals(BASE_KEY)) {
+                quotes.put(Currency.getInstance(name.trim()), new BigDecimal(properties.getProperty(name).trim()));
+            }
+        }
+        return new FxRates(Currency.getInstance(base.trim()), quotes);
+    }
+}
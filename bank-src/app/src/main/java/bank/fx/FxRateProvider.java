@@ -0,0 +1,13 @@
+package bank.fx;
+
+/**
+ * Source of foreign exchange rates
+ */
+public interface FxRateProvider {
+
+    /**
+     * Load the current rates. Called off the posting path, by {@link FxRateService} on refresh.
+     * @return rates
+     */
+    FxRates load();
+}
@@ -0,0 +1,100 @@
+package bank.fx;
+
+import bank.exception.InvalidCurrencyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.Currency;
+
+/**
+ * In-memory table of foreign exchange rates.
+ *
+ * The table is an immutable {@link FxRates} snapshot behind a volatile reference, replaced as a whole when the
+ * rates are refreshed from the {@link FxRateProvider}. Readers never lock and never do I/O, and a reader holding
+ * a snapshot sees one consistent set of rates. If a refresh fails, the previous rates stay in use.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.fx.enabled", havingValue = "true")
+public class FxRateService {
+
+    private static final Logger log = LoggerFactory.getLogger(FxRateService.class);
+
+    @Autowired
+    FxRateProvider fxRateProvider;
+
+    /**
+     * Convert transactions in a currency the account has no balance in
+     */
+    @Value("${bank.fx.auto-convert:false}")
+    boolean autoConvert;
+
+    /**
+     * Balances to convert into, in order of preference
+     */
+    @Value("${bank.fx.settlement-currencies:EUR,USD,GBP,SEK}")
+    Currency[] settlementCurrencies = new Currency[0];
+
+    private volatile FxRates rates;
+
+    @PostConstruct
+    void init() {
+        rates = fxRateProvider.load();
+    }
+
+    @Scheduled(
+            initialDelayString = "${bank.fx.refresh-interval-ms:60000}",
+            fixedDelayString = "${bank.fx.refresh-interval-ms:60000}"
+    )
+    void refresh() {
+        try {
+            rates = fxRateProvider.load();
+        } catch (RuntimeException e) {
+            log.error("Refreshing FX rates failed, keeping rates of base {}", rates.getBase(), e);
+        }
+    }
+
+    /**
+     * @return current rates, to be used for all conversions of one posting
+     */
+    public FxRates getRates() {
+        return rates;
+    }
+
+    public boolean isAutoConvert() {
+        return autoConvert;
+    }
+
+    /**
+     * @param currency transaction currency
+     * @return whether transactions in the currency can be converted into a balance
+     */
+    public boolean isConvertible(Currency currency) {
+        return autoConvert && rates.isQuoted(currency);
+    }
+
+    /**
+     * Choose the balance a transaction in a currency the account lacks is converted into
+     * @param rates rates of the posting
+     * @param currency transaction currency
+     * @param balanceCurrencies currencies of the balances of the account
+     * @return the most preferred settlement currency the account has a balance in
+     * @throws InvalidCurrencyException if the transaction cannot be converted into any balance
+     */
+    public Currency settlementCurrency(FxRates rates, Currency currency, Collection<Currency> balanceCurrencies) {
+        if (rates.isQuoted(currency)) {
+            for (var settlementCurrency : settlementCurrencies) {
+                if (balanceCurrencies.contains(settlementCurrency) && rates.isQuoted(settlementCurrency)) {
+                    return settlementCurrency;
+                }
+            }
+        }
+        throw new InvalidCurrencyException();
+    }
+}
@@ -0,0 +1,89 @@
+package bank.fx;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of foreign exchange rates.
+ *
+ * Rates are quoted as units of a currency per unit of the base currency. Cross rates between all pairs are
+ * derived once when the snapshot is built, so a conversion is a lookup and one multiplication. All arithmetic
+ * uses {@link #MATH_CONTEXT}, and converted amounts are rounded half even to the minor unit of their currency.
+ */
+public final class FxRates {
+
+    public static final MathContext MATH_CONTEXT = MathContext.DECIMAL64;
+
+    private final Currency base;
+
+    private final Map<Currency, Map<Currency, BigDecimal>> crossRates;
+
+    /**
+     * @param base base currency
+     * @param quotes units of every other currency per unit of the base currency
+     */
+    public FxRates(Currency base, Map<Currency, BigDecimal> quotes) {
+        var all = new HashMap<>(quotes);
+        all.put(base, BigDecimal.ONE);
+        for (var quote : all.entrySet()) {
+            if (quote.getValue().signum() <= 0) {
+                throw new IllegalArgumentException("Rate of " + quote.getKey() + " must be greater than 0");
+            }
+        }
+
+        var crossRates = new HashMap<Currency, Map<Currency, BigDecimal>>();
+        for (var from : all.entrySet()) {
+            var rates = new HashMap<Currency, BigDecimal>();
+            for (var to : all.entrySet()) {
+                rates.put(to.getKey(), to.getKey().equals(from.getKey())
+                        ? BigDecimal.ONE
+                        : to.getValue().divide(from.getValue(), MATH_CONTEXT));
+            }
+            crossRates.put(from.getKey(), Collections.unmodifiableMap(rates));
+        }
+        this.base = base;
+        this.crossRates = Collections.unmodifiableMap(crossRates);
+    }
+
+    public Currency getBase() {
+        return base;
+    }
+
+    /**
+     * @param currency currency
+     * @return whether the currency is quoted
+     */
+    public boolean isQuoted(Currency currency) {
+        return crossRates.containsKey(currency);
+    }
+
+    /**
+     * @param from source currency
+     * @param to target currency
+     * @return units of the target currency per unit of the source currency, null if either is not quoted
+     */
+    public BigDecimal rate(Currency from, Currency to) {
+        var rates = crossRates.get(from);
+        return rates != null ? rates.get(to) : null;
+    }
+
+    /**
+     * @param amount amount in the source currency
+     * @param from source currency
+     * @param to target currency
+     * @return amount in the target currency, rounded to its minor unit
+     * @throws IllegalArgumentException if either currency is not quoted
+     */
+    public BigDecimal convert(BigDecimal amount, Currency from, Currency to) {
+        var rate = rate(from, to);
+        if (rate == null) {
+            throw new IllegalArgumentException("No rate from " + from + " to " + to);
+        }
+        return amount.multiply(rate, MATH_CONTEXT).setScale(to.getDefaultFractionDigits(), RoundingMode.HALF_EVEN);
+    }
+}
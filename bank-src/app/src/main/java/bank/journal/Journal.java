@@ -0,0 +1,304 @@
+package bank.journal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of checksummed records in memory-mapped segment files.
+ *
+ * A record is its length, the CRC32C of its payload, and the payload. Records are addressed by their position in
+ * the journal, counted in bytes over all segments; a record never spans two segments, a segment is padded with
+ * zeros instead. Appended records become durable with {@link #force(long)}, which syncs every record appended so
+ * far, so that concurrent writers waiting for their records share one sync (group commit).
+ *
+ * On open, the journal is scanned up to the first torn or corrupt record of the last segment, and everything from
+ * there on is discarded.
+ */
+public class Journal implements Closeable {
+
+    static final int HEADER_SIZE = 8;
+
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+
+    private final int segmentSize;
+
+    /**
+     * Segments by the position they start at
+     */
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+
+    private final Object appendLock = new Object();
+
+    private final Object forceLock = new Object();
+
+    private final CRC32C appendChecksum = new CRC32C();
+
+    private MappedByteBuffer current;
+
+    private long currentStart;
+
+    private volatile long written;
+
+    private volatile long durable;
+
+    /**
+     * Open the journal in the directory, creating it if missing
+     * @param directory journal directory
+     * @param segmentSize size of a segment file in bytes
+     */
+    public Journal(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            var files = new TreeMap<Long, Path>();
+            try (var list = Files.list(directory)) {
+                list.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                        .forEach(path -> files.put(startOf(path), path));
+            }
+            for (var file : files.entrySet()) {
+                if (Files.size(file.getValue()) != segmentSize) {
+                    throw new IllegalStateException("Journal segment " + file.getValue() + " is not " + segmentSize + " bytes");
+                }
+                segments.put(file.getKey(), map(file.getValue()));
+            }
+            if (segments.isEmpty()) {
+                segments.put(0L, map(segmentPath(0)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        recover();
+    }
+
+    /**
+     * Append a record
+     * @param length payload length
+     * @param payload writes exactly length bytes of payload to the buffer it is passed
+     * @return position after the record
+     */
+    public long append(int length, Consumer<ByteBuffer> payload) {
+        if (length <= 0 || HEADER_SIZE + length > segmentSize) {
+            throw new IllegalArgumentException("Invalid record length " + length);
+        }
+        synchronized (appendLock) {
+            var offset = (int) (written - currentStart);
+            if (offset + HEADER_SIZE + length > segmentSize) {
+                roll();
+                offset = 0;
+            }
+
+            var buffer = current.duplicate();
+            buffer.position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + length);
+            payload.accept(buffer.slice());
+
+            buffer.position(offset + HEADER_SIZE);
+            appendChecksum.reset();
+            appendChecksum.update(buffer);
+            current.putInt(offset + 4, (int) appendChecksum.getValue());
+            // the length is written last, so that a reader never sees a record before its payload
+            current.putInt(offset, length);
+
+            written = currentStart + offset + HEADER_SIZE + length;
+            return written;
+        }
+    }
+
+    /**
+     * Make all records up to the position durable. Records appended by other writers in the meantime are synced
+     * along with them.
+     * @param position position after the last record to make durable
+     */
+    public void force(long position) {
+        if (durable >= position) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (durable >= position) {
+                return;
+            }
+            MappedByteBuffer segment;
+            long segmentStart;
+            long target;
+            synchronized (appendLock) {
+                segment = current;
+                segmentStart = currentStart;
+                target = written;
+            }
+            // earlier segments were forced when the journal rolled over
+            var from = (int) (Math.max(durable, segmentStart) - segmentStart);
+            segment.force(from, (int) (target - segmentStart) - from);
+            durable = target;
+        }
+    }
+
+    /**
+     * Pass the payload of every durable record from the position on to the handler
+     * @param position position of the first record
+     * @param maxRecords maximum number of records to read
+     * @param handler record handler, must not keep the buffer it is passed
+     * @return position after the last record read
+     */
+    public long read(long position, int maxRecords, Consumer<ByteBuffer> handler) {
+        var limit = durable;
+        var checksum = new CRC32C();
+        for (int records = 0; position < limit && records < maxRecords; ) {
+            var segment = segments.floorEntry(position);
+            if (segment == null) {
+                throw new IllegalStateException("Journal position " + position + " has been deleted");
+            }
+            var offset = (int) (position - segment.getKey());
+            var length = offset + HEADER_SIZE <= segmentSize ? segment.getValue().getInt(offset) : 0;
+            if (length == 0) {
+                position = segment.getKey() + segmentSize;
+                continue;
+            }
+
+            var payload = segment.getValue().duplicate();
+            payload.position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + length);
+            checksum.reset();
+            checksum.update(payload.duplicate());
+            if ((int) checksum.getValue() != segment.getValue().getInt(offset + 4)) {
+                throw new IllegalStateException("Corrupt journal record at position " + position);
+            }
+            handler.accept(payload.slice().asReadOnlyBuffer());
+
+            position += HEADER_SIZE + length;
+            records++;
+        }
+        return position;
+    }
+
+    /**
+     * Delete the segments that hold no record at or after the position
+     * @param position position of the first record still needed
+     */
+    public void deleteBefore(long position) {
+        synchronized (appendLock) {
+            for (var start : segments.headMap(currentStart).keySet()) {
+                if (start + segmentSize <= position) {
+                    segments.remove(start);
+                    try {
+                        Files.deleteIfExists(segmentPath(start));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return position after the last appended record
+     */
+    public long getWrittenPosition() {
+        return written;
+    }
+
+    /**
+     * @return position after the last durable record
+     */
+    public long getDurablePosition() {
+        return durable;
+    }
+
+    /**
+     * @return position of the first record still in the journal
+     */
+    public long getStartPosition() {
+        return segments.firstKey();
+    }
+
+    @Override
+    public void close() {
+        force(written);
+    }
+
+    private void roll() {
+        current.force();
+        currentStart += segmentSize;
+        try {
+            current = map(segmentPath(currentStart));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segments.put(currentStart, current);
+        // the padding of the last segment is durable, so the next sync only needs to cover the new segment
+        written = currentStart;
+    }
+
+    /**
+     * Find the end of the journal, and discard anything after it
+     */
+    private void recover() {
+        var checksum = new CRC32C();
+        for (Map.Entry<Long, MappedByteBuffer> segment : segments.entrySet()) {
+            var buffer = segment.getValue();
+            var last = segment.getKey().equals(segments.lastKey());
+            var offset = 0;
+            while (offset + HEADER_SIZE <= segmentSize) {
+                var length = buffer.getInt(offset);
+                if (length == 0) {
+                    break;
+                }
+                var valid = length > 0 && offset + HEADER_SIZE + length <= segmentSize;
+                if (valid) {
+                    var payload = buffer.duplicate();
+                    payload.position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + length);
+                    checksum.reset();
+                    checksum.update(payload);
+                    valid = (int) checksum.getValue() == buffer.getInt(offset + 4);
+                }
+                if (!valid) {
+                    if (!last) {
+                        throw new IllegalStateException("Corrupt journal record at position " + (segment.getKey() + offset));
+                    }
+                    // torn write of the last records before a crash, none of which was acknowledged
+                    for (int i = offset; i < segmentSize; i++) {
+                        buffer.put(i, (byte) 0);
+                    }
+                    buffer.force();
+                    break;
+                }
+                offset += HEADER_SIZE + length;
+            }
+            if (last) {
+                current = buffer;
+                currentStart = segment.getKey();
+                written = currentStart + offset;
+            }
+        }
+        durable = written;
+    }
+
+    private MappedByteBuffer map(Path path) throws IOException {
+        try (var channel = FileChannel.open(
+                path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+        )) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private Path segmentPath(long start) {
+        return directory.resolve(String.format("%020d%s", start, SUFFIX));
+    }
+
+    private static long startOf(Path path) {
+        var name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+}
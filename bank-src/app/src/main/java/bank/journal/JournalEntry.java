@@ -0,0 +1,103 @@
+package bank.journal;
+
+import bank.domain.Transaction;
+import bank.enums.TransactionDirection;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Currency;
+
+/**
+ * A posted transaction as recorded in the journal, together with the id of the balance it changed and the
+ * idempotency key it was posted with, if any
+ */
+@Value
+public class JournalEntry {
+
+    Long balanceId;
+    Transaction transaction;
+    String idempotencyKey;
+
+    private static final TransactionDirection[] DIRECTIONS = TransactionDirection.values();
+
+    /**
+     * @return binary encoding of the entry
+     */
+    public byte[] encode() {
+        var currency = transaction.getCurrency().getCurrencyCode().getBytes(StandardCharsets.US_ASCII);
+        var amount = transaction.getAmount().unscaledValue().toByteArray();
+        var balanceAfter = transaction.getBalanceAfter().unscaledValue().toByteArray();
+        var description = transaction.getDescription() == null
+                ? null
+                : transaction.getDescription().getBytes(StandardCharsets.UTF_8);
+        var key = idempotencyKey == null ? null : idempotencyKey.getBytes(StandardCharsets.UTF_8);
+
+        var buffer = ByteBuffer.allocate(8 + 8 + 8 + 1 + currency.length + 1
+                + 4 + 2 + amount.length + 4 + 2 + balanceAfter.length
+                + 8 + 4 + 4 + (description == null ? 0 : description.length)
+                + 4 + (key == null ? 0 : key.length));
+        buffer.putLong(transaction.getId())
+                .putLong(transaction.getAccountId())
+                .putLong(balanceId)
+                .put((byte) currency.length).put(currency)
+                .put((byte) transaction.getDirection().ordinal());
+        putDecimal(buffer, transaction.getAmount().scale(), amount);
+        putDecimal(buffer, transaction.getBalanceAfter().scale(), balanceAfter);
+        buffer.putLong(transaction.getCreatedAt().getEpochSecond())
+                .putInt(transaction.getCreatedAt().getNano());
+        putString(buffer, description);
+        putString(buffer, key);
+        return buffer.array();
+    }
+
+    /**
+     * @param buffer binary encoding of an entry
+     * @return decoded entry
+     */
+    public static JournalEntry decode(ByteBuffer buffer) {
+        var transaction = new Transaction()
+                .setId(buffer.getLong())
+                .setAccountId(buffer.getLong());
+        var balanceId = buffer.getLong();
+        transaction
+                .setCurrency(Currency.getInstance(new String(getBytes(buffer, buffer.get()), StandardCharsets.US_ASCII)))
+                .setDirection(DIRECTIONS[buffer.get()])
+                .setAmount(getDecimal(buffer))
+                .setBalanceAfter(getDecimal(buffer))
+                .setCreatedAt(Instant.ofEpochSecond(buffer.getLong(), buffer.getInt()));
+        transaction.setDescription(getString(buffer));
+        return new JournalEntry(balanceId, transaction, getString(buffer));
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] utf8) {
+        if (utf8 == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(utf8.length).put(utf8);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        var length = buffer.getInt();
+        return length < 0 ? null : new String(getBytes(buffer, length), StandardCharsets.UTF_8);
+    }
+
+    private static void putDecimal(ByteBuffer buffer, int scale, byte[] unscaled) {
+        buffer.putInt(scale).putShort((short) unscaled.length).put(unscaled);
+    }
+
+    private static BigDecimal getDecimal(ByteBuffer buffer) {
+        var scale = buffer.getInt();
+        return new BigDecimal(new BigInteger(getBytes(buffer, buffer.getShort())), scale);
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int length) {
+        var bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,466 @@
+package bank.journal;
+
+import bank.data.AccountMapper;
+import bank.data.IdempotencyKeyMapper;
+import bank.data.JournalProjectionMapper;
+import bank.data.TransactionMapper;
+import bank.domain.Account;
+import bank.domain.Transaction;
+import bank.dto.TransactionDto;
+import bank.dto.TransactionResult;
+import bank.enums.TransactionDirection;
+import bank.exception.AccountNotFoundException;
+import bank.exception.InsufficientFundsException;
+import bank.exception.InvalidCurrencyException;
+import bank.request.TransactionRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Event-sourced ledger, enabled with {@code bank.journal.enabled=true}.
+ *
+ * Every posted transaction is appended to a local {@link Journal}, and a request is answered once its transaction
+ * is durable there; the database is not written to on the posting path. Balances are derived state, held in memory
+ * and rebuilt on startup from the last snapshot and the journal after it. Balances of accounts the ledger has not
+ * seen yet are loaded from the database, which is only changed by {@link JournalProjector} in this mode.
+ *
+ * An idempotency key is recorded in the journal entry of its transaction, so a key is taken if and only if its
+ * transaction is durable. Keys of entries not yet projected are held in memory, and rebuilt from the journal on
+ * startup; projected keys are looked up in the database.
+ *
+ * Posting is serialized by a single lock, so the journal order is the order in which balances changed.
+ * The ledger assumes it is the only writer of balances, i.e. a single application instance.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.journal.enabled", havingValue = "true")
+public class JournalLedger {
+
+    private static final String SNAPSHOT_FILE = "snapshot";
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Autowired
+    AccountMapper accountMapper;
+
+    @Autowired
+    TransactionMapper transactionMapper;
+
+    @Autowired
+    JournalProjectionMapper journalProjectionMapper;
+
+    @Autowired
+    IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @Value("${bank.journal.directory:journal}")
+    String directory = "journal";
+
+    @Value("${bank.journal.segment-size:67108864}")
+    int segmentSize = 64 * 1024 * 1024;
+
+    @Value("${bank.journal.id-block-size:10000}")
+    int idBlockSize = 10_000;
+
+    Clock clock = Clock.systemUTC();
+
+    Journal journal;
+
+    private final Map<Long, Map<Currency, Slot>> accounts = new ConcurrentHashMap<>();
+
+    private final Map<String, Transaction> unprojectedKeys = new ConcurrentHashMap<>();
+
+    private final AtomicLong keyReleases = new AtomicLong();
+
+    private final Object lock = new Object();
+
+    private List<Long> reservedIds = List.of();
+
+    private int nextReservedId;
+
+    @PostConstruct
+    void init() {
+        journal = new Journal(Path.of(directory), segmentSize);
+        var position = loadSnapshot();
+
+        var replayed = new HashMap<Long, Map<Currency, Slot>>();
+        journal.read(position, Integer.MAX_VALUE, buffer -> {
+            var entry = JournalEntry.decode(buffer);
+            var transaction = entry.getTransaction();
+            var slots = accounts.get(transaction.getAccountId());
+            if (slots == null) {
+                slots = replayed.computeIfAbsent(transaction.getAccountId(), id -> new ConcurrentHashMap<>());
+            }
+            slots.put(transaction.getCurrency(), new Slot(entry.getBalanceId(), transaction.getBalanceAfter()));
+        });
+
+        // balances in currencies without entries since the snapshot have not changed since they were loaded
+        var accountIds = new ArrayList<>(replayed.keySet());
+        for (int i = 0; i < accountIds.size(); i += LOAD_BATCH_SIZE) {
+            var batch = accountIds.subList(i, Math.min(i + LOAD_BATCH_SIZE, accountIds.size()));
+            for (var account : accountMapper.selectAccounts(batch)) {
+                var slots = replayed.get(account.getId());
+                account.getBalances().forEach(balance -> slots.computeIfAbsent(
+                        balance.getCurrency(), currency -> new Slot(balance.getId(), balance.getAmount())
+                ));
+            }
+        }
+        accounts.putAll(replayed);
+
+        journal.read(journalProjectionMapper.selectPosition(), Integer.MAX_VALUE, buffer -> {
+            var entry = JournalEntry.decode(buffer);
+            if (entry.getIdempotencyKey() != null) {
+                unprojectedKeys.put(entry.getIdempotencyKey(), entry.getTransaction());
+            }
+        });
+    }
+
+    /**
+     * Post transactions. Requests are applied in order, a rejected request does not affect the others.
+     * Returns once all created transactions are durable in the journal.
+     * @param requests transaction requests
+     * @return result of every request, in request order
+     */
+    public List<TransactionResult> post(List<TransactionRequest> requests) {
+        var errors = new RuntimeException[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                load(requests.get(i).getAccountId());
+            } catch (AccountNotFoundException e) {
+                errors[i] = e;
+            }
+        }
+
+        var transactions = new ArrayList<Transaction>(requests.size());
+        long position;
+        synchronized (lock) {
+            var createdAt = Instant.now(clock).truncatedTo(ChronoUnit.MICROS);
+            for (int i = 0; i < requests.size(); i++) {
+                if (errors[i] != null) {
+                    continue;
+                }
+                try {
+                    transactions.add(append(requests.get(i), createdAt, null));
+                } catch (InvalidCurrencyException | InsufficientFundsException e) {
+                    errors[i] = e;
+                }
+            }
+            position = journal.getWrittenPosition();
+        }
+        journal.force(position);
+
+        var results = new ArrayList<TransactionResult>(requests.size());
+        var created = transactions.iterator();
+        for (var error : errors) {
+            results.add(error != null
+                    ? TransactionResult.rejected(error)
+                    : TransactionResult.created(TransactionDto.from(created.next())));
+        }
+        return results;
+    }
+
+    /**
+     * Post a transaction with an idempotency key, or find the transaction already posted with the key.
+     * Returns once the transaction is durable in the journal.
+     * @param request transaction request
+     * @param idempotencyKey idempotency key
+     * @return transaction posted with the key
+     * @throws AccountNotFoundException if the account does not exist
+     * @throws InvalidCurrencyException if the account has no balance in the currency
+     * @throws InsufficientFundsException if the balance is insufficient
+     */
+    public KeyedPosting post(TransactionRequest request, String idempotencyKey) {
+        var releases = keyReleases.get();
+        var projected = findProjected(idempotencyKey);
+        if (projected.isPresent()) {
+            return new KeyedPosting(TransactionDto.from(projected.get()), false);
+        }
+        load(request.getAccountId());
+
+        Transaction transaction;
+        var created = false;
+        long position;
+        synchronized (lock) {
+            transaction = unprojectedKeys.get(idempotencyKey);
+            // the key may have been projected and released since it was looked up
+            if (transaction == null && releases != keyReleases.get()) {
+                transaction = findProjected(idempotencyKey).orElse(null);
+            }
+            if (transaction == null) {
+                transaction = append(request, Instant.now(clock).truncatedTo(ChronoUnit.MICROS), idempotencyKey);
+                unprojectedKeys.put(idempotencyKey, transaction);
+                created = true;
+            }
+            position = journal.getWrittenPosition();
+        }
+        journal.force(position);
+        return new KeyedPosting(TransactionDto.from(transaction), created);
+    }
+
+    /**
+     * Forget idempotency keys whose transactions have been projected and committed, so they are found in the
+     * database from now on
+     * @param idempotencyKeys idempotency keys
+     */
+    public void releaseKeys(Collection<String> idempotencyKeys) {
+        keyReleases.incrementAndGet();
+        idempotencyKeys.forEach(unprojectedKeys::remove);
+    }
+
+    /**
+     * Replace the balances of an account loaded from the database with the balances of the ledger
+     * @param account account
+     */
+    public void overlay(Account account) {
+        var slots = accounts.get(account.getId());
+        if (slots == null) {
+            return;
+        }
+        account.getBalances().forEach(balance -> {
+            var slot = slots.get(balance.getCurrency());
+            if (slot != null) {
+                balance.setAmount(slot.amount);
+            }
+        });
+    }
+
+    /**
+     * Pass the durable journal entries from the position on to the handler
+     * @param position journal position of the first entry
+     * @param maxEntries maximum number of entries to read
+     * @param handler entry handler
+     * @return journal position after the last entry read
+     */
+    public long read(long position, int maxEntries, Consumer<JournalEntry> handler) {
+        return journal.read(position, maxEntries, buffer -> handler.accept(JournalEntry.decode(buffer)));
+    }
+
+    /**
+     * @return journal position after the last durable entry
+     */
+    public long getDurablePosition() {
+        return journal.getDurablePosition();
+    }
+
+    /**
+     * Write the balances to a snapshot, so that only the journal after it is replayed on startup, and delete the
+     * journal segments that are both snapshotted and projected
+     */
+    @Scheduled(
+            fixedDelayString = "${bank.journal.snapshot-interval-ms:60000}",
+            initialDelayString = "${bank.journal.snapshot-interval-ms:60000}"
+    )
+    public void snapshot() {
+        var balances = new HashMap<Long, Map<Currency, Slot>>();
+        long position;
+        synchronized (lock) {
+            position = journal.getWrittenPosition();
+            accounts.forEach((accountId, slots) -> {
+                var copies = new HashMap<Currency, Slot>();
+                slots.forEach((currency, slot) -> copies.put(currency, new Slot(slot.balanceId, slot.amount)));
+                balances.put(accountId, copies);
+            });
+        }
+        journal.force(position);
+        writeSnapshot(position, balances);
+        journal.deleteBefore(Math.min(position, journalProjectionMapper.selectPosition()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        journal.close();
+    }
+
+    private Optional<Transaction> findProjected(String idempotencyKey) {
+        return idempotencyKeyMapper.selectTransaction(idempotencyKey);
+    }
+
+    private Transaction append(TransactionRequest request, Instant createdAt, String idempotencyKey) {
+        var slot = accounts.get(request.getAccountId()).get(request.getCurrency());
+        if (slot == null) {
+            throw new InvalidCurrencyException();
+        }
+        var newAmount = slot.amount.add(
+                request.getDirection() == TransactionDirection.IN ? request.getAmount() : request.getAmount().negate()
+        );
+        if (newAmount.signum() < 0) {
+            throw new InsufficientFundsException();
+        }
+
+        var transaction = new Transaction()
+                .setId(nextId())
+                .setAccountId(request.getAccountId())
+                .setAmount(request.getAmount())
+                .setCurrency(request.getCurrency())
+                .setDirection(request.getDirection())
+                .setDescription(request.getDescription())
+                .setBalanceAfter(newAmount)
+                .setCreatedAt(createdAt);
+        var entry = new JournalEntry(slot.balanceId, transaction, idempotencyKey).encode();
+        journal.append(entry.length, buffer -> buffer.put(entry));
+        slot.amount = newAmount;
+        return transaction;
+    }
+
+    /**
+     * Ids are reserved from the transaction sequence in blocks, so that they do not collide with transactions
+     * created before the ledger was enabled
+     */
+    private long nextId() {
+        if (nextReservedId == reservedIds.size()) {
+            reservedIds = transactionMapper.reserveIds(idBlockSize);
+            nextReservedId = 0;
+        }
+        return reservedIds.get(nextReservedId++);
+    }
+
+    private void load(Long accountId) {
+        if (accounts.containsKey(accountId)) {
+            return;
+        }
+        var account = accountMapper.selectAccount(accountId).orElseThrow(() -> new AccountNotFoundException(accountId));
+        var slots = new ConcurrentHashMap<Currency, Slot>();
+        account.getBalances().forEach(balance ->
+                slots.put(balance.getCurrency(), new Slot(balance.getId(), balance.getAmount()))
+        );
+        accounts.putIfAbsent(accountId, slots);
+    }
+
+    private long loadSnapshot() {
+        var path = Path.of(directory, SNAPSHOT_FILE);
+        if (!Files.exists(path)) {
+            return journal.getStartPosition();
+        }
+        var checksum = new CRC32C();
+        try (var in = new DataInputStream(
+                new CheckedInputStream(new BufferedInputStream(Files.newInputStream(path)), checksum)
+        )) {
+            var position = in.readLong();
+            var count = in.readInt();
+            var balances = new HashMap<Long, Map<Currency, Slot>>();
+            for (int i = 0; i < count; i++) {
+                var accountId = in.readLong();
+                var balanceId = in.readLong();
+                var currency = Currency.getInstance(in.readUTF());
+                var scale = in.readInt();
+                var unscaled = new byte[in.readUnsignedShort()];
+                in.readFully(unscaled);
+                balances.computeIfAbsent(accountId, id -> new ConcurrentHashMap<>())
+                        .put(currency, new Slot(balanceId, new BigDecimal(new BigInteger(unscaled), scale)));
+            }
+            var expected = (int) checksum.getValue();
+            if (in.readInt() != expected) {
+                throw new IllegalStateException("Corrupt journal snapshot " + path);
+            }
+            accounts.putAll(balances);
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeSnapshot(long position, Map<Long, Map<Currency, Slot>> balances) {
+        var path = Path.of(directory, SNAPSHOT_FILE);
+        var temporary = Path.of(directory, SNAPSHOT_FILE + ".tmp");
+        var checksum = new CRC32C();
+        try (var out = new DataOutputStream(
+                new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)), checksum)
+        )) {
+            out.writeLong(position);
+            out.writeInt(balances.values().stream().mapToInt(Map::size).sum());
+            for (var account : balances.entrySet()) {
+                for (var balance : account.getValue().entrySet()) {
+                    var amount = balance.getValue().amount;
+                    var unscaled = amount.unscaledValue().toByteArray();
+                    out.writeLong(account.getKey());
+                    out.writeLong(balance.getValue().balanceId);
+                    out.writeUTF(balance.getKey().getCurrencyCode());
+                    out.writeInt(amount.scale());
+                    out.writeShort(unscaled.length);
+                    out.write(unscaled);
+                }
+            }
+            out.writeInt((int) checksum.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Transaction posted with an idempotency key, and whether it was posted by this request
+     */
+    public static final class KeyedPosting {
+        private final TransactionDto transaction;
+        private final boolean created;
+
+        KeyedPosting(TransactionDto transaction, boolean created) {
+            this.transaction = transaction;
+            this.created = created;
+        }
+
+        public TransactionDto getTransaction() {
+            return transaction;
+        }
+
+        public boolean isCreated() {
+            return created;
+        }
+    }
+
+    /**
+     * Balance of a single (account, currency) pair, changed under the ledger lock
+     */
+    private static final class Slot {
+        final Long balanceId;
+        volatile BigDecimal amount;
+
+        Slot(Long balanceId, BigDecimal amount) {
+            this.balanceId = balanceId;
+            this.amount = amount;
+        }
+    }
+}
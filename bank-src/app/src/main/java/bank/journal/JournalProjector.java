@@ -0,0 +1,166 @@
+package bank.journal;
+
+import bank.data.BalanceMapper;
+import bank.data.IdempotencyKeyMapper;
+import bank.data.JournalProjectionMapper;
+import bank.data.TransactionMapper;
+import bank.domain.BalanceChange;
+import bank.domain.Transaction;
+import bank.dto.TransactionDto;
+import bank.enums.TransactionDirection;
+import bank.messaging.EventPublisher;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Projection of the journal into the database.
+ *
+ * Copies journal entries to the transaction table in batches, in journal order, applies their net balance changes
+ * and publishes their events and idempotency keys. The journal position projected up to is stored in the same
+ * database transaction, so every entry is projected exactly once. The distance between the durable and the
+ * committed projected position is exposed in bytes as {@value #LAG_GAUGE_NAME}.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.journal.enabled", havingValue = "true")
+public class JournalProjector {
+
+    public static final String LAG_GAUGE_NAME = "bank.journal.projection.lag";
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Autowired
+    JournalLedger journalLedger;
+
+    @Autowired
+    JournalProjectionMapper journalProjectionMapper;
+
+    @Autowired
+    TransactionMapper transactionMapper;
+
+    @Autowired
+    BalanceMapper balanceMapper;
+
+    @Autowired
+    IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @Autowired
+    EventPublisher eventPublisher;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Value("${bank.journal.projection-batch-size:5000}")
+    int batchSize = 5000;
+
+    private volatile long projected;
+
+    @PostConstruct
+    void init() {
+        projected = journalProjectionMapper.selectPosition();
+        Gauge.builder(LAG_GAUGE_NAME, () -> journalLedger.getDurablePosition() - projected)
+                .description("Bytes of durable journal not yet projected into the database")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Project journal entries until the projection has caught up with the durable journal
+     */
+    @Scheduled(fixedDelayString = "${bank.journal.projection-interval-ms:20}")
+    public void project() {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer entries;
+        do {
+            entries = transactionTemplate.execute(status -> projectBatch());
+        } while (entries != null && entries == batchSize);
+    }
+
+    private int projectBatch() {
+        var position = journalProjectionMapper.selectPositionForUpdate();
+        var transactions = new ArrayList<Transaction>();
+        var keyed = new ArrayList<JournalEntry>();
+        var netChanges = new LinkedHashMap<Long, BigDecimal>();
+        var next = journalLedger.read(position, batchSize, entry -> {
+            var transaction = entry.getTransaction();
+            transactions.add(transaction);
+            if (entry.getIdempotencyKey() != null) {
+                keyed.add(entry);
+            }
+            netChanges.merge(
+                    entry.getBalanceId(),
+                    transaction.getDirection() == TransactionDirection.IN
+                            ? transaction.getAmount()
+                            : transaction.getAmount().negate(),
+                    BigDecimal::add
+            );
+        });
+        if (next == position) {
+            return 0;
+        }
+
+        for (int i = 0; i < transactions.size(); i += INSERT_BATCH_SIZE) {
+            transactionMapper.insertTransactionsWithIds(
+                    transactions.subList(i, Math.min(i + INSERT_BATCH_SIZE, transactions.size()))
+            );
+        }
+        var changes = toBalanceChanges(netChanges);
+        if (!changes.isEmpty()) {
+            balanceMapper.updateBalances(changes);
+        }
+        var transactionDtos = new ArrayList<TransactionDto>(transactions.size());
+        for (var transaction : transactions) {
+            transactionDtos.add(TransactionDto.from(transaction));
+        }
+        eventPublisher.publishAll("create-transaction", transactionDtos, TransactionDto::getAccountId);
+
+        if (!keyed.isEmpty()) {
+            idempotencyKeyMapper.insertKeys(keyed);
+            var keys = new ArrayList<String>(keyed.size());
+            keyed.forEach(entry -> keys.add(entry.getIdempotencyKey()));
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    journalLedger.releaseKeys(keys);
+                }
+            });
+        }
+
+        journalProjectionMapper.updatePosition(next);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                projected = next;
+            }
+        });
+        return transactions.size();
+    }
+
+    private static List<BalanceChange> toBalanceChanges(Map<Long, BigDecimal> netChanges) {
+        var changes = new ArrayList<BalanceChange>(netChanges.size());
+        netChanges.forEach((balanceId, change) -> {
+            if (change.signum() != 0) {
+                changes.add(new BalanceChange(balanceId, change));
+            }
+        });
+        return changes;
+    }
+}
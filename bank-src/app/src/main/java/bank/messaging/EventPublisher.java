@@ -0,0 +1,100 @@
+package bank.messaging;
+
+import bank.configuration.RabbitMqConf;
+import bank.data.OutboxMapper;
+import bank.domain.OutboxMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Event publisher.
+ *
+ * Events are not sent to the broker directly but written to the outbox in the transaction of the caller,
+ * so that an event is published if and only if the change it describes is committed.
+ * {@link OutboxRelay} takes care of the actual publishing.
+ *
+ * The events of an account are published in commit order as long as its transactions are serialized by the lock of
+ * its balance rows. With the {@link bank.engine.BalanceEngine} no such lock is taken: transactions of an account
+ * commit concurrently, and their events are published in the order they commit, which need not be the order of
+ * their transaction ids or of their {@code balanceAfter}.
+ */
+@Component
+public class EventPublisher {
+
+    public static final String TIMER_NAME = "bank.outbox.write";
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
+    @Autowired
+    private OutboxMapper outboxMapper;
+
+    @Autowired
+    private MessageConverter messageConverter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Publish an event to the bank exchange
+     * @param routingKey routing key
+     * @param accountId id of the account the event belongs to
+     * @param event event payload
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String routingKey, Long accountId, Object event) {
+        var sample = Timer.start(meterRegistry);
+        outboxMapper.insertMessage(toOutboxMessage(routingKey, accountId, event));
+        sample.stop(timer(routingKey));
+    }
+
+    /**
+     * Publish events to the bank exchange, in list order
+     * @param routingKey routing key
+     * @param events event payloads
+     * @param accountId function returning the id of the account an event belongs to
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public <T> void publishAll(String routingKey, List<T> events, Function<T, Long> accountId) {
+        var sample = Timer.start(meterRegistry);
+        var messages = new ArrayList<OutboxMessage>(events.size());
+        for (var event : events) {
+            messages.add(toOutboxMessage(routingKey, accountId.apply(event), event));
+        }
+        for (int i = 0; i < messages.size(); i += INSERT_BATCH_SIZE) {
+            outboxMapper.insertMessages(messages.subList(i, Math.min(i + INSERT_BATCH_SIZE, messages.size())));
+        }
+        sample.stop(timer(routingKey));
+    }
+
+    private Timer timer(String routingKey) {
+        return Timer.builder(TIMER_NAME)
+                .description("Latency of converting events and writing them to the outbox")
+                .tag("routing.key", routingKey)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private OutboxMessage toOutboxMessage(String routingKey, Long accountId, Object event) {
+        var message = messageConverter.toMessage(event, new MessageProperties());
+        var properties = message.getMessageProperties();
+
+        return new OutboxMessage()
+                .setAccountId(accountId)
+                .setExchange(RabbitMqConf.EXCHANGE_NAME)
+                .setRoutingKey(routingKey)
+                .setContentType(properties.getContentType())
+                .setTypeId(properties.getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME))
+                .setPayload(message.getBody());
+    }
+}
@@ -0,0 +1,127 @@
+package bank.messaging;
+
+import bank.data.OutboxMapper;
+import bank.domain.OutboxMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+
+import java.util.stream.Collectors;
+
+/**
+ * Outbox relay.
+ *
+ * Drains the outbox in batches, in insertion order, and publishes the messages with publisher confirms.
+ * A batch is removed from the outbox only after the broker has confirmed all of its messages, so delivery
+ * is at least once. A database advisory lock ensures only one relay in the cluster drains the outbox at a
+ * time, which keeps the messages of every account in order.
+ *
+ * Publishing a batch, i.e. sending it and waiting for the confirms, is timed in {@value #TIMER_NAME}.
+ */
+@Component
+public class OutboxRelay {
+
+    public static final String TIMER_NAME = "bank.outbox.publish";
+
+    @Autowired
+    private OutboxMapper outboxMapper;
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${bank.outbox.batch-size:500}")
+    private int batchSize;
+
+    @Value("${bank.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeout;
+
+    private Counter publishedMessages;
+
+    @PostConstruct
+    void init() {
+        publishedMessages = Counter.builder("bank.outbox.published")
+                .description("Messages published and confirmed by the broker")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publish messages from the outbox until it is empty
+     */
+    @Scheduled(
+            fixedDelayString = "${bank.outbox.relay-interval-ms:100}",
+            initialDelayString = "${bank.outbox.relay-interval-ms:100}"
+    )
+    public void relay() {
+        var transactionTemplate = new TransactionTemplate(transactionManager);
+        Integer relayed;
+        do {
+            relayed = transactionTemplate.execute(status -> relayBatch());
+        } while (relayed != null && relayed == batchSize);
+    }
+
+    private int relayBatch() {
+        if (!outboxMapper.tryLockRelay()) {
+            return 0;
+        }
+
+        var messages = outboxMapper.selectMessages(batchSize);
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        var sample = Timer.start(meterRegistry);
+        try {
+            rabbitTemplate.invoke(operations -> {
+                messages.forEach(message -> operations.send(message.getExchange(), message.getRoutingKey(), toMessage(message)));
+                operations.waitForConfirmsOrDie(confirmTimeout);
+                return null;
+            });
+        } catch (RuntimeException e) {
+            sample.stop(timer("error"));
+            throw e;
+        }
+        sample.stop(timer("success"));
+        publishedMessages.increment(messages.size());
+
+        outboxMapper.deleteMessages(messages.stream().map(OutboxMessage::getId).collect(Collectors.toList()));
+
+        return messages.size();
+    }
+
+    private Timer timer(String outcome) {
+        return Timer.builder(TIMER_NAME)
+                .description("Latency of publishing an outbox batch, including broker confirms")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Message toMessage(OutboxMessage message) {
+        var properties = new MessageProperties();
+        properties.setContentType(message.getContentType());
+        properties.setContentLength(message.getPayload().length);
+        properties.setDeliveryMode(MessageProperties.DEFAULT_DELIVERY_MODE);
+        if (message.getTypeId() != null) {
+            properties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, message.getTypeId());
+        }
+        return new Message(message.getPayload(), properties);
+    }
+}
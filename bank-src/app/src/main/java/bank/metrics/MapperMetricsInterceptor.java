@@ -0,0 +1,119 @@
+package bank.metrics;
+
+import bank.domain.Balance;
+import bank.domain.Transaction;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every mapper statement.
+ *
+ * Records the {@value #TIMER_NAME} timer with a percentile histogram, tagged by mapper, operation (the mapper
+ * method), currency and outcome. The currency is taken from the transactions, balances or currency among the statement
+ * parameters: {@value #NO_CURRENCY} if there are none, {@value #MIXED_CURRENCIES} for a batch of several.
+ * For cursor statements only opening the cursor is timed.
+ */
+@Component
+@Intercepts({
+        @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class}),
+        @Signature(type = Executor.class, method = "query",
+                args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class}),
+        @Signature(type = Executor.class, method = "queryCursor",
+                args = {MappedStatement.class, Object.class, RowBounds.class})
+})
+public class MapperMetricsInterceptor implements Interceptor {
+
+    public static final String TIMER_NAME = "bank.mapper";
+    public static final String NO_CURRENCY = "none";
+    public static final String MIXED_CURRENCIES = "mixed";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        var statement = (MappedStatement) invocation.getArgs()[0];
+        var currency = currencyOf(invocation.getArgs()[1]);
+        var start = System.nanoTime();
+        try {
+            var result = invocation.proceed();
+            successTimers.computeIfAbsent(statement.getId() + ':' + currency,
+                            key -> timer(statement.getId(), currency, "success"))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(statement.getId(), currency, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    static String currencyOf(Object parameter) {
+        if (parameter instanceof Transaction transaction) {
+            return codeOf(transaction.getCurrency());
+        }
+        if (parameter instanceof Balance balance) {
+            return codeOf(balance.getCurrency());
+        }
+        if (parameter instanceof Currency currency) {
+            return currency.getCurrencyCode();
+        }
+        if (parameter instanceof Map<?, ?> parameters) {
+            // named parameters, a parameter may be present under several names
+            return currencyOf(parameters.values());
+        }
+        if (parameter instanceof Collection<?> parameters) {
+            var found = NO_CURRENCY;
+            for (var element : parameters) {
+                var currency = currencyOf(element);
+                if (NO_CURRENCY.equals(currency) || currency.equals(found)) {
+                    continue;
+                }
+                if (!NO_CURRENCY.equals(found)) {
+                    return MIXED_CURRENCIES;
+                }
+                found = currency;
+            }
+            return found;
+        }
+        return NO_CURRENCY;
+    }
+
+    private static String codeOf(Currency currency) {
+        return currency == null ? NO_CURRENCY : currency.getCurrencyCode();
+    }
+
+    private Timer timer(String statementId, String currency, String outcome) {
+        var separator = statementId.lastIndexOf('.');
+        var mapper = statementId.substring(statementId.lastIndexOf('.', separator - 1) + 1, separator);
+        return Timer.builder(TIMER_NAME)
+                .description("Mapper statement latency")
+                .tag("mapper", mapper)
+                .tag("operation", statementId.substring(separator + 1))
+                .tag("currency", currency)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
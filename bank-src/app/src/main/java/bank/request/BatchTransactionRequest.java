@@ -0,0 +1,22 @@
+package bank.request;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * Request object for creating transactions in bulk
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class BatchTransactionRequest {
+    @NotEmpty(message = "must have at least one transaction")
+    @Size(max = 10000, message = "must have at most 10000 transactions")
+    List<@Valid TransactionRequest> transactions;
+}
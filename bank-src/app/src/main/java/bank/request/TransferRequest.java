@@ -0,0 +1,41 @@
+package bank.request;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * Request object for moving money from a balance of one account to a balance of another
+ */
+@Data
+@NoArgsConstructor
+@Accessors(chain = true)
+public class TransferRequest {
+    @NotNull(message = "source account ID must not be null")
+    Long fromAccountId;
+    @NotNull(message = "destination account ID must not be null")
+    Long toAccountId;
+    @NotNull(message = "amount must not be null")
+    @Positive(message = "amount must be greater than 0")
+    BigDecimal amount;
+    @NotNull(message = "currency must not be null")
+    Currency currency;
+    /**
+     * Currency credited to the destination account, the debited currency if not given
+     */
+    Currency toCurrency;
+    /**
+     * Units of the credited currency per unit of the debited currency, the current FX rate if not given.
+     * Only accepted within {@code bank.fx.rate-tolerance} of the current rate.
+     */
+    @Positive(message = "rate must be greater than 0")
+    BigDecimal rate;
+    @NotEmpty(message = "description must not be empty")
+    String description;
+}
@@ -1,19 +1,28 @@
 package bank.service;
 
+import bank.cache.AccountCache;
 import bank.configuration.BankConf;
-import bank.configuration.RabbitMqConf;
 import bank.domain.Account;
 import bank.domain.Balance;
 import bank.dto.AccountDto;
+import bank.engine.BalanceEngine;
 import bank.exception.AccountNotFoundException;
 import bank.exception.InvalidCurrencyException;
+import bank.journal.JournalLedger;
 import bank.data.AccountMapper;
 import bank.data.BalanceMapper;
+import bank.data.ReplicaRoutingDataSource;
+import bank.messaging.EventPublisher;
 import bank.request.CreateAccountRequest;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import bank.sharding.ShardRouter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
 
 /**
@@ -29,17 +38,45 @@ public class AccountService {
     BalanceMapper balanceMapper;
 
     @Autowired
-    RabbitTemplate rabbitTemplate;
+    EventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    BalanceEngine balanceEngine;
+
+    @Autowired(required = false)
+    AccountCache accountCache;
+
+    @Autowired(required = false)
+    JournalLedger journalLedger;
+
+    @Autowired(required = false)
+    ShardRouter shardRouter;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readOnly;
+
+    @PostConstruct
+    void init() {
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+    }
 
     /**
      * Create new account
      * @param request account creation request
      * @return created account dto
      */
+    @Transactional
     public AccountDto createAccount(CreateAccountRequest request) {
         var account = new Account()
                 .setCustomerId(request.getCustomerId())
                 .setCountry(request.getCountry());
+        if (shardRouter != null) {
+            account.setId(shardRouter.allocateId(accountMapper::selectNextAccountId));
+        }
         accountMapper.insertAccount(account);
 
         if (!BankConf.ALLOWED_CURRENCIES.containsAll(request.getCurrencies())) {
@@ -56,19 +93,38 @@ public class AccountService {
 
         var accountDto = AccountDto.from(account);
 
-        rabbitTemplate.convertAndSend(RabbitMqConf.EXCHANGE_NAME, "create-account", accountDto);
+        eventPublisher.publish("create-account", account.getId(), accountDto);
 
-        return AccountDto.from(account);
+        if (accountCache != null) {
+            accountCache.invalidate(account.getId());
+        }
+
+        return accountDto;
     }
 
     /**
-     * Find account by account id
+     * Find account by account id.
+     * Cache misses are loaded from the primary database, so the cache never holds an account older than a replica
+     * lagged behind. Without the cache, or when the caller requires a log sequence number, the account is read in
+     * a read-only scope, which may be served by a replica.
      * @param id account id
      * @return account dto
      */
     public AccountDto find(Long id) {
-        return AccountDto.from(
-                accountMapper.selectAccount(id).orElseThrow(() -> new AccountNotFoundException(id))
-        );
+        if (accountCache != null && !ReplicaRoutingDataSource.isLsnRequired()) {
+            return accountCache.get(id, this::load);
+        }
+        return readOnly.execute(status -> load(id));
+    }
+
+    private AccountDto load(Long id) {
+        var account = accountMapper.selectAccount(id).orElseThrow(() -> new AccountNotFoundException(id));
+        if (balanceEngine != null) {
+            balanceEngine.overlay(account);
+        }
+        if (journalLedger != null) {
+            journalLedger.overlay(account);
+        }
+        return AccountDto.from(account);
     }
 }
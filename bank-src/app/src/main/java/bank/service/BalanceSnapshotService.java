@@ -0,0 +1,99 @@
+package bank.service;
+
+import bank.data.BalanceSnapshotMapper;
+import bank.dto.AccountBalanceDto;
+import bank.dto.BalanceDto;
+import bank.exception.AccountNotFoundException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+/**
+ * Historical balances.
+ *
+ * A scheduled job materializes end-of-day balances per account and currency, one UTC day at a time, for every day
+ * that has transactions. A day is snapshotted once it has been over for the settle period, so that transactions
+ * created before midnight but committed after it are usually included. A transaction committed after its day has
+ * been snapshotted moves the watermark back to the day before, see V7__balance_snapshot_late_transactions.sql, so
+ * that the next run recomputes the snapshots from its day on. The balance at a point in time is the nearest
+ * snapshot up to the watermark before its day plus the transactions since, which is at most the transactions after
+ * the last snapshotted day, however long the history of the account.
+ */
+@Service
+public class BalanceSnapshotService {
+
+    @Autowired
+    BalanceSnapshotMapper balanceSnapshotMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Value("${bank.balance-snapshots.settle-ms:600000}")
+    long settleMillis = 600_000;
+
+    @Value("${bank.balance-snapshots.max-days-per-run:31}")
+    int maxDaysPerRun = 31;
+
+    Clock clock = Clock.systemUTC();
+
+    /**
+     * Find the balances of an account at a point in time
+     * @param accountId account id
+     * @param at point in time, exclusive
+     * @return balances of the account at the point in time
+     */
+    @Transactional(readOnly = true)
+    public AccountBalanceDto findBalancesAt(Long accountId, Instant at) {
+        var balances = balanceSnapshotMapper.selectBalancesAt(accountId, at);
+        if (balances.isEmpty()) {
+            throw new AccountNotFoundException(accountId);
+        }
+        return new AccountBalanceDto(
+                accountId,
+                at,
+                BalanceDto.from(balances)
+        );
+    }
+
+    /**
+     * Snapshot the days that have settled since the last run, at most max-days-per-run of them
+     */
+    @Scheduled(fixedDelayString = "${bank.balance-snapshots.interval-ms:600000}")
+    public void snapshot() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            if (balanceSnapshotMapper.tryLockSnapshots()) {
+                snapshotSettledDays();
+            }
+        });
+    }
+
+    private void snapshotSettledDays() {
+        var lastSettledDay = LocalDate.ofInstant(clock.instant().minus(Duration.ofMillis(settleMillis)), ZoneOffset.UTC)
+                .minusDays(1);
+        var watermark = balanceSnapshotMapper.selectWatermark();
+
+        var day = watermark;
+        for (int i = 0; i < maxDaysPerRun && day.isBefore(lastSettledDay); i++) {
+            day = day.plusDays(1);
+            balanceSnapshotMapper.insertSnapshots(day, start(day), start(day.plusDays(1)));
+        }
+
+        if (!day.equals(watermark)) {
+            balanceSnapshotMapper.updateWatermark(day);
+        }
+    }
+
+    private static Instant start(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,134 @@
+package bank.service;
+
+import bank.data.IdempotencyKeyMapper;
+import bank.dto.TransactionDto;
+import bank.engine.PostingLanes;
+import bank.exception.IdempotencyKeyReusedException;
+import bank.exception.InvalidIdempotencyKeyException;
+import bank.journal.JournalLedger;
+import bank.request.TransactionRequest;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Idempotent transaction creation.
+ *
+ * An idempotency key is recorded in the database transaction that posts the transaction, so a key is taken if and
+ * only if its transaction is committed, see {@link TransactionService#postTransactions(List, List)}. With posting
+ * lanes enabled, that is the batch transaction of the lane of the account. Concurrent requests with the same key are
+ * serialized by the primary key of the key table, and all but the first are answered with the transaction of the
+ * first. Recently used keys are kept in a bounded in-memory cache, so most retries are answered without a database
+ * round trip.
+ *
+ * With the journal enabled, the key is recorded in the journal entry of its transaction instead, see
+ * {@link JournalLedger#post(TransactionRequest, String)}.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    TransactionService transactionService;
+
+    @Autowired
+    IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    JournalLedger journalLedger;
+
+    @Autowired(required = false)
+    PostingLanes postingLanes;
+
+    @Value("${bank.idempotency.cache-size:100000}")
+    long cacheSize = 100_000;
+
+    @Value("${bank.idempotency.retention-hours:24}")
+    long retentionHours = 24;
+
+    Cache<String, TransactionDto> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofHours(retentionHours))
+                .recordStats()
+                .build();
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+        }
+    }
+
+    /**
+     * Create new transaction, or return the transaction already created with the idempotency key.
+     * This is the posting path of single requests, synchronous and asynchronous: through the posting lanes if
+     * enabled, otherwise through {@link TransactionService}.
+     * @param request transaction request
+     * @param idempotencyKey idempotency key, null for a request without one
+     * @return transaction dto
+     */
+    public TransactionDto createTransaction(TransactionRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return postingLanes != null ? postingLanes.post(request) : transactionService.createTransaction(request);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException();
+        }
+
+        var transaction = cache.getIfPresent(idempotencyKey);
+        if (transaction == null) {
+            if (journalLedger != null) {
+                transaction = transactionService.createJournaledTransaction(request, idempotencyKey);
+            } else if (postingLanes != null) {
+                transaction = postingLanes.post(request, idempotencyKey);
+            } else {
+                transaction = transactionService.postTransactions(List.of(request), List.of(idempotencyKey))
+                        .get(0).getOrThrow();
+            }
+            cache.put(idempotencyKey, transaction);
+        }
+
+        if (!isSameRequest(transaction, request)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+        return transaction;
+    }
+
+    /**
+     * Delete idempotency keys older than the retention period
+     */
+    @Scheduled(fixedDelayString = "${bank.idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        idempotencyKeyMapper.deleteKeysCreatedBefore(LocalDateTime.now().minusHours(retentionHours));
+    }
+
+    /**
+     * A transaction converted into another currency on posting is compared by its requested amount and currency
+     */
+    private static boolean isSameRequest(TransactionDto transaction, TransactionRequest request) {
+        var converted = transaction.getOriginalCurrency() != null;
+        var amount = converted ? transaction.getOriginalAmount() : transaction.getAmount();
+        var currency = converted ? transaction.getOriginalCurrency() : transaction.getCurrency();
+        return transaction.getAccountId().equals(request.getAccountId())
+                && amount.compareTo(request.getAmount()) == 0
+                && currency.equals(request.getCurrency())
+                && transaction.getDirection() == request.getDirection()
+                && Objects.equals(transaction.getDescription(), request.getDescription());
+    }
+}
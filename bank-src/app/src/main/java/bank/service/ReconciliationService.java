@@ -0,0 +1,406 @@
+package bank.service;
+
+import bank.data.BalanceSnapshotMapper;
+import bank.data.ReconciliationMapper;
+import bank.domain.Account;
+import bank.dto.DiscrepancyDto;
+import bank.dto.ReconciliationReportDto;
+import bank.engine.BalanceEngine;
+import bank.enums.TransactionDirection;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Reconciliation of stored balances with the transaction history.
+ *
+ * The account id space is split in halves with fork/join until a range has at most {@code chunk-accounts} ids.
+ * Every range is reconciled in a read-only repeatable read transaction of its own, so balances and transactions are
+ * read from one snapshot: transactions are streamed in posting order per account and summed per currency, checking
+ * the stored balance after of every transaction on the way, and the sums are compared with the balances. Only the
+ * running sums of the accounts of a range are held in memory, never a history.
+ *
+ * With a positive {@code bank.transaction-partitions.retention-months}, transactions of expired months are archived
+ * out of the transaction table, so every balance starts from its latest end-of-day snapshot before the oldest
+ * retained month and only the transactions since are summed.
+ *
+ * With the balance engine enabled, transaction ids do not follow the order of balance changes and balance after is
+ * the balance as seen by each transaction, so balance after is not checked and the report says so. The balances of
+ * the accounts the engine holds lag behind by the changes not yet written through, so these are added to them. An
+ * account whose balances changed while its range was reconciled cannot be compared with the snapshot and is reported
+ * as skipped.
+ *
+ * Scheduled runs are handed off to a thread of their own, so they do not hold up the other scheduled jobs.
+ */
+@Service
+@ConditionalOnProperty(name = "bank.reconciliation.enabled", havingValue = "true")
+public class ReconciliationService {
+
+    public static final String DISCREPANCIES_GAUGE_NAME = "bank.reconciliation.discrepancies";
+
+    private static final Logger log = LoggerFactory.getLogger(ReconciliationService.class);
+
+    @Autowired
+    ReconciliationMapper reconciliationMapper;
+
+    @Autowired
+    BalanceSnapshotMapper balanceSnapshotMapper;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired(required = false)
+    BalanceEngine balanceEngine;
+
+    @Autowired(required = false)
+    MeterRegistry meterRegistry;
+
+    /**
+     * Ranges reconciled at once, each holding a database connection
+     */
+    @Value("${bank.reconciliation.parallelism:4}")
+    int parallelism = 4;
+
+    @Value("${bank.reconciliation.chunk-accounts:1000}")
+    int chunkAccounts = 1000;
+
+    @Value("${bank.reconciliation.max-reported:1000}")
+    int maxReported = 1000;
+
+    @Value("${bank.transaction-partitions.retention-months:0}")
+    int retentionMonths = 0;
+
+    Clock clock = Clock.systemUTC();
+
+    private ForkJoinPool pool;
+
+    private ExecutorService runner;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private TransactionTemplate snapshotTemplate;
+
+    private volatile ReconciliationReportDto lastReport;
+
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism);
+        runner = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "reconciliation");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshotTemplate = new TransactionTemplate(transactionManager);
+        snapshotTemplate.setReadOnly(true);
+        snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        if (meterRegistry != null) {
+            Gauge.builder(DISCREPANCIES_GAUGE_NAME, () -> lastReport != null ? lastReport.getDiscrepancyCount() : 0)
+                    .description("Discrepancies found by the last reconciliation")
+                    .register(meterRegistry);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        runner.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Start reconciling all accounts on the reconciliation thread, unless a run is still going on
+     */
+    @Scheduled(
+            initialDelayString = "${bank.reconciliation.initial-delay-ms:3600000}",
+            fixedDelayString = "${bank.reconciliation.interval-ms:86400000}"
+    )
+    public void startReconcileAll() {
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Previous reconciliation still running, skipping this one");
+            return;
+        }
+        runner.execute(() -> {
+            try {
+                reconcileAll();
+            } catch (RuntimeException e) {
+                log.error("Reconciliation failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    /**
+     * Reconcile all accounts
+     * @return report of the reconciliation
+     */
+    public ReconciliationReportDto reconcileAll() {
+        var maxAccountId = reconciliationMapper.selectMaxAccountId();
+        return reconcile(1, maxAccountId != null ? maxAccountId + 1 : 1);
+    }
+
+    /**
+     * Reconcile a range of accounts
+     * @param fromAccountId first account id, inclusive
+     * @param toAccountId last account id, exclusive
+     * @return report of the reconciliation
+     */
+    public ReconciliationReportDto reconcile(long fromAccountId, long toAccountId) {
+        var startedAt = clock.instant();
+        var tally = pool.invoke(new RangeTask(fromAccountId, toAccountId, historyStart(startedAt)));
+        var report = new ReconciliationReportDto(
+                fromAccountId,
+                toAccountId,
+                startedAt,
+                clock.instant(),
+                tally.accounts,
+                tally.transactions,
+                tally.skippedAccounts,
+                balanceEngine == null,
+                tally.discrepancyCount,
+                tally.discrepancies
+        );
+        lastReport = report;
+
+        var duration = Duration.between(report.getStartedAt(), report.getFinishedAt());
+        if (report.getSkippedAccounts() > 0) {
+            log.warn("Skipped {} accounts whose balances changed while reconciled", report.getSkippedAccounts());
+        }
+        if (report.isConsistent()) {
+            log.info("Reconciled {} accounts with {} transactions in {}, no discrepancies",
+                    report.getAccounts(), report.getTransactions(), duration);
+        } else {
+            log.warn("Reconciled {} accounts with {} transactions in {}, {} discrepancies",
+                    report.getAccounts(), report.getTransactions(), duration, report.getDiscrepancyCount());
+            report.getDiscrepancies().forEach(discrepancy -> log.warn("Discrepancy {}", discrepancy));
+        }
+        return report;
+    }
+
+    /**
+     * @return report of the last reconciliation, empty if none ran yet
+     */
+    public Optional<ReconciliationReportDto> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    /**
+     * @return start of the transaction history still in the transaction table, null if none has been archived
+     */
+    private Instant historyStart(Instant now) {
+        if (retentionMonths <= 0) {
+            return null;
+        }
+        var oldestRetainedMonth = YearMonth.from(now.atZone(ZoneOffset.UTC)).minusMonths(retentionMonths);
+        var historyStart = oldestRetainedMonth.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+        var watermark = balanceSnapshotMapper.selectWatermark();
+        if (watermark.isBefore(oldestRetainedMonth.atDay(1).minusDays(1))) {
+            throw new IllegalStateException("Balance snapshots up to " + watermark
+                    + " do not cover the archived transactions before " + historyStart);
+        }
+        return historyStart;
+    }
+
+    private Tally reconcileRange(long fromAccountId, long toAccountId, Instant historyStart) {
+        // taken before the snapshot, so that an account with the same stamp after reading had no change in between
+        var stamps = engineStamps(fromAccountId, toAccountId);
+        return snapshotTemplate.execute(status -> {
+            var tally = new Tally(maxReported);
+            var accounts = reconciliationMapper.selectAccountsInRange(fromAccountId, toAccountId);
+            var sums = openingBalances(fromAccountId, toAccountId, historyStart);
+            sumTransactions(fromAccountId, toAccountId, historyStart, sums, tally);
+            for (var account : accounts) {
+                if (balanceEngine != null) {
+                    var unflushed = balanceEngine.unflushed(account.getId(), stamps.getOrDefault(account.getId(), 0L));
+                    if (unflushed.isEmpty()) {
+                        tally.skippedAccounts++;
+                        continue;
+                    }
+                    account.getBalances().forEach(balance -> balance.setAmount(balance.getAmount()
+                            .add(unflushed.get().getOrDefault(balance.getCurrency(), BigDecimal.ZERO))));
+                }
+                compareBalances(account, sums.getOrDefault(account.getId(), Map.of()), tally);
+            }
+            tally.accounts = accounts.size();
+            return tally;
+        });
+    }
+
+    /**
+     * @return stamp of every account in the range the balance engine holds, empty without the engine
+     */
+    private Map<Long, Long> engineStamps(long fromAccountId, long toAccountId) {
+        var stamps = new HashMap<Long, Long>();
+        if (balanceEngine == null) {
+            return stamps;
+        }
+        for (long accountId = fromAccountId; accountId < toAccountId; accountId++) {
+            var stamp = balanceEngine.stamp(accountId);
+            if (stamp != 0) {
+                stamps.put(accountId, stamp);
+            }
+        }
+        return stamps;
+    }
+
+    /**
+     * @return balance of every account and currency in the range before the history start, empty if there is none
+     */
+    private Map<Long, Map<Currency, BigDecimal>> openingBalances(long fromAccountId, long toAccountId,
+                                                                 Instant historyStart) {
+        var balances = new HashMap<Long, Map<Currency, BigDecimal>>();
+        if (historyStart == null) {
+            return balances;
+        }
+        var beforeDay = LocalDate.ofInstant(historyStart, ZoneOffset.UTC);
+        for (var account : reconciliationMapper.selectOpeningBalancesInRange(fromAccountId, toAccountId, beforeDay)) {
+            var accountBalances = new HashMap<Currency, BigDecimal>();
+            account.getBalances().forEach(balance -> accountBalances.put(balance.getCurrency(), balance.getAmount()));
+            balances.put(account.getId(), accountBalances);
+        }
+        return balances;
+    }
+
+    /**
+     * Add the transactions since the history start to the sums of every account and currency in the range
+     */
+    private void sumTransactions(long fromAccountId, long toAccountId, Instant historyStart,
+                                 Map<Long, Map<Currency, BigDecimal>> sums, Tally tally) {
+        var checkBalanceAfter = balanceEngine == null;
+        Long accountId = null;
+        Map<Currency, BigDecimal> accountSums = null;
+
+        try (var cursor = reconciliationMapper.selectTransactionsInRange(fromAccountId, toAccountId, historyStart)) {
+            for (var transaction : cursor) {
+                if (!transaction.getAccountId().equals(accountId)) {
+                    accountId = transaction.getAccountId();
+                    accountSums = sums.computeIfAbsent(accountId, id -> new HashMap<>());
+                }
+                var change = transaction.getDirection() == TransactionDirection.IN
+                        ? transaction.getAmount()
+                        : transaction.getAmount().negate();
+                var sum = accountSums.getOrDefault(transaction.getCurrency(), BigDecimal.ZERO).add(change);
+                accountSums.put(transaction.getCurrency(), sum);
+                tally.transactions++;
+
+                if (checkBalanceAfter && transaction.getBalanceAfter().compareTo(sum) != 0) {
+                    tally.add(DiscrepancyDto.balanceAfter(accountId, transaction.getCurrency(), transaction.getId(),
+                            sum, transaction.getBalanceAfter()));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void compareBalances(Account account, Map<Currency, BigDecimal> sums, Tally tally) {
+        var unmatched = new HashMap<>(sums);
+        for (var balance : account.getBalances()) {
+            var sum = unmatched.remove(balance.getCurrency());
+            var expected = sum != null ? sum : BigDecimal.ZERO;
+            if (balance.getAmount().compareTo(expected) != 0) {
+                tally.add(DiscrepancyDto.balance(account.getId(), balance.getCurrency(), expected, balance.getAmount()));
+            }
+        }
+        unmatched.forEach((currency, sum) -> {
+            if (sum.signum() != 0) {
+                tally.add(DiscrepancyDto.balance(account.getId(), currency, sum, null));
+            }
+        });
+    }
+
+    private final class RangeTask extends RecursiveTask<Tally> {
+
+        private final long fromAccountId;
+        private final long toAccountId;
+        private final Instant historyStart;
+
+        RangeTask(long fromAccountId, long toAccountId, Instant historyStart) {
+            this.fromAccountId = fromAccountId;
+            this.toAccountId = toAccountId;
+            this.historyStart = historyStart;
+        }
+
+        @Override
+        protected Tally compute() {
+            if (toAccountId - fromAccountId <= chunkAccounts) {
+                return reconcileRange(fromAccountId, toAccountId, historyStart);
+            }
+            var middle = fromAccountId + (toAccountId - fromAccountId) / 2;
+            var lower = new RangeTask(fromAccountId, middle, historyStart);
+            lower.fork();
+            var upper = new RangeTask(middle, toAccountId, historyStart).compute();
+            return lower.join().merge(upper);
+        }
+    }
+
+    /**
+     * Counts of a range, and its first discrepancies in account order
+     */
+    private static final class Tally {
+
+        private final int maxReported;
+        private final List<DiscrepancyDto> discrepancies = new ArrayList<>();
+        private long accounts;
+        private long transactions;
+        private long skippedAccounts;
+        private long discrepancyCount;
+
+        Tally(int maxReported) {
+            this.maxReported = maxReported;
+        }
+
+        void add(DiscrepancyDto discrepancy) {
+            discrepancyCount++;
+            if (discrepancies.size() < maxReported) {
+                discrepancies.add(discrepancy);
+            }
+        }
+
+        Tally merge(Tally upper) {
+            accounts += upper.accounts;
+            transactions += upper.transactions;
+            skippedAccounts += upper.skippedAccounts;
+            discrepancyCount += upper.discrepancyCount;
+            for (var discrepancy : upper.discrepancies) {
+                if (discrepancies.size() >= maxReported) {
+                    break;
+                }
+                discrepancies.add(discrepancy);
+            }
+            return this;
+        }
+    }
+}
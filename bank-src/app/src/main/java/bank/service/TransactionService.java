@@ -1,25 +1,51 @@
 package bank.service;
 
-import bank.configuration.RabbitMqConf;
+import bank.cache.AccountCache;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.BalanceChange;
 import bank.domain.Transaction;
+import bank.dto.BatchTransactionResultDto;
 import bank.dto.TransactionDto;
+import bank.dto.TransactionPageDto;
+import bank.dto.TransactionResult;
+import bank.engine.BalanceEngine;
 import bank.enums.TransactionDirection;
 import bank.exception.AccountNotFoundException;
+import bank.exception.IdempotencyKeyExpiredException;
 import bank.exception.InsufficientFundsException;
 import bank.exception.InvalidCurrencyException;
+import bank.fx.FxRateService;
+import bank.journal.JournalLedger;
+import bank.messaging.EventPublisher;
 import bank.data.AccountMapper;
 import bank.data.BalanceMapper;
+import bank.data.IdempotencyKeyMapper;
 import bank.data.TransactionMapper;
 import bank.request.TransactionRequest;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 
 /**
  * Transaction service
@@ -28,6 +54,14 @@ import java.util.stream.Collectors;
 @Transactional(isolation = Isolation.READ_COMMITTED)
 public class TransactionService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    public static final String OUTCOME_COUNTER_NAME = "bank.transactions";
+
+    private static final int INSERT_BATCH_SIZE = 1000;
+
     @Autowired
     private TransactionMapper transactionMapper;
 
@@ -38,7 +72,35 @@ public class TransactionService {
     private AccountMapper accountMapper;
 
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @Autowired
+    private EventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private BalanceEngine balanceEngine;
+
+    @Autowired(required = false)
+    private AccountCache accountCache;
+
+    @Autowired(required = false)
+    private JournalLedger journalLedger;
+
+    @Autowired(required = false)
+    private FxRateService fxRateService;
+
+    /**
+     * Journaled transactions are posted in the requested currency only, so automatic FX conversion is rejected
+     */
+    @PostConstruct
+    void init() {
+        if (journalLedger != null && fxRateService != null && fxRateService.isAutoConvert()) {
+            throw new IllegalStateException("Automatic FX conversion is not supported with the journal enabled");
+        }
+    }
 
     /**
      * Create new transaction
@@ -46,37 +108,230 @@ public class TransactionService {
      * @return transaction dto
      */
     public TransactionDto createTransaction(TransactionRequest request) {
-        var account = accountMapper.selectAccount(request.getAccountId())
-                .orElseThrow(() -> new AccountNotFoundException(request.getAccountId()));
+        return postTransactions(List.of(request)).get(0).getOrThrow();
+    }
+
+    /**
+     * Create new transactions in bulk
+     * @param requests transaction requests
+     * @return result of every request, in request order
+     */
+    public BatchTransactionResultDto createTransactions(List<TransactionRequest> requests) {
+        return BatchTransactionResultDto.from(postTransactions(requests));
+    }
+
+    /**
+     * Post transactions in a single database transaction.
+     * Requests are applied in order. A request that is rejected because of an unknown account, an invalid
+     * currency or insufficient funds does not affect the others. Balance changes are netted and written once
+     * per balance, transactions and their messages are inserted in batches.
+     * With automatic FX conversion enabled, a request in a currency the account has no balance in is converted
+     * into a settlement currency balance and posted in that currency, all requests at the rates of one snapshot.
+     * The requested amount, currency and the rate are kept on the transaction. A request whose converted amount
+     * rounds to less than the minor unit of the settlement currency is rejected.
+     * The outcome of every request is counted in {@value #OUTCOME_COUNTER_NAME}, tagged by outcome and currency.
+     * With the journal enabled, transactions are posted to the journal instead, and reach the database later.
+     * @param requests transaction requests
+     * @return result of every request, in request order
+     */
+    public List<TransactionResult> postTransactions(List<TransactionRequest> requests) {
+        return postTransactions(requests, null);
+    }
+
+    /**
+     * Post transactions in a single database transaction, recording their idempotency keys in it.
+     * Keys are taken in key order before the accounts are locked, waiting for a concurrent transaction taking the
+     * same key. A request whose key is already taken is answered with the transaction of the key instead of being
+     * posted, and a request repeating the key of an earlier request of the batch with the result of that one.
+     * A request whose key is taken by a transaction that is no longer available is rejected.
+     * The key of a rejected request is released again.
+     * @param requests transaction requests
+     * @param idempotencyKeys idempotency key of every request, in request order, null for a request without one
+     * @return result of every request, in request order
+     */
+    public List<TransactionResult> postTransactions(List<TransactionRequest> requests, List<String> idempotencyKeys) {
+        if (journalLedger != null) {
+            return idempotencyKeys == null ? postToJournal(requests) : postKeyedToJournal(requests, idempotencyKeys);
+        }
 
-        var balance = account.getBalances().stream()
-                .filter(b -> b.getCurrency().equals(request.getCurrency()))
-                .findAny().orElseThrow(InvalidCurrencyException::new);
+        var answers = new TransactionResult[requests.size()];
+        var firstWithKey = idempotencyKeys != null ? takeKeys(idempotencyKeys, answers) : Map.<String, Integer>of();
+        var posted = new boolean[requests.size()];
+        for (int i = 0; i < requests.size(); i++) {
+            var key = idempotencyKeys != null ? idempotencyKeys.get(i) : null;
+            posted[i] = answers[i] == null && (key == null || firstWithKey.get(key) == i);
+        }
+
+        var balances = balanceEngine == null ? new BatchBalances(lockAccounts(requests)) : null;
+        var rates = fxRateService != null && fxRateService.isAutoConvert() ? fxRateService.getRates() : null;
+        var errors = new RuntimeException[requests.size()];
+        var created = new Transaction[requests.size()];
+        var transactions = new ArrayList<Transaction>(requests.size());
 
-        var balanceChange = calculateBalanceChange(request.getDirection(), request.getAmount());
+        for (int i = 0; i < requests.size(); i++) {
+            if (!posted[i]) {
+                continue;
+            }
+            var request = requests.get(i);
+            try {
+                var currency = request.getCurrency();
+                var amount = request.getAmount();
+                BigDecimal rate = null;
+                if (rates != null) {
+                    var balanceCurrencies = balances != null
+                            ? balances.currencies(request.getAccountId())
+                            : balanceEngine.currencies(request.getAccountId());
+                    if (!balanceCurrencies.contains(currency)) {
+                        currency = fxRateService.settlementCurrency(rates, currency, balanceCurrencies);
+                        amount = rates.convert(amount, request.getCurrency(), currency);
+                        if (amount.signum() <= 0) {
+                            throw new InvalidCurrencyException(
+                                    "The converted amount is less than the minor unit of " + currency + ".");
+                        }
+                        rate = rates.rate(request.getCurrency(), currency);
+                    }
+                }
 
-        var newBalance = balance.getAmount().add(balanceChange);
-        if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
-            throw new InsufficientFundsException();
+                var balanceChange = calculateBalanceChange(request.getDirection(), amount);
+                var newBalance = balances != null
+                        ? balances.apply(request.getAccountId(), currency, balanceChange)
+                        : balanceEngine.apply(request.getAccountId(), currency, balanceChange);
+
+                created[i] = new Transaction()
+                        .setAccountId(request.getAccountId())
+                        .setAmount(amount)
+                        .setCurrency(currency)
+                        .setDirection(request.getDirection())
+                        .setDescription(request.getDescription())
+                        .setBalanceAfter(newBalance);
+                if (rate != null) {
+                    created[i]
+                            .setOriginalAmount(request.getAmount())
+                            .setOriginalCurrency(request.getCurrency())
+                            .setRate(rate);
+                }
+                transactions.add(created[i]);
+            } catch (AccountNotFoundException | InvalidCurrencyException | InsufficientFundsException e) {
+                errors[i] = e;
+            }
         }
+        countOutcomesOnCommit(requests, errors, posted);
 
-        balanceMapper.updateBalance(balance, balanceChange);
+        if (balances != null && !balances.getChanges().isEmpty()) {
+            balanceMapper.updateBalances(balances.getChanges());
+        }
+        for (int i = 0; i < transactions.size(); i += INSERT_BATCH_SIZE) {
+            transactionMapper.insertTransactions(
+                    transactions.subList(i, Math.min(i + INSERT_BATCH_SIZE, transactions.size()))
+            );
+        }
 
-        var transaction = new Transaction()
-                .setAccountId(account.getId())
-                .setAmount(request.getAmount())
-                .setCurrency(request.getCurrency())
-                .setDirection(request.getDirection())
-                .setDescription(request.getDescription())
-                .setBalanceAfter(newBalance);
+        var transactionDtos = new ArrayList<TransactionDto>(transactions.size());
+        var results = new ArrayList<TransactionResult>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            var key = idempotencyKeys != null ? idempotencyKeys.get(i) : null;
+            if (created[i] != null) {
+                var transactionDto = TransactionDto.from(created[i]);
+                transactionDtos.add(transactionDto);
+                results.add(TransactionResult.created(transactionDto));
+                if (key != null) {
+                    idempotencyKeyMapper.updateTransaction(key, created[i].getId(), created[i].getCreatedAt());
+                }
+            } else if (errors[i] != null) {
+                results.add(TransactionResult.rejected(errors[i]));
+                if (key != null) {
+                    idempotencyKeyMapper.deleteKey(key);
+                }
+            } else if (answers[i] != null) {
+                results.add(answers[i]);
+            } else {
+                results.add(results.get(firstWithKey.get(key)));
+            }
+        }
+        eventPublisher.publishAll("create-transaction", transactionDtos, TransactionDto::getAccountId);
 
-        transactionMapper.insertTransaction(transaction);
+        if (accountCache != null) {
+            transactions.stream().map(Transaction::getAccountId).distinct().forEach(accountCache::invalidate);
+        }
+        return results;
+    }
+
+    /**
+     * Take the idempotency keys of the requests in key order, answering the requests whose key is already taken
+     * @return index of the first request with every key
+     */
+    private Map<String, Integer> takeKeys(List<String> idempotencyKeys, TransactionResult[] answers) {
+        var firstWithKey = new TreeMap<String, Integer>();
+        for (int i = 0; i < idempotencyKeys.size(); i++) {
+            if (idempotencyKeys.get(i) != null) {
+                firstWithKey.putIfAbsent(idempotencyKeys.get(i), i);
+            }
+        }
+
+        for (var entry : firstWithKey.entrySet()) {
+            var key = entry.getKey();
+            if (idempotencyKeyMapper.insertKey(key) == 0) {
+                // the transaction of a key is gone once its partition has been archived
+                answers[entry.getValue()] = idempotencyKeyMapper.selectTransaction(key)
+                        .map(transaction -> TransactionResult.created(TransactionDto.from(transaction)))
+                        .orElseGet(() -> TransactionResult.rejected(new IdempotencyKeyExpiredException(key)));
+            }
+        }
+        return firstWithKey;
+    }
 
-        var transactionDto = TransactionDto.from(transaction);
+    private List<TransactionResult> postToJournal(List<TransactionRequest> requests) {
+        var results = journalLedger.post(requests);
+        for (int i = 0; i < requests.size(); i++) {
+            countOutcome(requests.get(i).getCurrency(), results.get(i).getError());
+        }
+        if (accountCache != null) {
+            results.stream()
+                    .filter(TransactionResult::isCreated)
+                    .map(result -> result.getTransaction().getAccountId())
+                    .distinct()
+                    .forEach(accountCache::invalidate);
+        }
+        return results;
+    }
 
-        rabbitTemplate.convertAndSend(RabbitMqConf.EXCHANGE_NAME, "create-transaction", transactionDto);
+    private List<TransactionResult> postKeyedToJournal(List<TransactionRequest> requests, List<String> keys) {
+        var results = new ArrayList<TransactionResult>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            if (keys.get(i) == null) {
+                results.addAll(postToJournal(List.of(requests.get(i))));
+                continue;
+            }
+            try {
+                results.add(TransactionResult.created(createJournaledTransaction(requests.get(i), keys.get(i))));
+            } catch (AccountNotFoundException | InvalidCurrencyException | InsufficientFundsException e) {
+                results.add(TransactionResult.rejected(e));
+            }
+        }
+        return results;
+    }
 
-        return transactionDto;
+    /**
+     * Post a transaction to the journal with an idempotency key, or find the transaction already posted with the key
+     * @param request transaction request
+     * @param idempotencyKey idempotency key
+     * @return transaction dto
+     */
+    public TransactionDto createJournaledTransaction(TransactionRequest request, String idempotencyKey) {
+        JournalLedger.KeyedPosting posting;
+        try {
+            posting = journalLedger.post(request, idempotencyKey);
+        } catch (AccountNotFoundException | InvalidCurrencyException | InsufficientFundsException e) {
+            countOutcome(request.getCurrency(), e);
+            throw e;
+        }
+        if (posting.isCreated()) {
+            countOutcome(request.getCurrency(), null);
+            if (accountCache != null) {
+                accountCache.invalidate(request.getAccountId());
+            }
+        }
+        return posting.getTransaction();
     }
 
     /**
@@ -84,13 +339,132 @@ public class TransactionService {
      * @param accountId account id
      * @return list of transaction dtos
      */
+    @Transactional(isolation = Isolation.READ_COMMITTED, readOnly = true)
     public List<TransactionDto> findAllByAccountId(Long accountId) {
+        return findAllByAccountId(accountId, null, null);
+    }
+
+    /**
+     * Find all transactions of account created in a time window
+     * @param accountId account id
+     * @param from only transactions created at or after this instant, null for no lower bound
+     * @param to only transactions created before this instant, null for no upper bound
+     * @return list of transaction dtos
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public List<TransactionDto> findAllByAccountId(Long accountId, Instant from, Instant to) {
+        checkAccountExists(accountId);
+
+        var transactions = transactionMapper.selectByAccountId(accountId, from, to);
+        var transactionDtos = new ArrayList<TransactionDto>(transactions.size());
+        for (var transaction : transactions) {
+            transactionDtos.add(TransactionDto.from(transaction));
+        }
+        return transactionDtos;
+    }
+
+    /**
+     * Find a page of transactions of account
+     * @param accountId account id
+     * @param afterId transaction id to continue after, null for the first page
+     * @param from only transactions created at or after this instant, null for no lower bound
+     * @param to only transactions created before this instant, null for no upper bound
+     * @param limit page size, capped at {@link #MAX_PAGE_SIZE}
+     * @return page of transaction dtos
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public TransactionPageDto findPageByAccountId(Long accountId, Long afterId, Instant from, Instant to, int limit) {
+        checkAccountExists(accountId);
+
+        var pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        var transactions = transactionMapper.selectPageByAccountId(accountId, afterId, from, to, pageSize + 1);
+
+        var hasNext = transactions.size() > pageSize;
+        var page = new ArrayList<TransactionDto>(Math.min(transactions.size(), pageSize));
+        for (int i = 0; i < transactions.size() && i < pageSize; i++) {
+            page.add(TransactionDto.from(transactions.get(i)));
+        }
+
+        return new TransactionPageDto(page, hasNext ? page.get(page.size() - 1).getTransactionId() : null);
+    }
+
+    /**
+     * Pass all transactions of account to the action one at a time, without loading them all into memory
+     * @param accountId account id
+     * @param from only transactions created at or after this instant, null for no lower bound
+     * @param to only transactions created before this instant, null for no upper bound
+     * @param action action to perform on each transaction dto
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED, readOnly = true)
+    public void streamAllByAccountId(Long accountId, Instant from, Instant to, Consumer<TransactionDto> action) {
+        try (var cursor = transactionMapper.selectCursorByAccountId(accountId, from, to)) {
+            cursor.forEach(transaction -> action.accept(TransactionDto.from(transaction)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Check that account exists
+     * @param accountId account id
+     */
+    public void checkAccountExists(Long accountId) {
         accountMapper.selectAccount(accountId)
                 .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
+    private Map<Long, Account> lockAccounts(List<TransactionRequest> requests) {
+        var accountIds = new TreeSet<Long>();
+        for (var request : requests) {
+            accountIds.add(request.getAccountId());
+        }
 
-        return transactionMapper.selectByAccountId(accountId).stream()
-                .map(TransactionDto::from)
-                .collect(Collectors.toList());
+        var accounts = new HashMap<Long, Account>();
+        for (var account : accountMapper.selectAccountsForUpdate(accountIds)) {
+            accounts.put(account.getId(), account);
+        }
+        return accounts;
+    }
+
+    /**
+     * Count the outcomes once the current transaction commits, so that a rolled back batch is not counted,
+     * or immediately if there is none
+     */
+    private void countOutcomesOnCommit(List<TransactionRequest> requests, RuntimeException[] errors, boolean[] posted) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            countOutcomes(requests, errors, posted);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                countOutcomes(requests, errors, posted);
+            }
+        });
+    }
+
+    private void countOutcomes(List<TransactionRequest> requests, RuntimeException[] errors, boolean[] posted) {
+        for (int i = 0; i < requests.size(); i++) {
+            if (posted[i]) {
+                countOutcome(requests.get(i).getCurrency(), errors[i]);
+            }
+        }
+    }
+
+    private void countOutcome(Currency currency, RuntimeException error) {
+        String outcome;
+        if (error == null) {
+            outcome = "created";
+        } else if (error instanceof InsufficientFundsException) {
+            outcome = "insufficient_funds";
+        } else if (error instanceof InvalidCurrencyException) {
+            outcome = "invalid_currency";
+        } else {
+            outcome = "account_not_found";
+        }
+        meterRegistry.counter(OUTCOME_COUNTER_NAME, "outcome", outcome, "currency", currency.getCurrencyCode())
+                .increment();
     }
 
     private BigDecimal calculateBalanceChange(TransactionDirection direction, BigDecimal transactionAmount) {
@@ -99,4 +473,67 @@ public class TransactionService {
             case OUT -> transactionAmount.negate();
         };
     }
+
+    /**
+     * Running balances of the accounts taking part in a batch, and the net change of every balance
+     */
+    private static final class BatchBalances {
+
+        private final Map<Long, Account> accounts;
+        private final Map<Long, BigDecimal> amounts = new HashMap<>();
+        private final Map<Long, BigDecimal> netChanges = new LinkedHashMap<>();
+
+        BatchBalances(Map<Long, Account> accounts) {
+            this.accounts = accounts;
+        }
+
+        Collection<Currency> currencies(Long accountId) {
+            var balances = account(accountId).getBalances();
+            var currencies = new ArrayList<Currency>(balances.size());
+            for (var balance : balances) {
+                currencies.add(balance.getCurrency());
+            }
+            return currencies;
+        }
+
+        BigDecimal apply(Long accountId, Currency currency, BigDecimal balanceChange) {
+            var balance = balance(account(accountId), currency);
+
+            var newBalance = amounts.getOrDefault(balance.getId(), balance.getAmount()).add(balanceChange);
+            if (newBalance.compareTo(BigDecimal.ZERO) < 0) {
+                throw new InsufficientFundsException();
+            }
+
+            amounts.put(balance.getId(), newBalance);
+            netChanges.merge(balance.getId(), balanceChange, BigDecimal::add);
+            return newBalance;
+        }
+
+        private static Balance balance(Account account, Currency currency) {
+            for (var balance : account.getBalances()) {
+                if (balance.getCurrency().equals(currency)) {
+                    return balance;
+                }
+            }
+            throw new InvalidCurrencyException();
+        }
+
+        private Account account(Long accountId) {
+            var account = accounts.get(accountId);
+            if (account == null) {
+                throw new AccountNotFoundException(accountId);
+            }
+            return account;
+        }
+
+        List<BalanceChange> getChanges() {
+            var changes = new ArrayList<BalanceChange>(netChanges.size());
+            netChanges.forEach((balanceId, change) -> {
+                if (change.signum() != 0) {
+                    changes.add(new BalanceChange(balanceId, change));
+                }
+            });
+            return changes;
+        }
+    }
 }
@@ -0,0 +1,206 @@
+package bank.service;
+
+import bank.cache.AccountCache;
+import bank.configuration.BankConf;
+import bank.data.AccountMapper;
+import bank.data.BalanceMapper;
+import bank.data.TransactionMapper;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.BalanceChange;
+import bank.domain.Transaction;
+import bank.dto.TransferDto;
+import bank.engine.BalanceEngine;
+import bank.enums.TransactionDirection;
+import bank.exception.AccountNotFoundException;
+import bank.exception.InsufficientFundsException;
+import bank.exception.InvalidCurrencyException;
+import bank.exception.InvalidTransferException;
+import bank.fx.FxRateService;
+import bank.fx.FxRates;
+import bank.journal.JournalLedger;
+import bank.messaging.EventPublisher;
+import bank.request.TransferRequest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transfer service.
+ *
+ * A transfer debits a balance of one account and credits a balance of another in one database transaction, as
+ * two transactions and one event. Both accounts are locked in ascending id order, the same global order the
+ * posting of transactions locks accounts in, so concurrent transfers in opposite directions cannot deadlock.
+ */
+@Service
+@Transactional(isolation = Isolation.READ_COMMITTED)
+public class TransferService {
+
+    public static final String ROUTING_KEY = "create-transfer";
+
+    @Autowired
+    private AccountMapper accountMapper;
+
+    @Autowired
+    private BalanceMapper balanceMapper;
+
+    @Autowired
+    private TransactionMapper transactionMapper;
+
+    @Autowired
+    private EventPublisher eventPublisher;
+
+    @Autowired(required = false)
+    private BalanceEngine balanceEngine;
+
+    @Autowired(required = false)
+    private AccountCache accountCache;
+
+    @Autowired(required = false)
+    private JournalLedger journalLedger;
+
+    @Autowired(required = false)
+    private FxRateService fxRateService;
+
+    /**
+     * Largest relative deviation of a requested rate from the current rate
+     */
+    @Value("${bank.fx.rate-tolerance:0.005}")
+    BigDecimal rateTolerance = new BigDecimal("0.005");
+
+    /**
+     * Transfer money between two balances
+     * @param request transfer request
+     * @return transactions of the transfer
+     */
+    public TransferDto transfer(TransferRequest request) {
+        if (journalLedger != null) {
+            throw new InvalidTransferException("Transfers are not supported with the journal enabled.");
+        }
+
+        var fromCurrency = request.getCurrency();
+        var toCurrency = request.getToCurrency() != null ? request.getToCurrency() : fromCurrency;
+        if (!BankConf.ALLOWED_CURRENCIES.contains(fromCurrency) || !BankConf.ALLOWED_CURRENCIES.contains(toCurrency)) {
+            throw new InvalidCurrencyException();
+        }
+        if (request.getFromAccountId().equals(request.getToAccountId()) && fromCurrency.equals(toCurrency)) {
+            throw new InvalidTransferException("Cannot transfer to the same balance.");
+        }
+
+        var rate = rateOf(request, fromCurrency, toCurrency);
+        var debit = leg(request, request.getFromAccountId(), request.getAmount(), fromCurrency, TransactionDirection.OUT);
+        var credit = leg(request, request.getToAccountId(), convert(request.getAmount(), rate, toCurrency), toCurrency,
+                TransactionDirection.IN);
+
+        if (balanceEngine != null) {
+            // a rolled back transaction reverts the changes already applied by the engine
+            debit.setBalanceAfter(balanceEngine.apply(debit.getAccountId(), fromCurrency, debit.getAmount().negate()));
+            credit.setBalanceAfter(balanceEngine.apply(credit.getAccountId(), toCurrency, credit.getAmount()));
+        } else {
+            applyToLockedBalances(debit, credit);
+        }
+        transactionMapper.insertTransactions(List.of(debit, credit));
+
+        var transfer = TransferDto.from(debit, credit, rate);
+        eventPublisher.publish(ROUTING_KEY, debit.getAccountId(), transfer);
+
+        if (accountCache != null) {
+            accountCache.invalidate(debit.getAccountId());
+            accountCache.invalidate(credit.getAccountId());
+        }
+        return transfer;
+    }
+
+    private void applyToLockedBalances(Transaction debit, Transaction credit) {
+        var accounts = accountMapper.selectAccountsForUpdate(new TreeSet<>(List.of(debit.getAccountId(), credit.getAccountId())))
+                .stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+        var debited = balanceOf(accounts, debit.getAccountId(), debit.getCurrency());
+        var credited = balanceOf(accounts, credit.getAccountId(), credit.getCurrency());
+
+        var debitedAfter = debited.getAmount().subtract(debit.getAmount());
+        if (debitedAfter.signum() < 0) {
+            throw new InsufficientFundsException();
+        }
+        debit.setBalanceAfter(debitedAfter);
+        credit.setBalanceAfter(credited.getAmount().add(credit.getAmount()));
+
+        balanceMapper.updateBalances(List.of(
+                new BalanceChange(debited.getId(), debit.getAmount().negate()),
+                new BalanceChange(credited.getId(), credit.getAmount())
+        ));
+    }
+
+    private static Balance balanceOf(Map<Long, Account> accounts, Long accountId, Currency currency) {
+        var account = accounts.get(accountId);
+        if (account == null) {
+            throw new AccountNotFoundException(accountId);
+        }
+        for (var balance : account.getBalances()) {
+            if (balance.getCurrency().equals(currency)) {
+                return balance;
+            }
+        }
+        throw new InvalidCurrencyException();
+    }
+
+    /**
+     * Current rate between the currencies, or the requested rate if it is within the tolerance of the current rate
+     */
+    private BigDecimal rateOf(TransferRequest request, Currency fromCurrency, Currency toCurrency) {
+        if (fromCurrency.equals(toCurrency)) {
+            if (request.getRate() != null && request.getRate().compareTo(BigDecimal.ONE) != 0) {
+                throw new InvalidTransferException("The rate of a transfer in one currency must be 1.");
+            }
+            return BigDecimal.ONE;
+        }
+        var rate = fxRateService != null ? fxRateService.getRates().rate(fromCurrency, toCurrency) : null;
+        if (rate == null) {
+            throw new InvalidTransferException("No exchange rate from " + fromCurrency + " to " + toCurrency + ".");
+        }
+        if (request.getRate() == null) {
+            return rate;
+        }
+        var deviation = request.getRate().subtract(rate).abs();
+        if (deviation.compareTo(rate.multiply(rateTolerance, FxRates.MATH_CONTEXT)) > 0) {
+            throw new InvalidTransferException("The rate " + request.getRate() + " deviates from the current rate "
+                    + rate + " by more than the tolerance.");
+        }
+        return request.getRate();
+    }
+
+    /**
+     * Amount in the credited currency, rounded half even to the minor unit of the currency
+     */
+    private static BigDecimal convert(BigDecimal amount, BigDecimal rate, Currency currency) {
+        if (rate.compareTo(BigDecimal.ONE) == 0) {
+            return amount;
+        }
+        var converted = amount.multiply(rate, FxRates.MATH_CONTEXT).setScale(currency.getDefaultFractionDigits(), RoundingMode.HALF_EVEN);
+        if (converted.signum() <= 0) {
+            throw new InvalidTransferException("The converted amount is less than the minor unit of " + currency + ".");
+        }
+        return converted;
+    }
+
+    private static Transaction leg(TransferRequest request, Long accountId, BigDecimal amount, Currency currency,
+                                   TransactionDirection direction) {
+        return new Transaction()
+                .setAccountId(accountId)
+                .setAmount(amount)
+                .setCurrency(currency)
+                .setDirection(direction)
+                .setDescription(request.getDescription());
+    }
+}
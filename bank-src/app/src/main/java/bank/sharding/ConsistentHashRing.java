@@ -0,0 +1,69 @@
+package bank.sharding;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring assigning keys to nodes.
+ *
+ * Every node is placed on the ring at a number of pseudo-random points (virtual nodes), and a key belongs to the
+ * node of the first point at or after the hash of the key, wrapping around. Adding or removing a node therefore
+ * only moves the keys of the ring segments it gains or loses, about one in as many keys as there are nodes.
+ */
+public class ConsistentHashRing {
+
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    /**
+     * @param nodes node ids
+     * @param virtualNodes number of points per node
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("A ring needs at least one node and one point per node");
+        }
+        for (var node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                var previous = points.put(hash(node + "#" + i), node);
+                if (previous != null && !previous.equals(node)) {
+                    throw new IllegalArgumentException("Nodes " + previous + " and " + node + " collide on the ring");
+                }
+            }
+        }
+    }
+
+    /**
+     * @param key key
+     * @return id of the node owning the key
+     */
+    public String ownerOf(long key) {
+        Map.Entry<Long, String> point = points.ceilingEntry(mix(key));
+        return point != null ? point.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * 64-bit FNV-1a of the UTF-8 bytes, mixed to spread similar ids over the ring
+     */
+    private static long hash(String value) {
+        var hash = 0xcbf29ce484222325L;
+        for (var b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Finalizer of MurmurHash3, so that consecutive keys land on unrelated points
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,154 @@
+package bank.sharding;
+
+import bank.exception.AccountNotOwnedException;
+import bank.exception.CrossShardRequestException;
+import bank.exception.PostingNotOwnedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Ownership of accounts by the nodes of a sharded deployment.
+ *
+ * Accounts are assigned to the nodes of {@code bank.sharding.nodes} by a {@link ConsistentHashRing} over their id.
+ * Each node keeps the accounts it owns in its own database and only serves requests for them; requests for an
+ * account of another node are redirected there. New accounts are given ids owned by the node creating them, so ids
+ * drawn from the sequences of different shard databases never collide. Likewise, asynchronous postings are given ids
+ * owned by the node accepting them, which keeps their status, so that status requests can be redirected there.
+ */
+@Component
+@ConditionalOnProperty(name = "bank.sharding.enabled", havingValue = "true")
+public class ShardRouter {
+
+    private static final int MAX_ID_ATTEMPTS = 10000;
+
+    /**
+     * Id of this node
+     */
+    @Value("${bank.sharding.node-id}")
+    String nodeId;
+
+    /**
+     * All nodes as {@code id=base url}
+     */
+    @Value("${bank.sharding.nodes}")
+    String[] nodes;
+
+    @Value("${bank.sharding.virtual-nodes:128}")
+    int virtualNodes = 128;
+
+    private final Map<String, String> nodeUrls = new LinkedHashMap<>();
+
+    private ConsistentHashRing ring;
+
+    @PostConstruct
+    void init() {
+        for (var node : nodes) {
+            var idAndUrl = node.trim().split("=", 2);
+            if (idAndUrl.length != 2 || nodeUrls.put(idAndUrl[0], idAndUrl[1]) != null) {
+                throw new IllegalStateException("Invalid sharding node " + node);
+            }
+        }
+        if (!nodeUrls.containsKey(nodeId)) {
+            throw new IllegalStateException("Node " + nodeId + " is not one of the sharding nodes " + nodeUrls.keySet());
+        }
+        ring = new ConsistentHashRing(nodeUrls.keySet(), virtualNodes);
+    }
+
+    /**
+     * @param accountId account id
+     * @return whether this node owns the account
+     */
+    public boolean owns(long accountId) {
+        return ring.ownerOf(accountId).equals(nodeId);
+    }
+
+    /**
+     * @param accountId account id
+     * @throws AccountNotOwnedException if another node owns the account
+     */
+    public void checkOwner(Long accountId) {
+        var owner = ring.ownerOf(accountId);
+        if (!owner.equals(nodeId)) {
+            throw new AccountNotOwnedException(accountId, nodeUrls.get(owner));
+        }
+    }
+
+    /**
+     * Check that this node owns all the accounts, or redirect to the node owning all of them
+     * @param accountIds account ids
+     * @throws AccountNotOwnedException if another node owns all the accounts
+     * @throws CrossShardRequestException if the accounts are owned by different nodes
+     */
+    public void checkOwner(Collection<Long> accountIds) {
+        String owner = null;
+        for (var accountId : accountIds) {
+            var accountOwner = ring.ownerOf(accountId);
+            if (owner != null && !owner.equals(accountOwner)) {
+                throw new CrossShardRequestException(new TreeSet<>(accountIds));
+            }
+            owner = accountOwner;
+        }
+        if (owner != null && !owner.equals(nodeId)) {
+            throw new AccountNotOwnedException(accountIds.iterator().next(), nodeUrls.get(owner));
+        }
+    }
+
+    /**
+     * @param postingId id of an asynchronous posting
+     * @return whether this node accepted the posting
+     */
+    public boolean owns(UUID postingId) {
+        return ring.ownerOf(postingId.getLeastSignificantBits()).equals(nodeId);
+    }
+
+    /**
+     * @param postingId id of an asynchronous posting
+     * @throws PostingNotOwnedException if another node accepted the posting
+     */
+    public void checkOwner(UUID postingId) {
+        var owner = ring.ownerOf(postingId.getLeastSignificantBits());
+        if (!owner.equals(nodeId)) {
+            throw new PostingNotOwnedException(postingId, nodeUrls.get(owner));
+        }
+    }
+
+    /**
+     * Draw random ids until one owned by this node comes up
+     * @return asynchronous posting id owned by this node
+     */
+    public UUID allocatePostingId() {
+        for (int i = 0; i < MAX_ID_ATTEMPTS; i++) {
+            var id = UUID.randomUUID();
+            if (owns(id)) {
+                return id;
+            }
+        }
+        throw new IllegalStateException(
+                "No posting id owned by node " + nodeId + " in " + MAX_ID_ATTEMPTS + " attempts"
+        );
+    }
+
+    /**
+     * Draw ids until one owned by this node comes up, on average as many as there are nodes
+     * @param ids id sequence
+     * @return id owned by this node
+     */
+    public long allocateId(LongSupplier ids) {
+        for (int i = 0; i < MAX_ID_ATTEMPTS; i++) {
+            var id = ids.getAsLong();
+            if (owns(id)) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("No id owned by node " + nodeId + " in " + MAX_ID_ATTEMPTS + " attempts");
+    }
+}
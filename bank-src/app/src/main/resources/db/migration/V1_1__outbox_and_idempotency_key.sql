@@ -0,0 +1,22 @@
+-- Tables added after the schema of the former create_tables.sql, which existing databases are baselined at.
+-- Databases set up from a later create_tables.sql may already have them.
+
+CREATE TABLE IF NOT EXISTS outbox (
+    id bigserial,
+    account_id int NOT NULL,
+    exchange varchar(255) NOT NULL,
+    routing_key varchar(255) NOT NULL,
+    content_type varchar(255),
+    type_id varchar(255),
+    payload bytea NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS idempotency_key (
+    key varchar(255) NOT NULL,
+    transaction_id int,
+    created_at timestamp NOT NULL DEFAULT now(),
+    PRIMARY KEY (key)
+);
+
+CREATE INDEX IF NOT EXISTS idempotency_key_created_at ON idempotency_key (created_at);
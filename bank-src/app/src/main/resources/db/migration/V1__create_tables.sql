@@ -27,4 +27,3 @@ CREATE TABLE IF NOT EXISTS transaction (
         FOREIGN KEY(account_id)
             REFERENCES account(id)
 );
-
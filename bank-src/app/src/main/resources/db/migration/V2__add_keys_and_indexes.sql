@@ -0,0 +1,13 @@
+-- Primary keys and indexes for the hot query paths, see the JMH TransactionMapperBenchmark
+
+ALTER TABLE balance ADD PRIMARY KEY (id);
+
+-- also serves lookups of the balances of an account
+ALTER TABLE balance ADD CONSTRAINT balance_account_id_currency_key UNIQUE (account_id, currency);
+
+ALTER TABLE transaction ADD PRIMARY KEY (id);
+
+-- transaction history of an account in id order, used by paging with a cursor
+CREATE INDEX transaction_account_id_id_idx ON transaction (account_id, id);
+
+ALTER TABLE transaction ALTER COLUMN balance_after TYPE numeric;
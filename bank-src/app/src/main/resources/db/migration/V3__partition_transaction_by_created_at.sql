@@ -0,0 +1,49 @@
+-- Range partition transaction by created_at, one partition per calendar month in UTC, named transaction_pYYYYMM.
+-- Existing transactions are kept as they are in the transaction_legacy partition, with created_at set to the time of
+-- the migration. The partition of the current month starts right after that, later months are created ahead of
+-- time by TransactionPartitions.
+
+ALTER TABLE transaction RENAME TO transaction_legacy;
+ALTER TABLE transaction_legacy DROP CONSTRAINT transaction_pkey;
+ALTER TABLE transaction_legacy ALTER COLUMN id DROP DEFAULT;
+ALTER INDEX transaction_account_id_id_idx RENAME TO transaction_legacy_account_id_id_idx;
+ALTER TABLE transaction_legacy ADD COLUMN created_at timestamptz NOT NULL DEFAULT now();
+ALTER TABLE transaction_legacy ALTER COLUMN created_at DROP DEFAULT;
+
+CREATE TABLE transaction (
+    id int NOT NULL DEFAULT nextval('transaction_id_seq'),
+    account_id int NOT NULL,
+    amount numeric NOT NULL,
+    currency varchar(255) NOT NULL,
+    direction varchar(255) NOT NULL,
+    description varchar(255),
+    balance_after numeric NOT NULL,
+    created_at timestamptz NOT NULL DEFAULT now(),
+    PRIMARY KEY (id, created_at),
+    CONSTRAINT fk_account
+        FOREIGN KEY(account_id)
+            REFERENCES account(id)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE transaction_id_seq OWNED BY transaction.id;
+
+CREATE INDEX transaction_account_id_id_idx ON transaction (account_id, id);
+
+DO $$
+DECLARE
+    migrated_until timestamptz := now() + interval '1 microsecond';
+    next_month timestamptz := (date_trunc('month', now() AT TIME ZONE 'UTC') + interval '1 month') AT TIME ZONE 'UTC';
+BEGIN
+    EXECUTE format(
+        'ALTER TABLE transaction ATTACH PARTITION transaction_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+        migrated_until
+    );
+    EXECUTE format(
+        'CREATE TABLE %I PARTITION OF transaction FOR VALUES FROM (%L) TO (%L)',
+        'transaction_p' || to_char(now() AT TIME ZONE 'UTC', 'YYYYMM'), migrated_until, next_month
+    );
+END
+$$;
+
+-- detached partitions are moved here, to be dumped and dropped by operations
+CREATE SCHEMA IF NOT EXISTS archive;
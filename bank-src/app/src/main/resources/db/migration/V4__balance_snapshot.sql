@@ -0,0 +1,26 @@
+-- End-of-day balances per account and currency, one row per UTC day with transactions of that currency.
+-- Maintained by BalanceSnapshotService up to the day in balance_snapshot_watermark.
+
+CREATE TABLE balance_snapshot (
+    account_id int NOT NULL,
+    currency varchar(255) NOT NULL,
+    day date NOT NULL,
+    amount numeric NOT NULL,
+    PRIMARY KEY (account_id, currency, day),
+    CONSTRAINT fk_account
+        FOREIGN KEY(account_id)
+            REFERENCES account(id)
+);
+
+CREATE TABLE balance_snapshot_watermark (
+    day date NOT NULL
+);
+
+INSERT INTO balance_snapshot_watermark(day)
+SELECT coalesce(min(created_at), now()) AT TIME ZONE 'UTC' - interval '1 day' FROM transaction;
+
+-- the delta since the nearest snapshot is read by account and creation time
+CREATE INDEX transaction_account_id_created_at_idx ON transaction (account_id, created_at);
+
+-- the snapshot job reads one day at a time; rows are appended in creation order, so a block range index suffices
+CREATE INDEX transaction_created_at_idx ON transaction USING brin (created_at);
@@ -0,0 +1,8 @@
+-- Position in the local journal up to which transactions have been projected, see JournalProjector.
+-- Only used with bank.journal.enabled=true.
+
+CREATE TABLE journal_projection (
+    position bigint NOT NULL
+);
+
+INSERT INTO journal_projection(position) VALUES (0);
@@ -0,0 +1,7 @@
+-- Requested amount, currency and rate of transactions converted into the currency of the balance on posting,
+-- null for transactions posted in the requested currency.
+
+ALTER TABLE transaction
+    ADD COLUMN original_amount numeric,
+    ADD COLUMN original_currency varchar(255),
+    ADD COLUMN rate numeric;
@@ -0,0 +1,21 @@
+-- A transaction committed after its day of creation has been snapshotted is missing from the snapshots of that day
+-- on, so the watermark is moved back to the day before for BalanceSnapshotService to recompute them.
+-- Checked at commit, and only for transactions created before the current UTC day, under a lock shared with the
+-- snapshot job: the job either has not snapshotted the day yet and sees the transaction, or has moved the
+-- watermark past the day by the time it is checked.
+
+CREATE FUNCTION balance_snapshot_late_transaction() RETURNS trigger AS $$
+BEGIN
+    IF NEW.created_at < date_trunc('day', clock_timestamp() AT TIME ZONE 'UTC') AT TIME ZONE 'UTC' THEN
+        PERFORM pg_advisory_xact_lock_shared(hashtext('balance_snapshot'));
+        UPDATE balance_snapshot_watermark SET day = (NEW.created_at AT TIME ZONE 'UTC')::date - 1
+        WHERE day >= (NEW.created_at AT TIME ZONE 'UTC')::date;
+    END IF;
+    RETURN NULL;
+END
+$$ LANGUAGE plpgsql;
+
+CREATE CONSTRAINT TRIGGER transaction_late_for_snapshot
+    AFTER INSERT ON transaction
+    DEFERRABLE INITIALLY DEFERRED
+    FOR EACH ROW EXECUTE FUNCTION balance_snapshot_late_transaction();
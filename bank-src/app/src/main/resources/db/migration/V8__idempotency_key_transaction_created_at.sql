@@ -0,0 +1,8 @@
+-- Creation time of the transaction of an idempotency key, so that the transaction is looked up in its partition
+-- of the transaction table rather than in all of them.
+
+ALTER TABLE idempotency_key ADD COLUMN transaction_created_at timestamptz;
+
+UPDATE idempotency_key k SET transaction_created_at = t.created_at
+FROM transaction t
+WHERE t.id = k.transaction_id;
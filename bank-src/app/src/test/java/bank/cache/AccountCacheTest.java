@@ -0,0 +1,150 @@
+package bank.cache;
+
+import bank.domain.Account;
+import bank.dto.AccountDto;
+import bank.enums.Country;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountCacheTest {
+
+    private final AccountCache accountCache = new AccountCache();
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private AccountDto current = account();
+
+    private final Function<Long, AccountDto> loader = id -> {
+        loads.incrementAndGet();
+        return current;
+    };
+
+    @BeforeEach
+    void setUp() {
+        accountCache.maximumSize = 2;
+        // evicts on the calling thread, so that the eviction statistics are complete when read
+        accountCache.executor = Runnable::run;
+        accountCache.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void testLoadsOnceAndRecordsStats() {
+        var first = accountCache.get(1L, loader);
+        var second = accountCache.get(1L, loader);
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, accountCache.stats().hitCount());
+        assertEquals(1, accountCache.stats().missCount());
+    }
+
+    @Test
+    void testEvictsBySize() {
+        for (long id = 0; id < 100; id++) {
+            accountCache.get(id, loader);
+        }
+
+        assertTrue(accountCache.stats().evictionCount() >= 98);
+    }
+
+    @Test
+    void testInvalidatesWithoutTransaction() {
+        accountCache.get(1L, loader);
+        current = account();
+
+        accountCache.invalidate(1L);
+
+        assertSame(current, accountCache.get(1L, loader));
+    }
+
+    @Test
+    void testInvalidatesWhenTransactionCommits() {
+        var before = accountCache.get(1L, loader);
+        current = account();
+
+        TransactionSynchronizationManager.initSynchronization();
+        accountCache.invalidate(1L);
+        assertSame(before, accountCache.get(1L, loader));
+
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(s -> s.beforeCommit(false));
+
+        // committing: reads go to the loader and do not populate the cache
+        assertSame(current, accountCache.get(1L, loader));
+        var loadsWhileCommitting = loads.get();
+
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertSame(current, accountCache.get(1L, loader));
+        assertEquals(loadsWhileCommitting + 1, loads.get());
+    }
+
+    @Test
+    void testKeepsEntryWhenTransactionRollsBack() {
+        var before = accountCache.get(1L, loader);
+
+        TransactionSynchronizationManager.initSynchronization();
+        accountCache.invalidate(1L);
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        assertSame(before, accountCache.get(1L, loader));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testDoesNotStoreValueLoadedBeforeCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        accountCache.invalidate(1L);
+        var synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        var stale = current;
+        current = account();
+        var committed = current;
+
+        // the loader reads the account before the transaction commits and returns after it has
+        var loaded = accountCache.get(1L, id -> {
+            synchronizations.forEach(s -> s.beforeCommit(false));
+            synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+            return stale;
+        });
+
+        assertSame(stale, loaded);
+        assertSame(committed, accountCache.get(1L, loader));
+    }
+
+    @Test
+    void testBypassesCacheInsideTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        accountCache.get(1L, loader);
+        accountCache.get(1L, loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, accountCache.stats().requestCount());
+    }
+
+    private static AccountDto account() {
+        return AccountDto.from(new Account().setId(1L).setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE));
+    }
+}
@@ -1,9 +1,11 @@
 package bank.controller;
 
 import bank.TestData;
+import bank.configuration.BankConf;
 import bank.data.AccountMapper;
 import bank.domain.Account;
 import bank.enums.Country;
+import bank.service.AccountService;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +22,7 @@ import java.util.Set;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -38,6 +41,9 @@ public class AccountControllerTest {
     @Autowired
     private AccountMapper accountMapper;
 
+    @Autowired
+    private AccountService accountService;
+
     ObjectMapper objectMapper = new ObjectMapper();
 
     @Test
@@ -62,6 +68,46 @@ public class AccountControllerTest {
                 .andExpect(jsonPath("$.country").value(country.name()));
     }
 
+    @Test
+    void testGetAccountInCbor() throws Exception {
+        var customerId = UUID.randomUUID().toString();
+        var account = new Account().setCustomerId(customerId).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+
+        var response = this.mockMvc
+                .perform(get(AccountController.PATH + "/{id}", account.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var accountDto = BankConf.cborMapper().readTree(response);
+        assertEquals(customerId, accountDto.get("customerId").asText());
+        assertEquals(Country.EE.name(), accountDto.get("country").asText());
+    }
+
+    @Test
+    void testGetBalance() throws Exception {
+        var accountRequest = TestData.generateCreateAccountRequest();
+        var account = accountService.createAccount(accountRequest);
+
+        this.mockMvc
+                .perform(get(AccountController.PATH + "/{id}/balance", account.getId())
+                        .param("at", "2100-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.accountId").value(account.getId()))
+                .andExpect(jsonPath("$.at").value("2100-01-01T00:00:00Z"))
+                .andExpect(jsonPath("$.balances", hasSize(accountRequest.getCurrencies().size())));
+    }
+
+    @Test
+    void testDoesNotGetBalanceOfUnknownAccount() throws Exception {
+        this.mockMvc
+                .perform(get(AccountController.PATH + "/{id}/balance", -1))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testCreateAccount() throws Exception {
         var accountRequest = TestData.generateCreateAccountRequest();
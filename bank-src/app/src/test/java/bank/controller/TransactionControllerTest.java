@@ -1,6 +1,7 @@
 package bank.controller;
 
 import bank.TestData;
+import bank.configuration.BankConf;
 import bank.data.AccountMapper;
 import bank.data.BalanceMapper;
 import bank.data.TransactionMapper;
@@ -9,6 +10,8 @@ import bank.domain.Balance;
 import bank.domain.Transaction;
 import bank.enums.Country;
 import bank.enums.TransactionDirection;
+import bank.request.BatchTransactionRequest;
+import bank.service.TransactionService;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,11 +24,15 @@ import org.springframework.transaction.annotation.Transactional;
 import org.testcontainers.shaded.com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.List;
 import java.util.Random;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -78,6 +85,35 @@ public class TransactionControllerTest {
                 .andExpect(jsonPath("$.description").value(transactionRequest.getDescription()));
     }
 
+    @Test
+    void testCreateTransactionInCbor() throws Exception {
+        var account = new Account()
+                .setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+
+        var balance = new Balance()
+                .setCurrency(Currency.getInstance("EUR")).setAmount(BigDecimal.ZERO);
+        balanceMapper.insertBalance(balance, account);
+
+        var transactionRequest = TestData.generateTransactionRequest(account.getId());
+        var cborMapper = BankConf.cborMapper();
+
+        var response = this.mockMvc
+                .perform(post(TransactionController.PATH)
+                        .content(cborMapper.writeValueAsBytes(transactionRequest))
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        var transaction = cborMapper.readTree(response);
+        assertEquals(account.getId(), transaction.get("accountId").asLong());
+        assertEquals(0, transactionRequest.getAmount().compareTo(transaction.get("amount").decimalValue()));
+        assertEquals("EUR", transaction.get("currency").asText());
+        assertEquals(transactionRequest.getDescription(), transaction.get("description").asText());
+    }
+
     @Test
     void testCreateTransactionThatResultsInNegativeBalance() throws Exception {
         var account = new Account()
@@ -98,6 +134,68 @@ public class TransactionControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void testCreateTransactionWithIdempotencyKeyOnlyOnce() throws Exception {
+        var account = new Account()
+                .setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+
+        var balance = new Balance()
+                .setCurrency(Currency.getInstance("EUR")).setAmount(BigDecimal.ZERO);
+        balanceMapper.insertBalance(balance, account);
+
+        var transactionRequest = TestData.generateTransactionRequest(account.getId());
+        var idempotencyKey = UUID.randomUUID().toString();
+
+        var first = this.mockMvc
+                .perform(post(TransactionController.PATH)
+                        .header(TransactionController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .content(objectMapper.writeValueAsBytes(transactionRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        this.mockMvc
+                .perform(post(TransactionController.PATH)
+                        .header(TransactionController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .content(objectMapper.writeValueAsBytes(transactionRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.transactionId").value(objectMapper.readTree(first).get("transactionId").asLong()));
+
+        assertEquals(1, transactionMapper.selectByAccountId(account.getId()).size());
+    }
+
+    @Test
+    void testCreateTransactionWithReusedIdempotencyKey() throws Exception {
+        var account = new Account()
+                .setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+
+        var balance = new Balance()
+                .setCurrency(Currency.getInstance("EUR")).setAmount(BigDecimal.ZERO);
+        balanceMapper.insertBalance(balance, account);
+
+        var transactionRequest = TestData.generateTransactionRequest(account.getId());
+        var idempotencyKey = UUID.randomUUID().toString();
+
+        this.mockMvc
+                .perform(post(TransactionController.PATH)
+                        .header(TransactionController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .content(objectMapper.writeValueAsBytes(transactionRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated());
+
+        transactionRequest.setAmount(BigDecimal.valueOf(200L));
+
+        this.mockMvc
+                .perform(post(TransactionController.PATH)
+                        .header(TransactionController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                        .content(objectMapper.writeValueAsBytes(transactionRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     void testCreateTransactionWithNullAmount() throws Exception {
         var account = new Account()
@@ -170,6 +268,38 @@ public class TransactionControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void testCreateTransactionAsync() throws Exception {
+        var transactionRequest = TestData.generateTransactionRequest(new Random().nextLong());
+
+        this.mockMvc
+                .perform(post(TransactionController.PATH + "/async")
+                        .content(objectMapper.writeValueAsBytes(transactionRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", startsWith(TransactionController.PATH + "/async/")))
+                .andExpect(jsonPath("$.id").isNotEmpty())
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    void testCreateTransactionAsyncWithNullAmount() throws Exception {
+        var transactionRequest = TestData.generateTransactionRequest(1L).setAmount(null);
+
+        this.mockMvc
+                .perform(post(TransactionController.PATH + "/async")
+                        .content(objectMapper.writeValueAsBytes(transactionRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetUnknownAsyncTransaction() throws Exception {
+        this.mockMvc
+                .perform(get(TransactionController.PATH + "/async/{id}", UUID.randomUUID()))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testGetUnknownAccountTransactions() throws Exception {
         this.mockMvc
@@ -217,4 +347,112 @@ public class TransactionControllerTest {
                 .andExpect(content().contentType("application/json"))
                 .andExpect(jsonPath("$", hasSize(0)));
     }
+
+    @Test
+    void testGetAllAccountTransactionsWithoutPaging() throws Exception {
+        var account = new Account()
+                .setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+
+        var transactions = new ArrayList<Transaction>();
+        for (int i = 0; i < TransactionService.DEFAULT_PAGE_SIZE + 1; i++) {
+            transactions.add(new Transaction()
+                    .setAccountId(account.getId())
+                    .setDirection(TransactionDirection.IN)
+                    .setCurrency(Currency.getInstance("EUR"))
+                    .setBalanceAfter(BigDecimal.valueOf(100L))
+                    .setAmount(BigDecimal.valueOf(50L))
+                    .setDescription("Description"));
+        }
+        transactionMapper.insertTransactions(transactions);
+
+        this.mockMvc
+                .perform(get(TransactionController.PATH + "/{accountId}", account.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(TransactionController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$", hasSize(TransactionService.DEFAULT_PAGE_SIZE + 1)));
+    }
+
+    @Test
+    void testGetAccountTransactionPages() throws Exception {
+        var account = new Account()
+                .setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+
+        var transactions = new ArrayList<Transaction>();
+        for (int i = 0; i < 3; i++) {
+            var transaction = new Transaction()
+                    .setAccountId(account.getId())
+                    .setDirection(TransactionDirection.IN)
+                    .setCurrency(Currency.getInstance("EUR"))
+                    .setBalanceAfter(BigDecimal.valueOf(100L))
+                    .setAmount(BigDecimal.valueOf(50L))
+                    .setDescription("Description");
+            transactionMapper.insertTransaction(transaction);
+            transactions.add(transaction);
+        }
+
+        this.mockMvc
+                .perform(get(TransactionController.PATH + "/{accountId}", account.getId()).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(TransactionController.NEXT_CURSOR_HEADER, transactions.get(1).getId().toString()))
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$.[0].transactionId").value(transactions.get(0).getId()))
+                .andExpect(jsonPath("$.[1].transactionId").value(transactions.get(1).getId()));
+
+        this.mockMvc
+                .perform(get(TransactionController.PATH + "/{accountId}", account.getId())
+                        .param("limit", "2")
+                        .param("after", transactions.get(1).getId().toString()))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(TransactionController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$.[0].transactionId").value(transactions.get(2).getId()));
+    }
+
+    @Test
+    void testStreamUnknownAccountTransactions() throws Exception {
+        this.mockMvc
+                .perform(get(TransactionController.PATH + "/{accountId}/stream", new Random().nextLong()))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testCreateTransactionBatch() throws Exception {
+        var account = new Account()
+                .setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+
+        var balance = new Balance()
+                .setCurrency(Currency.getInstance("EUR")).setAmount(BigDecimal.ZERO);
+        balanceMapper.insertBalance(balance, account);
+
+        var batchRequest = new BatchTransactionRequest().setTransactions(List.of(
+                TestData.generateTransactionRequest(account.getId()),
+                TestData.generateTransactionRequest(account.getId())
+                        .setDirection(TransactionDirection.OUT).setAmount(BigDecimal.valueOf(1000L))
+        ));
+
+        this.mockMvc
+                .perform(post(TransactionController.PATH + "/batch")
+                        .content(objectMapper.writeValueAsBytes(batchRequest))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.created").value(1))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.results", hasSize(2)))
+                .andExpect(jsonPath("$.results[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.results[0].transaction.accountId").value(account.getId()))
+                .andExpect(jsonPath("$.results[1].status").value("REJECTED"));
+    }
+
+    @Test
+    void testCreateEmptyTransactionBatch() throws Exception {
+        this.mockMvc
+                .perform(post(TransactionController.PATH + "/batch")
+                        .content(objectMapper.writeValueAsBytes(new BatchTransactionRequest().setTransactions(List.of())))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,113 @@
+package bank.data;
+
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.enums.Country;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class AccountMapperTest {
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private AccountMapper accountMapper;
+
+    @Autowired
+    private BalanceMapper balanceMapper;
+
+    @Test
+    void testSelectAccountWithBalances() {
+        var account = insertAccount("EUR", "USD");
+
+        var selected = accountMapper.selectAccount(account.getId()).orElseThrow();
+
+        assertEquals(account.getId(), selected.getId());
+        assertEquals(account.getCustomerId(), selected.getCustomerId());
+        assertEquals(account.getCountry(), selected.getCountry());
+        assertEquals(
+                account.getBalances().stream().map(Balance::getId).collect(Collectors.toList()),
+                selected.getBalances().stream().map(Balance::getId).collect(Collectors.toList())
+        );
+        assertEquals(
+                account.getBalances().stream().map(Balance::getCurrency).collect(Collectors.toList()),
+                selected.getBalances().stream().map(Balance::getCurrency).collect(Collectors.toList())
+        );
+    }
+
+    @Test
+    void testSelectAccountWithoutBalances() {
+        var account = insertAccount();
+
+        var selected = accountMapper.selectAccount(account.getId()).orElseThrow();
+
+        assertTrue(selected.getBalances().isEmpty());
+    }
+
+    @Test
+    void testSelectUnknownAccount() {
+        assertTrue(accountMapper.selectAccount(new Random().nextLong()).isEmpty());
+    }
+
+    @Test
+    void testSelectAccounts() {
+        var account1 = insertAccount("EUR");
+        var account2 = insertAccount("EUR", "GBP", "SEK");
+        var account3 = insertAccount();
+
+        var selected = accountMapper.selectAccounts(
+                List.of(account3.getId(), account1.getId(), account2.getId(), new Random().nextLong())
+        );
+
+        assertEquals(
+                List.of(account1.getId(), account2.getId(), account3.getId()),
+                selected.stream().map(Account::getId).collect(Collectors.toList())
+        );
+        assertEquals(1, selected.get(0).getBalances().size());
+        assertEquals(3, selected.get(1).getBalances().size());
+        assertEquals(0, selected.get(2).getBalances().size());
+    }
+
+    @Test
+    void testSelectNoAccounts() {
+        assertTrue(accountMapper.selectAccounts(List.of()).isEmpty());
+    }
+
+    @Test
+    void testInsertAccountWithId() {
+        var id = accountMapper.selectNextAccountId();
+        var account = new Account().setId(id).setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+
+        accountMapper.insertAccount(account);
+
+        assertEquals(id, account.getId());
+        assertEquals(account.getCustomerId(), accountMapper.selectAccount(id).orElseThrow().getCustomerId());
+    }
+
+    private Account insertAccount(String... currencies) {
+        var account = new Account().setCustomerId(UUID.randomUUID().toString()).setCountry(Country.EE);
+        accountMapper.insertAccount(account);
+        for (var currency : currencies) {
+            var balance = new Balance().setCurrency(Currency.getInstance(currency)).setAmount(BigDecimal.ZERO);
+            balanceMapper.insertBalance(balance, account);
+            account.getBalances().add(balance);
+        }
+        return account;
+    }
+}
@@ -0,0 +1,31 @@
+package bank.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LsnTest {
+
+    @Test
+    void testParsesAndFormats() {
+        assertEquals(0x16B374D848L, Lsn.parse("16/B374D848"));
+        assertEquals(0x16B374D848L, Lsn.parse("16/b374d848"));
+        assertEquals(0x300L, Lsn.parse("0/00000300"));
+        assertEquals("16/B374D848", Lsn.format(0x16B374D848L));
+        assertEquals("0/0", Lsn.format(0));
+        assertEquals("FFFFFFFF/FFFFFFFF", Lsn.format(Lsn.parse("FFFFFFFF/FFFFFFFF")));
+    }
+
+    @Test
+    void testOrdersLikePositions() {
+        assertTrue(Lsn.parse("0/FFFFFFFF") < Lsn.parse("1/0"));
+        assertTrue(Lsn.parse("16/B374D848") < Lsn.parse("16/B374D849"));
+    }
+
+    @Test
+    void testRejectsInvalidText() {
+        for (var text : new String[]{"", "16", "16/", "/1", "-1/0", "+1/0", "1/G", "1/2/3", "123456789/0"}) {
+            assertThrows(IllegalArgumentException.class, () -> Lsn.parse(text), text);
+        }
+    }
+}
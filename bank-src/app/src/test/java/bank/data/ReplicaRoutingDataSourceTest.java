@@ -0,0 +1,112 @@
+package bank.data;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = database("0/300");
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        ReplicaRoutingDataSource.clearRequiredLsn();
+    }
+
+    @Test
+    void testRoutesOnlyReadOnlyTransactionsToReplicas() throws SQLException {
+        var replica = database("0/300");
+        var routing = routing(replica);
+
+        assertSame(primary.getConnection(), routing.getConnection());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replica.getConnection(), routing.getConnection());
+    }
+
+    @Test
+    void testBalancesReadsOverReplicas() throws SQLException {
+        var first = database("0/300");
+        var second = database("0/300");
+        var routing = routing(first, second);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        var connections = List.of(routing.getConnection(), routing.getConnection(), routing.getConnection());
+
+        assertNotSame(connections.get(0), connections.get(1));
+        assertSame(connections.get(0), connections.get(2));
+        assertEquals(0, routing.getPrimaryFallbacks());
+    }
+
+    @Test
+    void testReadsFromPrimaryUntilReplicaHasReplayedRequiredLsn() throws SQLException {
+        var behind = database("0/100");
+        var caughtUp = database("0/200");
+        var routing = routing(behind, caughtUp);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        ReplicaRoutingDataSource.requireLsn(Lsn.parse("0/150"));
+        assertSame(caughtUp.getConnection(), routing.getConnection());
+        assertSame(caughtUp.getConnection(), routing.getConnection());
+
+        ReplicaRoutingDataSource.requireLsn(Lsn.parse("0/300"));
+        assertSame(primary.getConnection(), routing.getConnection());
+        assertEquals(1, routing.getPrimaryFallbacks());
+    }
+
+    @Test
+    void testSkipsUnavailableReplicas() throws SQLException {
+        var unreachable = mock(DataSource.class);
+        when(unreachable.getConnection()).thenThrow(new SQLException("Connection refused"));
+        var notReplica = database(null);
+        var routing = routing(unreachable, notReplica);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primary.getConnection(), routing.getConnection());
+        assertEquals(1, routing.getPrimaryFallbacks());
+    }
+
+    @Test
+    void testReadsCurrentLsnOfPrimary() {
+        assertEquals(0x300, routing().currentPrimaryLsn());
+    }
+
+    private ReplicaRoutingDataSource routing(DataSource... replicas) {
+        var routing = new ReplicaRoutingDataSource(primary, List.of(replicas));
+        routing.refreshReplayLsns();
+        return routing;
+    }
+
+    /**
+     * Database answering every query with the log sequence number, always handing out the same connection
+     */
+    private static DataSource database(String lsn) {
+        try {
+            var resultSet = mock(ResultSet.class);
+            when(resultSet.next()).thenReturn(true);
+            when(resultSet.getString(1)).thenReturn(lsn);
+            var statement = mock(Statement.class);
+            when(statement.executeQuery(anyString())).thenReturn(resultSet);
+            var connection = mock(Connection.class);
+            when(connection.createStatement()).thenReturn(statement);
+            var dataSource = mock(DataSource.class);
+            when(dataSource.getConnection()).thenReturn(connection);
+            return dataSource;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
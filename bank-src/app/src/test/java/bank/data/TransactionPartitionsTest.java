@@ -0,0 +1,86 @@
+package bank.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionPartitionsTest {
+
+    @Mock
+    private TransactionPartitionMapper transactionPartitionMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private TransactionPartitions transactionPartitions;
+
+    @BeforeEach
+    void setUp() {
+        transactionPartitions.clock = Clock.fixed(Instant.parse("2026-11-30T23:30:00Z"), ZoneOffset.UTC);
+        transactionPartitions.premakeMonths = 2;
+    }
+
+    @Test
+    void testCreatesMissingPartitionsAhead() {
+        when(transactionPartitionMapper.tryLockMaintenance()).thenReturn(true);
+        when(transactionPartitionMapper.selectPartitionNames())
+                .thenReturn(List.of("transaction_legacy", "transaction_p202611"));
+
+        transactionPartitions.maintain();
+
+        verify(transactionPartitionMapper).createPartition(
+                "transaction_p202612", Instant.parse("2026-12-01T00:00:00Z"), Instant.parse("2027-01-01T00:00:00Z")
+        );
+        verify(transactionPartitionMapper).createPartition(
+                "transaction_p202701", Instant.parse("2027-01-01T00:00:00Z"), Instant.parse("2027-02-01T00:00:00Z")
+        );
+        verify(transactionPartitionMapper, times(2)).createPartition(anyString(), any(), any());
+        verify(transactionPartitionMapper, never()).detachPartition(anyString());
+    }
+
+    @Test
+    void testArchivesPartitionsOlderThanRetention() {
+        transactionPartitions.retentionMonths = 12;
+        when(transactionPartitionMapper.tryLockMaintenance()).thenReturn(true);
+        when(transactionPartitionMapper.selectPartitionNames()).thenReturn(List.of(
+                "transaction_legacy", "transaction_p202510", "transaction_p202511", "transaction_p202509",
+                "transaction_p202611", "transaction_p202612", "transaction_p202701"
+        ));
+
+        transactionPartitions.maintain();
+
+        InOrder inOrder = inOrder(transactionPartitionMapper);
+        inOrder.verify(transactionPartitionMapper).detachPartition("transaction_p202509");
+        inOrder.verify(transactionPartitionMapper).archivePartition("transaction_p202509");
+        inOrder.verify(transactionPartitionMapper).detachPartition("transaction_p202510");
+        inOrder.verify(transactionPartitionMapper).archivePartition("transaction_p202510");
+        verify(transactionPartitionMapper, times(2)).detachPartition(anyString());
+        verify(transactionPartitionMapper, never()).createPartition(anyString(), any(), any());
+    }
+
+    @Test
+    void testSkipsMaintenanceWhenLockedByAnotherNode() {
+        when(transactionPartitionMapper.tryLockMaintenance()).thenReturn(false);
+
+        transactionPartitions.maintain();
+
+        verify(transactionPartitionMapper, never()).selectPartitionNames();
+        verify(transactionPartitionMapper, never()).createPartition(anyString(), any(), any());
+    }
+}
@@ -0,0 +1,96 @@
+package bank.dto;
+
+import bank.configuration.BankConf;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.Transaction;
+import bank.enums.Country;
+import bank.enums.TransactionDirection;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The dto serializers write the same as Jackson's bean serialization, and CBOR payloads are smaller than JSON
+ */
+class DtoSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final Transaction transaction = new Transaction()
+            .setId(1L)
+            .setAccountId(2L)
+            .setAmount(new BigDecimal("100.00"))
+            .setCurrency(Currency.getInstance("EUR"))
+            .setDirection(TransactionDirection.OUT)
+            .setDescription("Transaction \"description\" \u00e4")
+            .setBalanceAfter(new BigDecimal("1334.56"))
+            .setCreatedAt(Instant.parse("2022-01-01T12:00:00.123456Z"));
+
+    @Test
+    void testSerializesTransactionDto() throws Exception {
+        assertSerializedAsBean(objectMapper, TransactionDto.from(transaction));
+        assertSerializedAsBean(BankConf.cborMapper(), TransactionDto.from(transaction));
+    }
+
+    @Test
+    void testSerializesConvertedTransactionDto() throws Exception {
+        var converted = TransactionDto.from(new Transaction()
+                .setAmount(new BigDecimal("6.68"))
+                .setCurrency(Currency.getInstance("USD"))
+                .setOriginalAmount(new BigDecimal("1000"))
+                .setOriginalCurrency(Currency.getInstance("JPY"))
+                .setRate(new BigDecimal("0.006678780412688635")));
+
+        assertSerializedAsBean(objectMapper, converted);
+        assertSerializedAsBean(BankConf.cborMapper(), converted);
+    }
+
+    @Test
+    void testSerializesTransactionDtoWithNulls() throws Exception {
+        assertSerializedAsBean(objectMapper, TransactionDto.from(new Transaction()));
+    }
+
+    @Test
+    void testSerializesAccountDto() throws Exception {
+        var account = new Account().setId(1L).setCustomerId("CUSTOMER").setCountry(Country.EE);
+        account.getBalances().add(new Balance().setCurrency(Currency.getInstance("EUR")).setAmount(new BigDecimal("1.50")));
+        account.getBalances().add(new Balance().setCurrency(Currency.getInstance("USD")).setAmount(BigDecimal.ZERO));
+
+        assertSerializedAsBean(objectMapper, AccountDto.from(account));
+        assertSerializedAsBean(BankConf.cborMapper(), AccountDto.from(account));
+        assertSerializedAsBean(objectMapper, AccountDto.from(new Account()));
+    }
+
+    @Test
+    void testWritesSmallerPayloadsInCbor() throws Exception {
+        var account = new Account().setId(1L).setCustomerId("CUSTOMER").setCountry(Country.EE);
+        account.getBalances().add(new Balance().setCurrency(Currency.getInstance("EUR")).setAmount(new BigDecimal("1.50")));
+        var cborMapper = BankConf.cborMapper();
+
+        for (var dto : new Object[]{TransactionDto.from(transaction), AccountDto.from(account)}) {
+            assertTrue(cborMapper.writeValueAsBytes(dto).length < objectMapper.writeValueAsBytes(dto).length);
+        }
+    }
+
+    private static void assertSerializedAsBean(ObjectMapper mapper, Object dto) throws Exception {
+        var beanMapper = mapper.copy().disable(MapperFeature.USE_ANNOTATIONS);
+        if (mapper.getFactory().canHandleBinaryNatively()) {
+            assertArrayEquals(beanMapper.writeValueAsBytes(dto), mapper.writeValueAsBytes(dto));
+        } else {
+            assertEquals(beanMapper.writeValueAsString(dto), mapper.writeValueAsString(dto));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package bank.engine;
+
+import bank.TestData;
+import bank.domain.Transaction;
+import bank.dto.PostingStatusDto;
+import bank.dto.TransactionDto;
+import bank.enums.PostingStatus;
+import bank.exception.InsufficientFundsException;
+import bank.exception.InvalidCurrencyException;
+import bank.exception.PostingQueueFullException;
+import bank.request.TransactionRequest;
+import bank.service.IdempotencyService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.Currency;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncPostingTest {
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @InjectMocks
+    private AsyncPosting asyncPosting;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        asyncPosting.shutdown();
+    }
+
+    @Test
+    void testPostsAcceptedRequest() throws Exception {
+        var request = TestData.generateTransactionRequest(1L);
+        when(idempotencyService.createTransaction(request, null)).thenReturn(created(request));
+        asyncPosting.init();
+
+        var pending = asyncPosting.accept(request, null);
+
+        assertEquals(PostingStatus.PENDING, pending.getStatus());
+        var status = await(pending.getId());
+        assertEquals(PostingStatus.CREATED, status.getStatus());
+        assertEquals(1L, status.getTransaction().getAccountId());
+    }
+
+    @Test
+    void testPostsWithIdempotencyKey() throws Exception {
+        var request = TestData.generateTransactionRequest(1L);
+        when(idempotencyService.createTransaction(request, "key")).thenReturn(created(request));
+        asyncPosting.init();
+
+        var status = await(asyncPosting.accept(request, "key").getId());
+
+        assertEquals(PostingStatus.CREATED, status.getStatus());
+    }
+
+    @Test
+    void testReportsRejectedAndFailedRequests() throws Exception {
+        var rejected = TestData.generateTransactionRequest(1L);
+        var failed = TestData.generateTransactionRequest(2L);
+        when(idempotencyService.createTransaction(rejected, null)).thenThrow(new InsufficientFundsException());
+        when(idempotencyService.createTransaction(failed, null)).thenThrow(new QueryTimeoutException("timeout"));
+        asyncPosting.init();
+
+        var rejectedStatus = await(asyncPosting.accept(rejected, null).getId());
+        var failedStatus = await(asyncPosting.accept(failed, null).getId());
+
+        assertEquals(PostingStatus.REJECTED, rejectedStatus.getStatus());
+        assertEquals(new InsufficientFundsException().getMessage(), rejectedStatus.getError());
+        assertEquals(PostingStatus.FAILED, failedStatus.getStatus());
+        assertNull(failedStatus.getError());
+    }
+
+    @Test
+    void testRefusesRequestsWhenQueueIsFull() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(idempotencyService.createTransaction(any(), isNull())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return created(invocation.getArgument(0));
+        });
+        asyncPosting.threads = 1;
+        asyncPosting.queueCapacity = 1;
+        asyncPosting.init();
+
+        var running = asyncPosting.accept(TestData.generateTransactionRequest(1L), null);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        var queued = asyncPosting.accept(TestData.generateTransactionRequest(2L), null);
+        assertThrows(PostingQueueFullException.class,
+                () -> asyncPosting.accept(TestData.generateTransactionRequest(3L), null));
+        release.countDown();
+
+        assertEquals(PostingStatus.CREATED, await(running.getId()).getStatus());
+        assertEquals(PostingStatus.CREATED, await(queued.getId()).getStatus());
+        verify(idempotencyService, times(2)).createTransaction(any(), isNull());
+    }
+
+    @Test
+    void testValidatesCurrencyBeforeAccepting() {
+        asyncPosting.init();
+        var request = TestData.generateTransactionRequest(1L).setCurrency(Currency.getInstance("JPY"));
+
+        assertThrows(InvalidCurrencyException.class, () -> asyncPosting.accept(request, null));
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    void testDoesNotFindUnknownRequest() {
+        asyncPosting.init();
+
+        assertTrue(asyncPosting.find(UUID.randomUUID()).isEmpty());
+    }
+
+    private PostingStatusDto await(UUID id) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            var status = asyncPosting.find(id).orElseThrow();
+            if (status.getStatus() != PostingStatus.PENDING) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Request " + id + " was not posted");
+    }
+
+    private static TransactionDto created(TransactionRequest request) {
+        return TransactionDto.from(new Transaction()
+                .setAccountId(request.getAccountId())
+                .setAmount(request.getAmount())
+                .setCurrency(request.getCurrency())
+                .setDirection(request.getDirection()));
+    }
+}
@@ -0,0 +1,352 @@
+package bank.engine;
+
+import bank.SynchronizingTransactionManager;
+import bank.data.AccountMapper;
+import bank.data.BalanceMapper;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.BalanceChange;
+import bank.enums.Country;
+import bank.exception.AccountNotFoundException;
+import bank.exception.InsufficientFundsException;
+import bank.exception.InvalidCurrencyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BalanceEngineTest {
+
+    private static final Long ACCOUNT_ID = 1L;
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @Mock
+    private AccountMapper accountMapper;
+
+    @Mock
+    private BalanceMapper balanceMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private BalanceEngine balanceEngine;
+
+    private final AtomicReference<BigDecimal> persisted = new AtomicReference<>(BigDecimal.ZERO);
+
+    @BeforeEach
+    void setUp() {
+        balanceEngine.init();
+
+        when(accountMapper.selectAccount(anyLong())).thenReturn(Optional.empty());
+        when(accountMapper.selectAccount(ACCOUNT_ID)).thenAnswer(invocation -> Optional.of(account(BigDecimal.TEN)));
+
+        doAnswer(this::persist).when(balanceMapper).updateBalances(anyList());
+    }
+
+    @Test
+    void testAppliesChange() {
+        assertEquals(BigDecimal.valueOf(15), balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(5)));
+        assertEquals(BigDecimal.valueOf(12), balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(-3)));
+
+        balanceEngine.flush();
+
+        assertEquals(BigDecimal.valueOf(2), persisted.get());
+    }
+
+    @Test
+    void testRejectsChangeThatWouldResultInNegativeBalance() {
+        assertThrows(
+                InsufficientFundsException.class,
+                () -> balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(-11))
+        );
+
+        balanceEngine.flush();
+
+        verify(balanceMapper, never()).updateBalances(anyList());
+    }
+
+    @Test
+    void testRejectsUnknownCurrency() {
+        assertThrows(
+                InvalidCurrencyException.class,
+                () -> balanceEngine.apply(ACCOUNT_ID, Currency.getInstance("USD"), BigDecimal.ONE)
+        );
+    }
+
+    @Test
+    void testRejectsUnknownAccount() {
+        assertThrows(
+                AccountNotFoundException.class,
+                () -> balanceEngine.apply(2L, EUR, BigDecimal.ONE)
+        );
+    }
+
+    @Test
+    void testRetainsChangesWhenFlushFails() {
+        doThrow(new IllegalStateException()).doAnswer(this::persist).when(balanceMapper).updateBalances(anyList());
+        balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.ONE);
+
+        assertThrows(IllegalStateException.class, () -> balanceEngine.flush());
+        balanceEngine.flush();
+
+        assertEquals(BigDecimal.ONE, persisted.get());
+    }
+
+    @Test
+    void testOverlaysCommittedBalance() {
+        balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(5));
+
+        var account = account(BigDecimal.TEN);
+        balanceEngine.overlay(account);
+
+        assertEquals(BigDecimal.valueOf(15), account.getBalances().get(0).getAmount());
+    }
+
+    @Test
+    void testUncommittedCreditCannotBeSpentByOtherTransactions() throws Exception {
+        var transactions = new TransactionTemplate(new SynchronizingTransactionManager());
+        var credited = new CountDownLatch(1);
+        var rollBack = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var credit = executor.submit(() -> transactions.executeWithoutResult(status -> {
+                balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(5));
+                credited.countDown();
+                await(rollBack);
+                status.setRollbackOnly();
+            }));
+            assertTrue(credited.await(1, TimeUnit.MINUTES));
+
+            assertThrows(InsufficientFundsException.class, () -> transactions.executeWithoutResult(
+                    status -> balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(-12))));
+
+            rollBack.countDown();
+            credit.get(1, TimeUnit.MINUTES);
+        } finally {
+            shutdown(executor);
+        }
+
+        balanceEngine.flush();
+
+        assertEquals(BigDecimal.TEN, balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.ZERO));
+        verify(balanceMapper, never()).updateBalances(anyList());
+    }
+
+    @Test
+    void testUncommittedDebitIsReservedUntilRollback() throws Exception {
+        var transactions = new TransactionTemplate(new SynchronizingTransactionManager());
+        var debited = new CountDownLatch(1);
+        var rollBack = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var debit = executor.submit(() -> transactions.executeWithoutResult(status -> {
+                balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(-7));
+                debited.countDown();
+                await(rollBack);
+                status.setRollbackOnly();
+            }));
+            assertTrue(debited.await(1, TimeUnit.MINUTES));
+
+            assertThrows(InsufficientFundsException.class, () -> transactions.executeWithoutResult(
+                    status -> balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(-7))));
+
+            rollBack.countDown();
+            debit.get(1, TimeUnit.MINUTES);
+        } finally {
+            shutdown(executor);
+        }
+
+        var balanceAfter = transactions.execute(status -> balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(-7)));
+        balanceEngine.flush();
+
+        assertEquals(BigDecimal.valueOf(3), balanceAfter);
+        assertEquals(BigDecimal.valueOf(-7), persisted.get());
+    }
+
+    @Test
+    void testUncommittedDebitDoesNotChangeOtherBalanceAfter() throws Exception {
+        var transactions = new TransactionTemplate(new SynchronizingTransactionManager());
+        var debited = new CountDownLatch(1);
+        var rollBack = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var debit = executor.submit(() -> transactions.executeWithoutResult(status -> {
+                balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(-7));
+                debited.countDown();
+                await(rollBack);
+                status.setRollbackOnly();
+            }));
+            assertTrue(debited.await(1, TimeUnit.MINUTES));
+
+            var balanceAfter = transactions.execute(status -> balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.ONE));
+
+            assertEquals(BigDecimal.valueOf(11), balanceAfter);
+
+            rollBack.countDown();
+            debit.get(1, TimeUnit.MINUTES);
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    void testReportsUnflushedChangesOfSettledAccount() {
+        balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(5));
+        var stamp = balanceEngine.stamp(ACCOUNT_ID);
+
+        assertEquals(Optional.of(Map.of(EUR, BigDecimal.valueOf(5))),
+                balanceEngine.unflushed(ACCOUNT_ID, stamp));
+
+        balanceEngine.flush();
+
+        assertTrue(balanceEngine.unflushed(ACCOUNT_ID, stamp).isEmpty());
+        assertEquals(Optional.of(Map.of(EUR, BigDecimal.ZERO)),
+                balanceEngine.unflushed(ACCOUNT_ID, balanceEngine.stamp(ACCOUNT_ID)));
+        assertEquals(Optional.of(Map.of()), balanceEngine.unflushed(2L, balanceEngine.stamp(2L)));
+    }
+
+    @Test
+    void testAccountIsNotSettledWhileTransactionIsUnderWay() {
+        var transactions = new TransactionTemplate(new SynchronizingTransactionManager());
+
+        transactions.executeWithoutResult(status -> {
+            balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(5));
+
+            assertTrue(balanceEngine.unflushed(ACCOUNT_ID, balanceEngine.stamp(ACCOUNT_ID)).isEmpty());
+        });
+
+        assertTrue(balanceEngine.unflushed(ACCOUNT_ID, balanceEngine.stamp(ACCOUNT_ID)).isPresent());
+    }
+
+    @Test
+    void testTransactionSpendsItsOwnCredit() {
+        var transactions = new TransactionTemplate(new SynchronizingTransactionManager());
+
+        var balanceAfter = transactions.execute(status -> {
+            balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(5));
+            return balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(-12));
+        });
+        balanceEngine.flush();
+
+        assertEquals(BigDecimal.valueOf(3), balanceAfter);
+        assertEquals(BigDecimal.valueOf(3), balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.ZERO));
+        assertEquals(BigDecimal.valueOf(-7), persisted.get());
+    }
+
+    @Test
+    void testConcurrentChangesOnSingleAccount() throws Exception {
+        int threads = 16;
+        int operationsPerThread = 5_000;
+        var executor = Executors.newFixedThreadPool(threads + 1);
+        var start = new CountDownLatch(1);
+        var running = new AtomicBoolean(true);
+        var applied = new AtomicLong();
+
+        try {
+            var flusher = executor.submit(() -> {
+                while (running.get()) {
+                    balanceEngine.flush();
+                }
+            });
+
+            var workers = new ArrayList<Future<?>>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    var random = ThreadLocalRandom.current();
+                    for (int j = 0; j < operationsPerThread; j++) {
+                        long change = random.nextBoolean() ? 1 : -2;
+                        try {
+                            var balanceAfter = balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.valueOf(change));
+                            assertTrue(balanceAfter.signum() >= 0);
+                            applied.addAndGet(change);
+                        } catch (InsufficientFundsException e) {
+                            // expected whenever a debit races the balance to zero
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (var worker : workers) {
+                worker.get(1, TimeUnit.MINUTES);
+            }
+            running.set(false);
+            flusher.get(1, TimeUnit.MINUTES);
+        } finally {
+            shutdown(executor);
+        }
+
+        balanceEngine.flush();
+
+        var expected = BigDecimal.TEN.add(BigDecimal.valueOf(applied.get()));
+        var account = account(BigDecimal.TEN);
+        balanceEngine.overlay(account);
+
+        assertTrue(expected.signum() >= 0);
+        assertEquals(expected, account.getBalances().get(0).getAmount());
+        assertEquals(BigDecimal.valueOf(applied.get()), persisted.get());
+        assertEquals(expected, balanceEngine.apply(ACCOUNT_ID, EUR, BigDecimal.ZERO));
+    }
+
+    private Object persist(InvocationOnMock invocation) {
+        List<BalanceChange> changes = invocation.getArgument(0);
+        changes.forEach(c -> persisted.accumulateAndGet(c.getChange(), BigDecimal::add));
+        return null;
+    }
+
+    private static Account account(BigDecimal amount) {
+        var account = new Account()
+                .setId(ACCOUNT_ID)
+                .setCustomerId("CUSTOMER")
+                .setCountry(Country.EE);
+        account.getBalances().add(new Balance().setId(10L).setCurrency(EUR).setAmount(amount));
+        return account;
+    }
+
+    private static void shutdown(ExecutorService executor) throws InterruptedException {
+        executor.shutdownNow();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(1, TimeUnit.MINUTES));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package bank.engine;
+
+import bank.TestData;
+import bank.domain.Transaction;
+import bank.dto.TransactionDto;
+import bank.dto.TransactionResult;
+import bank.exception.InsufficientFundsException;
+import bank.exception.PostingQueueFullException;
+import bank.exception.PostingTimeoutException;
+import bank.request.TransactionRequest;
+import bank.service.TransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostingLanesTest {
+
+    @Mock
+    private TransactionService transactionService;
+
+    @InjectMocks
+    private PostingLanes postingLanes;
+
+    private final List<List<TransactionRequest>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        postingLanes.shutdown();
+    }
+
+    @Test
+    void testCoalescesRequestsQueuedWhileLaneIsBusy() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(transactionService.postTransactions(anyList())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return created(invocation);
+        });
+        postingLanes.laneCount = 1;
+        postingLanes.init();
+
+        var first = postingLanes.submit(TestData.generateTransactionRequest(1L));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        var queued = new ArrayList<CompletableFuture<TransactionResult>>();
+        for (long accountId = 2; accountId <= 4; accountId++) {
+            queued.add(postingLanes.submit(TestData.generateTransactionRequest(accountId)));
+        }
+        release.countDown();
+
+        assertEquals(1L, first.get(10, TimeUnit.SECONDS).getOrThrow().getAccountId());
+        for (int i = 0; i < queued.size(); i++) {
+            assertEquals(i + 2L, queued.get(i).get(10, TimeUnit.SECONDS).getOrThrow().getAccountId());
+        }
+        assertEquals(List.of(1, 3), batches.stream().map(List::size).toList());
+    }
+
+    @Test
+    void testWaitsForMoreRequestsUpToBatchDelay() throws Exception {
+        when(transactionService.postTransactions(anyList())).thenAnswer(this::created);
+        postingLanes.laneCount = 1;
+        postingLanes.maxBatchDelayMicros = TimeUnit.SECONDS.toMicros(1);
+        postingLanes.init();
+
+        var futures = new ArrayList<CompletableFuture<TransactionResult>>();
+        for (long accountId = 1; accountId <= 3; accountId++) {
+            futures.add(postingLanes.submit(TestData.generateTransactionRequest(accountId)));
+        }
+        for (var future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertEquals(List.of(3), batches.stream().map(List::size).toList());
+    }
+
+    @Test
+    void testPostsFullBatchWithoutWaitingForDelay() throws Exception {
+        when(transactionService.postTransactions(anyList())).thenAnswer(this::created);
+        postingLanes.laneCount = 1;
+        postingLanes.maxBatchSize = 2;
+        postingLanes.maxBatchDelayMicros = TimeUnit.MINUTES.toMicros(1);
+        postingLanes.init();
+
+        var first = postingLanes.submit(TestData.generateTransactionRequest(1L));
+        var second = postingLanes.submit(TestData.generateTransactionRequest(2L));
+
+        assertEquals(2L, second.get(10, TimeUnit.SECONDS).getOrThrow().getAccountId());
+        assertTrue(first.isDone());
+        assertEquals(List.of(2), batches.stream().map(List::size).toList());
+    }
+
+    @Test
+    void testPostsRequestsOfAccountInSubmissionOrder() throws Exception {
+        when(transactionService.postTransactions(anyList())).thenAnswer(this::created);
+        postingLanes.init();
+
+        var futures = new ArrayList<CompletableFuture<TransactionResult>>();
+        for (int i = 0; i < 1000; i++) {
+            futures.add(postingLanes.submit(TestData.generateTransactionRequest(7L).setAmount(BigDecimal.valueOf(i))));
+        }
+        for (var future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        var amounts = new ArrayList<BigDecimal>();
+        batches.forEach(batch -> batch.forEach(request -> amounts.add(request.getAmount())));
+        for (int i = 0; i < amounts.size(); i++) {
+            assertEquals(BigDecimal.valueOf(i), amounts.get(i));
+        }
+        assertEquals(1000, amounts.size());
+    }
+
+    @Test
+    void testThrowsReasonOfRejection() {
+        when(transactionService.postTransactions(anyList()))
+                .thenReturn(List.of(TransactionResult.rejected(new InsufficientFundsException())));
+        postingLanes.init();
+
+        assertThrows(
+                InsufficientFundsException.class,
+                () -> postingLanes.post(TestData.generateTransactionRequest(1L))
+        );
+    }
+
+    @Test
+    void testFailsOnlyRequestThatCannotBePosted() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(transactionService.postTransactions(anyList())).thenAnswer(invocation -> {
+            List<TransactionRequest> requests = invocation.getArgument(0);
+            if (requests.get(0).getAccountId() == 1L) {
+                started.countDown();
+                release.await();
+            }
+            if (requests.stream().anyMatch(request -> request.getAccountId() == 3L)) {
+                throw new QueryTimeoutException("timeout");
+            }
+            return created(invocation);
+        });
+        postingLanes.laneCount = 1;
+        postingLanes.init();
+
+        var first = postingLanes.submit(TestData.generateTransactionRequest(1L));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        var queued = new ArrayList<CompletableFuture<TransactionResult>>();
+        for (long accountId = 2; accountId <= 6; accountId++) {
+            queued.add(postingLanes.submit(TestData.generateTransactionRequest(accountId)));
+        }
+        release.countDown();
+
+        assertEquals(1L, first.get(10, TimeUnit.SECONDS).getOrThrow().getAccountId());
+        for (int i = 0; i < queued.size(); i++) {
+            var accountId = i + 2L;
+            if (accountId == 3L) {
+                var e = assertThrows(ExecutionException.class, () -> queued.get(1).get(10, TimeUnit.SECONDS));
+                assertTrue(e.getCause() instanceof QueryTimeoutException);
+            } else {
+                assertEquals(accountId, queued.get(i).get(10, TimeUnit.SECONDS).getOrThrow().getAccountId());
+            }
+        }
+        assertEquals(List.of(1L, 2L, 4L, 5L, 6L),
+                batches.stream().flatMap(List::stream).map(TransactionRequest::getAccountId).toList());
+    }
+
+    @Test
+    void testFailsRequestWhenPostingFails() {
+        when(transactionService.postTransactions(anyList())).thenThrow(new QueryTimeoutException("timeout"));
+        postingLanes.init();
+
+        var future = postingLanes.submit(TestData.generateTransactionRequest(1L));
+
+        var e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof QueryTimeoutException);
+        assertThrows(QueryTimeoutException.class, () -> postingLanes.post(TestData.generateTransactionRequest(1L)));
+    }
+
+    @Test
+    void testBoundsWaitForCommitAndQueue() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(transactionService.postTransactions(anyList())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return created(invocation);
+        });
+        postingLanes.laneCount = 1;
+        postingLanes.timeoutMillis = 100;
+        postingLanes.init();
+
+        // posted, but not committed in time
+        assertThrows(PostingTimeoutException.class, () -> postingLanes.post(TestData.generateTransactionRequest(1L)));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        // still queued behind it, so taken back and never posted
+        assertThrows(PostingQueueFullException.class, () -> postingLanes.post(TestData.generateTransactionRequest(2L)));
+        release.countDown();
+        postingLanes.submit(TestData.generateTransactionRequest(3L)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(List.of(1L, 3L), batches.stream().flatMap(List::stream).map(TransactionRequest::getAccountId).toList());
+    }
+
+    @Test
+    void testRejectsRequestWhenQueueStaysFull() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(transactionService.postTransactions(anyList())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return created(invocation);
+        });
+        postingLanes.laneCount = 1;
+        postingLanes.queueCapacity = 1;
+        postingLanes.timeoutMillis = 100;
+        postingLanes.init();
+
+        var posting = postingLanes.submit(TestData.generateTransactionRequest(1L));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        var queued = postingLanes.submit(TestData.generateTransactionRequest(2L));
+
+        assertThrows(PostingQueueFullException.class, () -> postingLanes.submit(TestData.generateTransactionRequest(3L)));
+        release.countDown();
+        posting.get(10, TimeUnit.SECONDS);
+        queued.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testPostsQueuedRequestsOnShutdownAndRejectsNewOnes() throws Exception {
+        var started = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        when(transactionService.postTransactions(anyList())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return created(invocation);
+        });
+        postingLanes.laneCount = 1;
+        postingLanes.init();
+
+        var first = postingLanes.submit(TestData.generateTransactionRequest(1L));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        var queued = postingLanes.submit(TestData.generateTransactionRequest(2L));
+        var accepted = new ArrayList<CompletableFuture<TransactionResult>>();
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var shutdown = executor.submit(() -> {
+                postingLanes.shutdown();
+                return null;
+            });
+            // accepted until the shutdown has begun, and posted before it ends
+            CompletableFuture<TransactionResult> next;
+            while (accepted.size() < 1000 && (next = trySubmit(TestData.generateTransactionRequest(3L))) != null) {
+                accepted.add(next);
+            }
+            release.countDown();
+            shutdown.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThrows(IllegalStateException.class, () -> postingLanes.submit(TestData.generateTransactionRequest(4L)));
+
+        assertEquals(1L, first.get(10, TimeUnit.SECONDS).getOrThrow().getAccountId());
+        assertEquals(2L, queued.get(10, TimeUnit.SECONDS).getOrThrow().getAccountId());
+        for (var future : accepted) {
+            assertEquals(3L, future.get(10, TimeUnit.SECONDS).getOrThrow().getAccountId());
+        }
+    }
+
+    @Test
+    void testPostsKeyedRequestWithItsKey() {
+        when(transactionService.postTransactions(anyList(), anyList())).thenAnswer(this::created);
+        postingLanes.init();
+
+        var request = TestData.generateTransactionRequest(2L);
+        assertEquals(2L, postingLanes.post(request, "key").getAccountId());
+
+        verify(transactionService).postTransactions(List.of(request), List.of("key"));
+        verify(transactionService, never()).postTransactions(anyList());
+    }
+
+    private CompletableFuture<TransactionResult> trySubmit(TransactionRequest request) {
+        try {
+            return postingLanes.submit(request);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private List<TransactionResult> created(InvocationOnMock invocation) {
+        List<TransactionRequest> requests = List.copyOf(invocation.getArgument(0));
+        batches.add(requests);
+
+        var results = new ArrayList<TransactionResult>();
+        for (var request : requests) {
+            results.add(TransactionResult.created(TransactionDto.from(new Transaction()
+                    .setId((long) results.size())
+                    .setAccountId(request.getAccountId())
+                    .setAmount(request.getAmount())
+                    .setCurrency(request.getCurrency())
+                    .setDirection(request.getDirection())
+                    .setDescription(request.getDescription())
+                    .setBalanceAfter(request.getAmount()))));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,57 @@
+package bank.fx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileFxRateProviderTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testLoadsRatesFromFile() throws Exception {
+        var file = directory.resolve("rates.properties");
+        Files.writeString(file, "base=EUR\nUSD = 1.25\nJPY=160\n");
+        var provider = new FileFxRateProvider();
+        provider.location = new FileSystemResource(file);
+
+        var rates = provider.load();
+
+        assertEquals(Currency.getInstance("EUR"), rates.getBase());
+        assertEquals(new BigDecimal("128"), rates.rate(Currency.getInstance("USD"), Currency.getInstance("JPY")));
+
+        Files.writeString(file, "base=EUR\nUSD=1.5\n");
+        assertEquals(new BigDecimal("1.5"), provider.load().rate(Currency.getInstance("EUR"), Currency.getInstance("USD")));
+    }
+
+    @Test
+    void testLoadsBundledRates() {
+        var provider = new FileFxRateProvider();
+        provider.location = new ClassPathResource("fx-rates.properties");
+
+        var rates = provider.load();
+
+        for (var currency : new String[]{"EUR", "USD", "GBP", "SEK"}) {
+            assertTrue(rates.isQuoted(Currency.getInstance(currency)));
+        }
+    }
+
+    @Test
+    void testRejectsFileWithoutBase() throws Exception {
+        var file = directory.resolve("rates.properties");
+        Files.writeString(file, "USD=1.25\n");
+        var provider = new FileFxRateProvider();
+        provider.location = new FileSystemResource(file);
+
+        assertThrows(IllegalStateException.class, provider::load);
+    }
+}
@@ -0,0 +1,86 @@
+package bank.fx;
+
+import bank.exception.InvalidCurrencyException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FxRateServiceTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency SEK = Currency.getInstance("SEK");
+    private static final Currency JPY = Currency.getInstance("JPY");
+    private static final Currency CHF = Currency.getInstance("CHF");
+
+    private static final FxRates RATES = new FxRates(EUR, Map.of(USD, new BigDecimal("1.1"), JPY, new BigDecimal("160")));
+
+    @Mock
+    private FxRateProvider fxRateProvider;
+
+    @InjectMocks
+    private FxRateService fxRateService;
+
+    @BeforeEach
+    void setUp() {
+        fxRateService.autoConvert = true;
+        fxRateService.settlementCurrencies = new Currency[]{EUR, USD, SEK};
+    }
+
+    @Test
+    void testReplacesRatesOnRefresh() {
+        var refreshed = new FxRates(EUR, Map.of(USD, new BigDecimal("1.2")));
+        when(fxRateProvider.load()).thenReturn(RATES, refreshed);
+        fxRateService.init();
+        var snapshot = fxRateService.getRates();
+
+        fxRateService.refresh();
+
+        assertSame(refreshed, fxRateService.getRates());
+        assertEquals(new BigDecimal("1.1"), snapshot.rate(EUR, USD));
+    }
+
+    @Test
+    void testKeepsRatesWhenRefreshFails() {
+        when(fxRateProvider.load()).thenReturn(RATES).thenThrow(new IllegalStateException("unavailable"));
+        fxRateService.init();
+
+        fxRateService.refresh();
+
+        assertSame(RATES, fxRateService.getRates());
+    }
+
+    @Test
+    void testChoosesPreferredSettlementCurrency() {
+        when(fxRateProvider.load()).thenReturn(RATES);
+        fxRateService.init();
+
+        assertEquals(EUR, fxRateService.settlementCurrency(RATES, JPY, List.of(USD, EUR)));
+        assertEquals(USD, fxRateService.settlementCurrency(RATES, JPY, List.of(SEK, USD)));
+        assertThrows(InvalidCurrencyException.class, () -> fxRateService.settlementCurrency(RATES, JPY, List.of(SEK)));
+        assertThrows(InvalidCurrencyException.class, () -> fxRateService.settlementCurrency(RATES, CHF, List.of(EUR)));
+    }
+
+    @Test
+    void testConvertsQuotedCurrenciesOnlyWithAutoConversion() {
+        when(fxRateProvider.load()).thenReturn(RATES);
+        fxRateService.init();
+
+        assertTrue(fxRateService.isConvertible(JPY));
+        assertFalse(fxRateService.isConvertible(CHF));
+        fxRateService.autoConvert = false;
+        assertFalse(fxRateService.isConvertible(JPY));
+    }
+}
@@ -0,0 +1,52 @@
+package bank.fx;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRatesTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency JPY = Currency.getInstance("JPY");
+    private static final Currency CHF = Currency.getInstance("CHF");
+
+    private final FxRates rates = new FxRates(EUR, Map.of(USD, new BigDecimal("1.25"), JPY, new BigDecimal("160")));
+
+    @Test
+    void testDerivesCrossRates() {
+        assertEquals(BigDecimal.ONE, rates.rate(USD, USD));
+        assertEquals(new BigDecimal("1.25"), rates.rate(EUR, USD));
+        assertEquals(new BigDecimal("0.8"), rates.rate(USD, EUR));
+        assertEquals(new BigDecimal("128"), rates.rate(USD, JPY));
+        assertEquals(new BigDecimal("0.0078125"), rates.rate(JPY, USD));
+        assertNull(rates.rate(USD, CHF));
+        assertFalse(rates.isQuoted(CHF));
+    }
+
+    @Test
+    void testRoundsConvertedAmountToMinorUnit() {
+        assertEquals(new BigDecimal("12.51"), rates.convert(new BigDecimal("10.005"), EUR, USD));
+        assertEquals(new BigDecimal("12.50"), rates.convert(new BigDecimal("10.004"), EUR, USD));
+        assertEquals(new BigDecimal("1601"), rates.convert(new BigDecimal("10.0059"), EUR, JPY));
+        assertEquals(new BigDecimal("0.08"), rates.convert(new BigDecimal("10"), JPY, USD));
+        assertThrows(IllegalArgumentException.class, () -> rates.convert(BigDecimal.ONE, EUR, CHF));
+    }
+
+    @Test
+    void testKeepsPrecisionOfRepeatingRates() {
+        var rates = new FxRates(EUR, Map.of(USD, new BigDecimal("3")));
+
+        assertEquals(16, rates.rate(USD, EUR).precision());
+        assertEquals(new BigDecimal("333333.33"), rates.convert(new BigDecimal("1000000"), USD, EUR));
+    }
+
+    @Test
+    void testRejectsNonPositiveRate() {
+        assertThrows(IllegalArgumentException.class, () -> new FxRates(EUR, Map.of(USD, BigDecimal.ZERO)));
+    }
+}
@@ -0,0 +1,271 @@
+package bank.journal;
+
+import bank.TestData;
+import bank.data.AccountMapper;
+import bank.data.IdempotencyKeyMapper;
+import bank.data.JournalProjectionMapper;
+import bank.data.TransactionMapper;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.Transaction;
+import bank.enums.Country;
+import bank.enums.TransactionDirection;
+import bank.exception.AccountNotFoundException;
+import bank.exception.InsufficientFundsException;
+import bank.exception.InvalidCurrencyException;
+import bank.request.TransactionRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class JournalLedgerTest {
+
+    private static final Long ACCOUNT_ID = 1L;
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @Mock
+    private AccountMapper accountMapper;
+
+    @Mock
+    private TransactionMapper transactionMapper;
+
+    @Mock
+    private JournalProjectionMapper journalProjectionMapper;
+
+    @Mock
+    private IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final List<JournalLedger> ledgers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        when(accountMapper.selectAccount(anyLong())).thenReturn(Optional.empty());
+        when(accountMapper.selectAccount(ACCOUNT_ID)).thenAnswer(invocation -> Optional.of(account()));
+        when(accountMapper.selectAccounts(anyCollection())).thenAnswer(invocation -> List.of(account()));
+        when(transactionMapper.reserveIds(anyInt())).thenAnswer(invocation -> {
+            var reserved = new ArrayList<Long>();
+            for (int i = 0; i < (int) invocation.getArgument(0); i++) {
+                reserved.add(ids.incrementAndGet());
+            }
+            return reserved;
+        });
+        when(journalProjectionMapper.selectPosition()).thenReturn(0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledgers.forEach(JournalLedger::shutdown);
+    }
+
+    @Test
+    void testPostsTransactionsAndRejectsInvalidRequests() {
+        var ledger = newLedger();
+
+        var results = ledger.post(List.of(
+                request(ACCOUNT_ID, "5", TransactionDirection.IN),
+                request(ACCOUNT_ID, "100", TransactionDirection.OUT),
+                request(ACCOUNT_ID, "1", TransactionDirection.IN).setCurrency(Currency.getInstance("GBP")),
+                request(2L, "1", TransactionDirection.IN),
+                request(ACCOUNT_ID, "3", TransactionDirection.OUT)
+        ));
+
+        assertEquals(BigDecimal.valueOf(15), results.get(0).getTransaction().getBalanceAfter());
+        assertTrue(results.get(1).getError() instanceof InsufficientFundsException);
+        assertTrue(results.get(2).getError() instanceof InvalidCurrencyException);
+        assertTrue(results.get(3).getError() instanceof AccountNotFoundException);
+        assertEquals(BigDecimal.valueOf(12), results.get(4).getTransaction().getBalanceAfter());
+        assertEquals(1L, results.get(0).getTransaction().getTransactionId());
+        assertEquals(2L, results.get(4).getTransaction().getTransactionId());
+        assertEquals(BigDecimal.valueOf(12), overlaid(ledger, EUR));
+    }
+
+    @Test
+    void testRebuildsBalancesFromJournal() {
+        var ledger = newLedger();
+        ledger.post(List.of(request(ACCOUNT_ID, "5", TransactionDirection.IN)));
+        ledger.post(List.of(request(ACCOUNT_ID, "7", TransactionDirection.OUT)));
+        ledger.shutdown();
+
+        var restarted = newLedger();
+
+        assertEquals(BigDecimal.valueOf(8), overlaid(restarted, EUR));
+        // loaded from the database, as the journal has no entries in it
+        assertEquals(BigDecimal.ONE, overlaid(restarted, USD));
+        var result = restarted.post(List.of(request(ACCOUNT_ID, "1", TransactionDirection.IN).setCurrency(USD)));
+        assertEquals(BigDecimal.valueOf(2), result.get(0).getTransaction().getBalanceAfter());
+    }
+
+    @Test
+    void testRebuildsBalancesFromSnapshotAndJournalAfterIt() {
+        var ledger = newLedger();
+        ledger.post(List.of(request(ACCOUNT_ID, "5", TransactionDirection.IN)));
+        ledger.snapshot();
+        ledger.post(List.of(request(ACCOUNT_ID, "2", TransactionDirection.IN)));
+        ledger.shutdown();
+
+        var restarted = newLedger();
+
+        assertEquals(BigDecimal.valueOf(17), overlaid(restarted, EUR));
+        verify(accountMapper, never()).selectAccounts(anyCollection());
+    }
+
+    @Test
+    void testReadsEntriesInPostingOrder() throws Exception {
+        var ledger = newLedger();
+        var threads = 8;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    for (int i = 0; i < 100; i++) {
+                        ledger.post(List.of(request(ACCOUNT_ID, "1", TransactionDirection.IN)));
+                    }
+                    return null;
+                }));
+            }
+            for (var future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        var balances = new ArrayList<BigDecimal>();
+        ledger.read(0, Integer.MAX_VALUE, entry -> balances.add(entry.getTransaction().getBalanceAfter()));
+
+        assertEquals(threads * 100, balances.size());
+        for (int i = 0; i < balances.size(); i++) {
+            assertEquals(BigDecimal.valueOf(11 + i), balances.get(i));
+        }
+    }
+
+    @Test
+    void testPostsKeyedTransactionOnce() {
+        var ledger = newLedger();
+
+        var first = ledger.post(request(ACCOUNT_ID, "5", TransactionDirection.IN), "key");
+        var retry = ledger.post(request(ACCOUNT_ID, "5", TransactionDirection.IN), "key");
+
+        assertTrue(first.isCreated());
+        assertFalse(retry.isCreated());
+        assertEquals(first.getTransaction(), retry.getTransaction());
+        assertEquals(BigDecimal.valueOf(15), overlaid(ledger, EUR));
+    }
+
+    @Test
+    void testRebuildsUnprojectedKeysFromJournal() {
+        var ledger = newLedger();
+        var first = ledger.post(request(ACCOUNT_ID, "5", TransactionDirection.IN), "key");
+        ledger.snapshot();
+        ledger.shutdown();
+
+        var restarted = newLedger();
+        var retry = restarted.post(request(ACCOUNT_ID, "5", TransactionDirection.IN), "key");
+
+        assertFalse(retry.isCreated());
+        assertEquals(first.getTransaction(), retry.getTransaction());
+        assertEquals(BigDecimal.valueOf(15), overlaid(restarted, EUR));
+    }
+
+    @Test
+    void testFindsReleasedKeysInDatabase() {
+        var ledger = newLedger();
+        var first = ledger.post(request(ACCOUNT_ID, "5", TransactionDirection.IN), "key");
+        var id = first.getTransaction().getTransactionId();
+        var projected = new Transaction()
+                .setId(id)
+                .setAccountId(ACCOUNT_ID)
+                .setAmount(first.getTransaction().getAmount())
+                .setCurrency(EUR)
+                .setDirection(TransactionDirection.IN)
+                .setBalanceAfter(first.getTransaction().getBalanceAfter());
+        when(idempotencyKeyMapper.selectTransaction("key")).thenReturn(Optional.of(projected));
+        ledger.releaseKeys(List.of("key"));
+
+        var retry = ledger.post(request(ACCOUNT_ID, "5", TransactionDirection.IN), "key");
+
+        assertFalse(retry.isCreated());
+        assertEquals(id, retry.getTransaction().getTransactionId());
+        assertEquals(BigDecimal.valueOf(15), overlaid(ledger, EUR));
+    }
+
+    @Test
+    void testRejectsKeyedTransactionWithoutTakingKey() {
+        var ledger = newLedger();
+
+        assertThrows(InsufficientFundsException.class,
+                () -> ledger.post(request(ACCOUNT_ID, "100", TransactionDirection.OUT), "key"));
+        var retry = ledger.post(request(ACCOUNT_ID, "5", TransactionDirection.OUT), "key");
+
+        assertTrue(retry.isCreated());
+        assertEquals(BigDecimal.valueOf(5), overlaid(ledger, EUR));
+    }
+
+    private JournalLedger newLedger() {
+        var ledger = new JournalLedger();
+        ledger.accountMapper = accountMapper;
+        ledger.transactionMapper = transactionMapper;
+        ledger.journalProjectionMapper = journalProjectionMapper;
+        ledger.idempotencyKeyMapper = idempotencyKeyMapper;
+        ledger.directory = directory.toString();
+        ledger.segmentSize = 64 * 1024;
+        ledger.idBlockSize = 10;
+        ledger.init();
+        ledgers.add(ledger);
+        return ledger;
+    }
+
+    private static BigDecimal overlaid(JournalLedger ledger, Currency currency) {
+        var account = account();
+        ledger.overlay(account);
+        return account.getBalances().stream()
+                .filter(balance -> balance.getCurrency().equals(currency))
+                .findAny().orElseThrow().getAmount();
+    }
+
+    private static TransactionRequest request(Long accountId, String amount, TransactionDirection direction) {
+        return TestData.generateTransactionRequest(accountId)
+                .setAmount(new BigDecimal(amount))
+                .setDirection(direction);
+    }
+
+    private static Account account() {
+        var account = new Account().setId(ACCOUNT_ID).setCustomerId("customer").setCountry(Country.EE);
+        account.getBalances().add(new Balance().setId(10L).setCurrency(EUR).setAmount(BigDecimal.TEN));
+        account.getBalances().add(new Balance().setId(11L).setCurrency(USD).setAmount(BigDecimal.ONE));
+        return account;
+    }
+}
@@ -0,0 +1,277 @@
+package bank.journal;
+
+import bank.SynchronizingTransactionManager;
+import bank.TestData;
+import bank.data.AccountMapper;
+import bank.data.BalanceMapper;
+import bank.data.IdempotencyKeyMapper;
+import bank.data.JournalProjectionMapper;
+import bank.data.TransactionMapper;
+import bank.domain.Account;
+import bank.domain.Balance;
+import bank.domain.BalanceChange;
+import bank.domain.Transaction;
+import bank.dto.TransactionDto;
+import bank.enums.Country;
+import bank.enums.TransactionDirection;
+import bank.messaging.EventPublisher;
+import bank.request.TransactionRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class JournalProjectorTest {
+
+    private static final Long ACCOUNT_ID = 1L;
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @Mock
+    private AccountMapper accountMapper;
+
+    @Mock
+    private TransactionMapper transactionMapper;
+
+    @Mock
+    private JournalProjectionMapper journalProjectionMapper;
+
+    @Mock
+    private IdempotencyKeyMapper idempotencyKeyMapper;
+
+    @Mock
+    private BalanceMapper balanceMapper;
+
+    @Mock
+    private EventPublisher eventPublisher;
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong ids = new AtomicLong();
+
+    private final AtomicLong position = new AtomicLong();
+
+    private final List<Long> inserted = new ArrayList<>();
+
+    private JournalLedger ledger;
+
+    private JournalProjector projector;
+
+    @BeforeEach
+    void setUp() {
+        when(accountMapper.selectAccount(ACCOUNT_ID)).thenAnswer(invocation -> Optional.of(account()));
+        when(accountMapper.selectAccounts(anyCollection())).thenAnswer(invocation -> List.of(account()));
+        when(transactionMapper.reserveIds(anyInt())).thenAnswer(invocation -> {
+            var reserved = new ArrayList<Long>();
+            for (int i = 0; i < (int) invocation.getArgument(0); i++) {
+                reserved.add(ids.incrementAndGet());
+            }
+            return reserved;
+        });
+        doAnswer(invocation -> {
+            List<Transaction> transactions = invocation.getArgument(0);
+            transactions.forEach(transaction -> inserted.add(transaction.getId()));
+            return null;
+        }).when(transactionMapper).insertTransactionsWithIds(anyList());
+        when(journalProjectionMapper.selectPosition()).thenAnswer(invocation -> position.get());
+        when(journalProjectionMapper.selectPositionForUpdate()).thenAnswer(invocation -> position.get());
+        doAnswer(invocation -> {
+            position.set(invocation.getArgument(0));
+            return null;
+        }).when(journalProjectionMapper).updatePosition(anyLong());
+
+        ledger = new JournalLedger();
+        ledger.accountMapper = accountMapper;
+        ledger.transactionMapper = transactionMapper;
+        ledger.journalProjectionMapper = journalProjectionMapper;
+        ledger.idempotencyKeyMapper = idempotencyKeyMapper;
+        ledger.directory = directory.toString();
+        ledger.segmentSize = 64 * 1024;
+        ledger.idBlockSize = 10;
+        ledger.init();
+
+        projector = new JournalProjector();
+        projector.journalLedger = ledger;
+        projector.journalProjectionMapper = journalProjectionMapper;
+        projector.transactionMapper = transactionMapper;
+        projector.balanceMapper = balanceMapper;
+        projector.idempotencyKeyMapper = idempotencyKeyMapper;
+        projector.eventPublisher = eventPublisher;
+        projector.transactionManager = new SynchronizingTransactionManager();
+        projector.meterRegistry = new SimpleMeterRegistry();
+        projector.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        ledger.shutdown();
+    }
+
+    @Test
+    void testProjectsEntriesWithNetBalanceChangesAndEvents() {
+        ledger.post(List.of(
+                request("5", TransactionDirection.IN, EUR),
+                request("2", TransactionDirection.OUT, EUR),
+                request("1", TransactionDirection.OUT, USD)
+        ));
+
+        projector.project();
+
+        assertEquals(List.of(1L, 2L, 3L), inserted);
+        verify(balanceMapper).updateBalances(List.of(
+                new BalanceChange(10L, BigDecimal.valueOf(3)),
+                new BalanceChange(11L, BigDecimal.valueOf(-1))
+        ));
+        verify(eventPublisher).publishAll(eq("create-transaction"), argThat((List<TransactionDto> events) ->
+                events.stream().map(TransactionDto::getTransactionId).collect(toList()).equals(List.of(1L, 2L, 3L))
+        ), any());
+        assertEquals(ledger.getDurablePosition(), position.get());
+        assertEquals(0.0, lag());
+    }
+
+    @Test
+    void testProjectsEveryEntryOnce() {
+        ledger.post(List.of(request("5", TransactionDirection.IN, EUR)));
+        projector.project();
+        projector.project();
+        ledger.post(List.of(request("2", TransactionDirection.IN, EUR)));
+        projector.project();
+
+        assertEquals(List.of(1L, 2L), inserted);
+        verify(eventPublisher, times(2)).publishAll(any(), anyList(), any());
+        verify(journalProjectionMapper, times(2)).updatePosition(anyLong());
+    }
+
+    @Test
+    void testProjectsInBatchesUntilCaughtUp() {
+        projector.batchSize = 2;
+        for (int i = 0; i < 5; i++) {
+            ledger.post(List.of(request("1", TransactionDirection.IN, EUR)));
+        }
+
+        projector.project();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), inserted);
+        verify(journalProjectionMapper, times(3)).updatePosition(anyLong());
+        assertEquals(ledger.getDurablePosition(), position.get());
+    }
+
+    @Test
+    void testKeepsPositionWhenProjectionFails() {
+        ledger.post(List.of(request("5", TransactionDirection.IN, EUR)));
+        doThrow(new IllegalStateException("Database is unavailable")).doNothing()
+                .when(balanceMapper).updateBalances(anyList());
+
+        assertThrows(IllegalStateException.class, projector::project);
+        assertEquals(0L, position.get());
+        assertTrue(lag() > 0);
+
+        // the failed batch was rolled back, so it is projected again
+        inserted.clear();
+        projector.project();
+
+        assertEquals(List.of(1L), inserted);
+        assertEquals(ledger.getDurablePosition(), position.get());
+    }
+
+    @Test
+    void testProjectsIdempotencyKeysAndReleasesThemAfterCommit() {
+        var posted = ledger.post(request("5", TransactionDirection.IN, EUR), "key");
+        ledger.post(List.of(request("1", TransactionDirection.IN, EUR)));
+
+        projector.project();
+
+        verify(idempotencyKeyMapper).insertKeys(argThat(entries -> entries.size() == 1
+                && entries.get(0).getIdempotencyKey().equals("key")
+                && entries.get(0).getTransaction().getId().equals(posted.getTransaction().getTransactionId())
+        ));
+
+        // released keys are looked up in the database
+        var id = posted.getTransaction().getTransactionId();
+        when(idempotencyKeyMapper.selectTransaction("key")).thenReturn(Optional.of(new Transaction()
+                .setId(id)
+                .setAccountId(ACCOUNT_ID)
+                .setAmount(BigDecimal.valueOf(5))
+                .setCurrency(EUR)
+                .setDirection(TransactionDirection.IN)
+                .setBalanceAfter(BigDecimal.valueOf(15))));
+        var retry = ledger.post(request("5", TransactionDirection.IN, EUR), "key");
+
+        assertFalse(retry.isCreated());
+        assertEquals(id, retry.getTransaction().getTransactionId());
+    }
+
+    @Test
+    void testKeepsLagWhenProjectionDoesNotCommit() {
+        ledger.post(List.of(request("5", TransactionDirection.IN, EUR)));
+        projector.transactionManager = new SynchronizingTransactionManager() {
+            @Override
+            protected void doCommit(DefaultTransactionStatus status) {
+                throw new TransactionSystemException("Commit failed");
+            }
+        };
+
+        assertThrows(TransactionSystemException.class, projector::project);
+        assertTrue(lag() > 0);
+    }
+
+    @Test
+    void testKeepsKeysWhenProjectionFails() {
+        ledger.post(request("5", TransactionDirection.IN, EUR), "key");
+        doThrow(new IllegalStateException("Database is unavailable"))
+                .when(eventPublisher).publishAll(any(), anyList(), any());
+
+        assertThrows(IllegalStateException.class, projector::project);
+
+        var retry = ledger.post(request("5", TransactionDirection.IN, EUR), "key");
+        assertFalse(retry.isCreated());
+        verify(idempotencyKeyMapper, times(2)).selectTransaction("key");
+    }
+
+    private double lag() {
+        return projector.meterRegistry.get(JournalProjector.LAG_GAUGE_NAME).gauge().value();
+    }
+
+    private static TransactionRequest request(String amount, TransactionDirection direction, Currency currency) {
+        return TestData.generateTransactionRequest(ACCOUNT_ID)
+                .setAmount(new BigDecimal(amount))
+                .setDirection(direction)
+                .setCurrency(currency);
+    }
+
+    private static Account account() {
+        var account = new Account().setId(ACCOUNT_ID).setCustomerId("customer").setCountry(Country.EE);
+        account.getBalances().add(new Balance().setId(10L).setCurrency(EUR).setAmount(BigDecimal.TEN));
+        account.getBalances().add(new Balance().setId(11L).setCurrency(USD).setAmount(BigDecimal.ONE));
+        return account;
+    }
+}
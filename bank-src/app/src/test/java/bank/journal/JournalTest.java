@@ -0,0 +1,153 @@
+package bank.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testReadsRecordsInAppendOrderAfterReopen() {
+        var journal = new Journal(directory, SEGMENT_SIZE);
+        for (int i = 0; i < 500; i++) {
+            append(journal, "record " + i);
+        }
+        journal.close();
+
+        var reopened = new Journal(directory, SEGMENT_SIZE);
+        var records = readAll(reopened);
+
+        assertEquals(500, records.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals("record " + i, records.get(i));
+        }
+        assertTrue(reopened.getWrittenPosition() > SEGMENT_SIZE);
+        assertEquals(reopened.getWrittenPosition(), reopened.getDurablePosition());
+    }
+
+    @Test
+    void testReadsOnlyDurableRecords() {
+        var journal = new Journal(directory, SEGMENT_SIZE);
+        var first = append(journal, "first");
+        journal.force(first);
+        append(journal, "second");
+
+        assertEquals(List.of("first"), readAll(journal));
+
+        journal.force(journal.getWrittenPosition());
+        assertEquals(List.of("first", "second"), readAll(journal));
+    }
+
+    @Test
+    void testDiscardsTornRecordOnOpen() throws IOException {
+        var journal = new Journal(directory, SEGMENT_SIZE);
+        append(journal, "first");
+        var end = append(journal, "second");
+        journal.close();
+
+        // corrupt the last byte of the second record, as a write interrupted by a crash would
+        try (var channel = FileChannel.open(segment(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), end - 1);
+        }
+
+        var reopened = new Journal(directory, SEGMENT_SIZE);
+        assertEquals(List.of("first"), readAll(reopened));
+
+        append(reopened, "third");
+        reopened.close();
+        assertEquals(List.of("first", "third"), readAll(new Journal(directory, SEGMENT_SIZE)));
+    }
+
+    @Test
+    void testDeletesSegmentsBeforePosition() throws IOException {
+        var journal = new Journal(directory, SEGMENT_SIZE);
+        long position = 0;
+        for (int i = 0; i < 500; i++) {
+            position = append(journal, "record " + i);
+        }
+        journal.close();
+
+        journal.deleteBefore(SEGMENT_SIZE * 2L);
+
+        assertEquals(SEGMENT_SIZE * 2L, journal.getStartPosition());
+        try (var files = Files.list(directory)) {
+            assertEquals((position - 1) / SEGMENT_SIZE - 1, files.count());
+        }
+        var records = new ArrayList<String>();
+        journal.read(journal.getStartPosition(), Integer.MAX_VALUE, buffer -> records.add(decode(buffer)));
+        assertEquals("record 499", records.get(records.size() - 1));
+    }
+
+    @Test
+    void testSharesSyncBetweenConcurrentWriters() throws Exception {
+        var journal = new Journal(directory, SEGMENT_SIZE * 256);
+        var threads = 16;
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < threads; t++) {
+                var thread = t;
+                futures.add(executor.submit((Callable<Void>) () -> {
+                    start.await();
+                    for (int i = 0; i < 200; i++) {
+                        var position = append(journal, thread + ":" + i);
+                        journal.force(position);
+                        assertTrue(journal.getDurablePosition() >= position);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * 200, readAll(new Journal(directory, SEGMENT_SIZE * 256)).size());
+    }
+
+    private static long append(Journal journal, String record) {
+        var bytes = record.getBytes(StandardCharsets.UTF_8);
+        return journal.append(bytes.length, buffer -> buffer.put(bytes));
+    }
+
+    private static List<String> readAll(Journal journal) {
+        var records = new ArrayList<String>();
+        journal.read(0, Integer.MAX_VALUE, buffer -> records.add(decode(buffer)));
+        return records;
+    }
+
+    private static String decode(ByteBuffer buffer) {
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private Path segment() {
+        return directory.resolve(String.format("%020d.journal", 0));
+    }
+}
@@ -0,0 +1,69 @@
+package bank.messaging;
+
+import bank.configuration.BankConf;
+import bank.domain.Transaction;
+import bank.dto.TransactionDto;
+import bank.enums.TransactionDirection;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CborMessageConverterTest {
+
+    private final CborMessageConverter messageConverter = new CborMessageConverter(BankConf.cborMapper(), "bank.domain");
+
+    private final Transaction transaction = new Transaction()
+            .setId(1L)
+            .setAccountId(2L)
+            .setAmount(new BigDecimal("100.00"))
+            .setCurrency(Currency.getInstance("EUR"))
+            .setDirection(TransactionDirection.IN)
+            .setDescription("Transaction description")
+            .setBalanceAfter(new BigDecimal("1334.56"))
+            .setCreatedAt(Instant.parse("2022-01-01T12:00:00.123456Z"));
+
+    @Test
+    void testConvertsRoundTrip() {
+        var message = messageConverter.toMessage(transaction, new MessageProperties());
+
+        assertEquals(CborMessageConverter.CONTENT_TYPE, message.getMessageProperties().getContentType());
+        assertEquals(
+                Transaction.class.getName(),
+                message.getMessageProperties().getHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME)
+        );
+        assertEquals(transaction, messageConverter.fromMessage(message));
+    }
+
+    @Test
+    void testEncodesSmallerThanJson() {
+        var event = TransactionDto.from(transaction);
+
+        var cbor = messageConverter.toMessage(event, new MessageProperties());
+        var objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        var json = new Jackson2JsonMessageConverter(objectMapper).toMessage(event, new MessageProperties());
+
+        assertTrue(cbor.getBody().length < json.getBody().length);
+    }
+
+    @Test
+    void testRejectsOtherContentTypes() {
+        var properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+
+        assertThrows(MessageConversionException.class, () -> messageConverter.fromMessage(new Message(new byte[0], properties)));
+    }
+}
@@ -0,0 +1,113 @@
+package bank.messaging;
+
+import bank.TestData;
+import bank.configuration.RabbitMqConf;
+import bank.data.OutboxMapper;
+import bank.service.AccountService;
+import bank.service.TransactionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest(properties = "bank.outbox.batch-size=2")
+class OutboxRelayTest {
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxMapper outboxMapper;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        when(rabbitTemplate.invoke(any())).thenAnswer(invocation ->
+                invocation.<RabbitOperations.OperationsCallback<?>>getArgument(0).doInRabbit(rabbitTemplate));
+        outboxRelay.relay();
+        clearInvocations(rabbitTemplate);
+    }
+
+    @Test
+    void testRelaysMessagesInOrderPerAccount() throws Exception {
+        var account1 = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var account2 = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var transactionIds = new ArrayList<Long>();
+        for (int i = 0; i < 3; i++) {
+            transactionIds.add(transactionService
+                    .createTransaction(TestData.generateTransactionRequest(account1.getId())).getTransactionId());
+            transactionService.createTransaction(TestData.generateTransactionRequest(account2.getId()));
+        }
+
+        outboxRelay.relay();
+
+        var messages = ArgumentCaptor.forClass(Message.class);
+        var routingKeys = ArgumentCaptor.forClass(String.class);
+        verify(rabbitTemplate, times(8)).send(eq(RabbitMqConf.EXCHANGE_NAME), routingKeys.capture(), messages.capture());
+        verify(rabbitTemplate, times(4)).waitForConfirmsOrDie(anyLong());
+
+        var account1Events = new ArrayList<String>();
+        var relayedTransactionIds = new ArrayList<Long>();
+        for (int i = 0; i < messages.getAllValues().size(); i++) {
+            var body = objectMapper.readTree(messages.getAllValues().get(i).getBody());
+            var routingKey = routingKeys.getAllValues().get(i);
+            if (routingKey.equals("create-account") && body.get("id").asLong() == account1.getId()) {
+                account1Events.add(routingKey);
+            } else if (routingKey.equals("create-transaction") && body.get("accountId").asLong() == account1.getId()) {
+                account1Events.add(routingKey);
+                relayedTransactionIds.add(body.get("transactionId").asLong());
+            }
+        }
+
+        assertEquals(
+                List.of("create-account", "create-transaction", "create-transaction", "create-transaction"),
+                account1Events
+        );
+        assertEquals(transactionIds, relayedTransactionIds);
+        assertTrue(outboxMapper.selectMessages(Integer.MAX_VALUE).isEmpty());
+    }
+
+    @Test
+    void testKeepsMessagesWhenNotConfirmed() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        doThrow(new AmqpTimeoutException("timeout")).when(rabbitTemplate).waitForConfirmsOrDie(anyLong());
+
+        assertThrows(AmqpTimeoutException.class, () -> outboxRelay.relay());
+
+        assertTrue(outboxMapper.selectMessages(Integer.MAX_VALUE).stream()
+                .anyMatch(m -> account.getId().equals(m.getAccountId())));
+
+        doNothing().when(rabbitTemplate).waitForConfirmsOrDie(anyLong());
+        outboxRelay.relay();
+
+        verify(rabbitTemplate, times(2)).send(anyString(), eq("create-account"), any(Message.class));
+        assertTrue(outboxMapper.selectMessages(Integer.MAX_VALUE).isEmpty());
+    }
+}
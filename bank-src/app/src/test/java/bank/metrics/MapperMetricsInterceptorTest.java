@@ -0,0 +1,91 @@
+package bank.metrics;
+
+import bank.TestData;
+import bank.data.AccountMapper;
+import bank.domain.Transaction;
+import bank.service.AccountService;
+import bank.service.TransactionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Currency;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@Transactional
+class MapperMetricsInterceptorTest {
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private AccountMapper accountMapper;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testTimesMapperStatementsByOperation() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var selects = count("AccountMapper", "selectAccount");
+
+        accountMapper.selectAccount(account.getId());
+        accountMapper.selectAccount(account.getId());
+
+        assertEquals(selects + 2, count("AccountMapper", "selectAccount"));
+        assertTrue(count("AccountMapper", "insertAccount") > 0);
+        assertTrue(count("BalanceMapper", "insertBalance") > 0);
+    }
+
+    @Test
+    void testTagsMapperStatementsByCurrency() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var eur = count("TransactionMapper", "insertTransactions", "EUR");
+        var none = count("AccountMapper", "selectAccount", MapperMetricsInterceptor.NO_CURRENCY);
+
+        transactionService.createTransaction(TestData.generateTransactionRequest(account.getId()));
+        accountMapper.selectAccount(account.getId());
+
+        assertEquals(eur + 1, count("TransactionMapper", "insertTransactions", "EUR"));
+        assertEquals(none + 1, count("AccountMapper", "selectAccount", MapperMetricsInterceptor.NO_CURRENCY));
+        assertTrue(count("BalanceMapper", "insertBalance", "USD") > 0);
+    }
+
+    @Test
+    void testTagsBatchOfSeveralCurrenciesAsMixed() {
+        var eur = new Transaction().setCurrency(Currency.getInstance("EUR"));
+        var usd = new Transaction().setCurrency(Currency.getInstance("USD"));
+
+        assertEquals("EUR", MapperMetricsInterceptor.currencyOf(Map.of("transactions", List.of(eur, eur))));
+        assertEquals(MapperMetricsInterceptor.MIXED_CURRENCIES, MapperMetricsInterceptor.currencyOf(List.of(eur, usd)));
+        assertEquals(MapperMetricsInterceptor.NO_CURRENCY, MapperMetricsInterceptor.currencyOf(1L));
+    }
+
+    private long count(String mapper, String operation) {
+        return meterRegistry.find(MapperMetricsInterceptor.TIMER_NAME)
+                .tags("mapper", mapper, "operation", operation, "outcome", "success")
+                .timers().stream().mapToLong(Timer::count).sum();
+    }
+
+    private long count(String mapper, String operation, String currency) {
+        var timer = meterRegistry.find(MapperMetricsInterceptor.TIMER_NAME)
+                .tags("mapper", mapper, "operation", operation, "currency", currency, "outcome", "success")
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
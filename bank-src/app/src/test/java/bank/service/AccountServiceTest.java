@@ -2,6 +2,7 @@ package bank.service;
 
 import bank.TestData;
 import bank.configuration.RabbitMqConf;
+import bank.data.OutboxMapper;
 import bank.exception.AccountNotFoundException;
 import bank.exception.InvalidCurrencyException;
 import org.junit.jupiter.api.Test;
@@ -14,10 +15,10 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.Currency;
 import java.util.Random;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @SpringBootTest
 @Transactional
@@ -29,6 +30,9 @@ class AccountServiceTest {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private OutboxMapper outboxMapper;
+
     @Test
     void testCreatesAccount() {
         var accountRequest = TestData.generateCreateAccountRequest();
@@ -60,16 +64,20 @@ class AccountServiceTest {
     }
 
     @Test
-    void testCreatesAccountSendsMessage() {
+    void testCreatesAccountWritesMessageToOutbox() {
         var accountRequest = TestData.generateCreateAccountRequest();
 
         var accountDto = accountService.createAccount(accountRequest);
 
-        verify(rabbitTemplate).convertAndSend(
-                eq(RabbitMqConf.EXCHANGE_NAME),
-                eq("create-account"),
-                eq(accountDto)
-        );
+        var messages = outboxMapper.selectMessages(Integer.MAX_VALUE).stream()
+                .filter(m -> accountDto.getId().equals(m.getAccountId()))
+                .collect(Collectors.toList());
+
+        assertEquals(1, messages.size());
+        assertEquals(RabbitMqConf.EXCHANGE_NAME, messages.get(0).getExchange());
+        assertEquals("create-account", messages.get(0).getRoutingKey());
+        assertTrue(new String(messages.get(0).getPayload()).contains(accountRequest.getCustomerId()));
+        verifyNoInteractions(rabbitTemplate);
     }
 
     @Test
@@ -0,0 +1,152 @@
+package bank.service;
+
+import bank.TestData;
+import bank.dto.AccountBalanceDto;
+import bank.exception.AccountNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Transactions are dated in 2001, so that the days snapshotted by the test hold no other transactions. They are rolled
+ * back, so they do not move the watermark back as late transactions, except in the test of that.
+ */
+@SpringBootTest
+@Transactional
+class BalanceSnapshotServiceTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private BalanceSnapshotService balanceSnapshotService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        balanceSnapshotService.clock = Clock.systemUTC();
+    }
+
+    @Test
+    void testAnswersBalanceAtPointInTimeFromSnapshots() {
+        var accountId = accountService.createAccount(TestData.generateCreateAccountRequest()).getId();
+        insertTransaction(accountId, "100", "IN", "2001-01-10T08:00:00Z");
+        insertTransaction(accountId, "30", "OUT", "2001-01-10T23:59:59Z");
+        insertTransaction(accountId, "50", "IN", "2001-01-12T10:00:00Z");
+        insertTransaction(accountId, "5", "IN", "2001-01-20T09:00:00Z");
+        jdbcTemplate.update("update balance_snapshot_watermark set day = '2001-01-09'");
+        balanceSnapshotService.clock = Clock.fixed(Instant.parse("2001-01-20T12:00:00Z"), ZoneOffset.UTC);
+
+        balanceSnapshotService.snapshot();
+
+        assertEquals(LocalDate.parse("2001-01-19"), jdbcTemplate.queryForObject(
+                "select day from balance_snapshot_watermark", LocalDate.class
+        ));
+        assertEquals(2, jdbcTemplate.queryForObject(
+                "select count(*) from balance_snapshot where account_id = ? and currency = 'EUR'", Integer.class, accountId
+        ));
+        assertEquals(0, eurBalanceAt(accountId, "2001-01-10T08:00:00Z").compareTo(BigDecimal.ZERO));
+        assertEquals(0, eurBalanceAt(accountId, "2001-01-10T12:00:00Z").compareTo(BigDecimal.valueOf(100)));
+        assertEquals(0, eurBalanceAt(accountId, "2001-01-11T00:00:00Z").compareTo(BigDecimal.valueOf(70)));
+        assertEquals(0, eurBalanceAt(accountId, "2001-01-12T10:00:00Z").compareTo(BigDecimal.valueOf(70)));
+        assertEquals(0, eurBalanceAt(accountId, "2001-01-15T00:00:00Z").compareTo(BigDecimal.valueOf(120)));
+        // after the watermark, answered from the delta since the last snapshot
+        assertEquals(0, eurBalanceAt(accountId, "2001-01-21T00:00:00Z").compareTo(BigDecimal.valueOf(125)));
+    }
+
+    @Test
+    void testSnapshotsSettledDaysOnlyOnce() {
+        var accountId = accountService.createAccount(TestData.generateCreateAccountRequest()).getId();
+        insertTransaction(accountId, "100", "IN", "2001-01-10T08:00:00Z");
+        jdbcTemplate.update("update balance_snapshot_watermark set day = '2001-01-09'");
+        balanceSnapshotService.maxDaysPerRun = 1;
+
+        try {
+            // 2001-01-10 is not over for longer than the settle period yet
+            balanceSnapshotService.clock = Clock.fixed(Instant.parse("2001-01-11T00:05:00Z"), ZoneOffset.UTC);
+            balanceSnapshotService.snapshot();
+            assertEquals(0, snapshotCount(accountId));
+
+            balanceSnapshotService.clock = Clock.fixed(Instant.parse("2001-01-13T00:00:00Z"), ZoneOffset.UTC);
+            balanceSnapshotService.snapshot();
+            balanceSnapshotService.snapshot();
+            balanceSnapshotService.snapshot();
+        } finally {
+            balanceSnapshotService.maxDaysPerRun = 31;
+        }
+
+        assertEquals(1, snapshotCount(accountId));
+        assertEquals(LocalDate.parse("2001-01-11"), jdbcTemplate.queryForObject(
+                "select day from balance_snapshot_watermark", LocalDate.class
+        ));
+        assertEquals(0, eurBalanceAt(accountId, "2001-01-13T00:00:00Z").compareTo(BigDecimal.valueOf(100)));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void testLateTransactionMovesWatermarkBack() {
+        var watermark = jdbcTemplate.queryForObject("select day from balance_snapshot_watermark", LocalDate.class);
+        var accountId = accountService.createAccount(TestData.generateCreateAccountRequest()).getId();
+        try {
+            jdbcTemplate.update("update balance_snapshot_watermark set day = '2001-01-20'");
+
+            insertTransaction(accountId, "100", "IN", "2001-01-10T08:00:00Z");
+
+            assertEquals(LocalDate.parse("2001-01-09"), jdbcTemplate.queryForObject(
+                    "select day from balance_snapshot_watermark", LocalDate.class
+            ));
+        } finally {
+            jdbcTemplate.update("delete from transaction where account_id = ?", accountId);
+            jdbcTemplate.update("update balance_snapshot_watermark set day = ?", watermark);
+        }
+    }
+
+    @Test
+    void testDoesNotFindBalancesOfUnknownAccount() {
+        assertThrows(AccountNotFoundException.class, () -> balanceSnapshotService.findBalancesAt(-1L, Instant.now()));
+    }
+
+    private BigDecimal eurBalanceAt(Long accountId, String at) {
+        AccountBalanceDto balances = balanceSnapshotService.findBalancesAt(accountId, Instant.parse(at));
+        return balances.getBalances().stream()
+                .filter(balance -> balance.getCurrency().equals(EUR))
+                .findAny().orElseThrow().getAmount();
+    }
+
+    private int snapshotCount(Long accountId) {
+        return jdbcTemplate.queryForObject(
+                "select count(*) from balance_snapshot where account_id = ?", Integer.class, accountId
+        );
+    }
+
+    private void insertTransaction(Long accountId, String amount, String direction, String createdAt) {
+        jdbcTemplate.update(
+                "insert into transaction(account_id, amount, currency, direction, description, balance_after, created_at) "
+                        + "values (?, ?, 'EUR', ?, 'snapshot test', 0, ?)",
+                accountId, new BigDecimal(amount), direction, Timestamp.from(Instant.parse(createdAt))
+        );
+    }
+}
@@ -0,0 +1,188 @@
+package bank.service;
+
+import bank.TestData;
+import bank.data.TransactionMapper;
+import bank.dto.TransactionDto;
+import bank.exception.IdempotencyKeyReusedException;
+import bank.exception.InvalidCurrencyException;
+import bank.exception.InvalidTransferException;
+import bank.fx.FxRates;
+import bank.request.TransferRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {"bank.fx.enabled=true", "bank.fx.auto-convert=true"})
+@Transactional
+public class FxConversionTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency USD = Currency.getInstance("USD");
+    private static final Currency SEK = Currency.getInstance("SEK");
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    TransactionService transactionService;
+
+    @Autowired
+    TransferService transferService;
+
+    @Autowired
+    AccountService accountService;
+
+    @Autowired
+    IdempotencyService idempotencyService;
+
+    @Autowired
+    TransactionMapper transactionMapper;
+
+    @Test
+    void testConvertsIntoSettlementCurrencyBalance() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest().setCurrencies(Set.of(SEK, USD)));
+
+        var transaction = transactionService.createTransaction(TestData.generateTransactionRequest(account.getId())
+                .setCurrency(JPY)
+                .setAmount(new BigDecimal("1000")));
+
+        // 1000 * 1.0843 / 162.35 of the bundled rates
+        assertEquals(USD, transaction.getCurrency());
+        assertEquals(new BigDecimal("6.68"), transaction.getAmount());
+        assertEquals(new BigDecimal("6.68"), transaction.getBalanceAfter());
+        assertEquals(new BigDecimal("1000"), transaction.getOriginalAmount());
+        assertEquals(JPY, transaction.getOriginalCurrency());
+        assertEquals(0, new BigDecimal("1.0843").divide(new BigDecimal("162.35"), FxRates.MATH_CONTEXT)
+                .compareTo(transaction.getRate()));
+        var stored = transactionMapper.selectTransaction(transaction.getTransactionId()).orElseThrow();
+        assertEquals(transaction, TransactionDto.from(stored));
+    }
+
+    @Test
+    void testRejectsTransactionConvertedToLessThanMinorUnit() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest().setCurrencies(Set.of(USD)));
+
+        var result = transactionService.postTransactions(List.of(
+                TestData.generateTransactionRequest(account.getId())
+                        .setCurrency(JPY)
+                        .setAmount(new BigDecimal("0.5"))
+        )).get(0);
+
+        assertTrue(result.getError() instanceof InvalidCurrencyException);
+        assertEquals("The converted amount is less than the minor unit of USD.", result.getError().getMessage());
+    }
+
+    @Test
+    void testComparesConvertedRetryByRequestedAmount() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest().setCurrencies(Set.of(USD)));
+        var key = UUID.randomUUID().toString();
+        var request = TestData.generateTransactionRequest(account.getId())
+                .setCurrency(JPY)
+                .setAmount(new BigDecimal("1000"));
+
+        var created = idempotencyService.createTransaction(request, key);
+
+        assertEquals(created, idempotencyService.createTransaction(request, key));
+        assertThrows(IdempotencyKeyReusedException.class, () -> idempotencyService.createTransaction(
+                TestData.generateTransactionRequest(account.getId()).setCurrency(JPY).setAmount(new BigDecimal("2000")),
+                key
+        ));
+    }
+
+    @Test
+    void testPostsInExistingBalanceWithoutConversion() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+
+        var transaction = transactionService.createTransaction(TestData.generateTransactionRequest(account.getId()));
+
+        assertEquals(EUR, transaction.getCurrency());
+        assertEquals(BigDecimal.valueOf(100L), transaction.getAmount());
+        assertNull(transaction.getOriginalAmount());
+        assertNull(transaction.getOriginalCurrency());
+        assertNull(transaction.getRate());
+    }
+
+    @Test
+    void testRejectsCurrencyWithoutRate() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+
+        assertThrows(InvalidCurrencyException.class, () -> transactionService.createTransaction(
+                TestData.generateTransactionRequest(account.getId()).setCurrency(Currency.getInstance("CHF"))));
+    }
+
+    @Test
+    void testTransferDefaultsToCurrentRate() {
+        var from = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var to = accountService.createAccount(TestData.generateCreateAccountRequest());
+        transactionService.createTransaction(TestData.generateTransactionRequest(from.getId()));
+
+        var transfer = transferService.transfer(new TransferRequest()
+                .setFromAccountId(from.getId())
+                .setToAccountId(to.getId())
+                .setAmount(new BigDecimal("10"))
+                .setCurrency(EUR)
+                .setToCurrency(USD)
+                .setDescription("Transfer description"));
+
+        assertEquals(new BigDecimal("1.0843"), transfer.getRate());
+        assertEquals(new BigDecimal("10.84"), transfer.getCredit().getAmount());
+    }
+
+    @Test
+    void testTransferBetweenCurrenciesOfOneAccount() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        transactionService.createTransaction(TestData.generateTransactionRequest(account.getId()));
+
+        var transfer = transferService.transfer(transferRequest(account.getId(), account.getId()));
+
+        assertEquals(new BigDecimal("90"), transfer.getDebit().getBalanceAfter());
+        assertEquals(new BigDecimal("10.84"), transfer.getCredit().getBalanceAfter());
+    }
+
+    @Test
+    void testTransferAtRequestedRateWithinTolerance() {
+        var from = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var to = accountService.createAccount(TestData.generateCreateAccountRequest());
+        transactionService.createTransaction(TestData.generateTransactionRequest(from.getId()));
+
+        var transfer = transferService.transfer(transferRequest(from.getId(), to.getId())
+                .setRate(new BigDecimal("1.0853")));
+
+        assertEquals(new BigDecimal("1.0853"), transfer.getRate());
+        assertEquals(new BigDecimal("10.85"), transfer.getCredit().getAmount());
+    }
+
+    @Test
+    void testRejectsRequestedRateOutsideTolerance() {
+        var from = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var to = accountService.createAccount(TestData.generateCreateAccountRequest());
+        transactionService.createTransaction(TestData.generateTransactionRequest(from.getId()));
+
+        assertThrows(InvalidTransferException.class, () -> transferService.transfer(
+                transferRequest(from.getId(), to.getId()).setRate(new BigDecimal("1000000"))));
+        assertThrows(InvalidTransferException.class, () -> transferService.transfer(
+                transferRequest(from.getId(), to.getId()).setRate(new BigDecimal("1.10"))));
+    }
+
+    private static TransferRequest transferRequest(Long fromAccountId, Long toAccountId) {
+        return new TransferRequest()
+                .setFromAccountId(fromAccountId)
+                .setToAccountId(toAccountId)
+                .setAmount(new BigDecimal("10"))
+                .setCurrency(EUR)
+                .setToCurrency(USD)
+                .setDescription("Transfer description");
+    }
+}
@@ -0,0 +1,143 @@
+package bank.service;
+
+import bank.TestData;
+import bank.data.TransactionMapper;
+import bank.enums.TransactionDirection;
+import bank.exception.InsufficientFundsException;
+import bank.exception.InvalidIdempotencyKeyException;
+import bank.metrics.MapperMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional, as idempotency keys are cached and taken only when their transaction commits
+ */
+@SpringBootTest
+class IdempotencyServiceTest {
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private TransactionMapper transactionMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testAnswersRetryFromCacheWithoutDatabase() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var request = TestData.generateTransactionRequest(account.getId());
+        var key = UUID.randomUUID().toString();
+
+        var created = idempotencyService.createTransaction(request, key);
+        var keyInserts = keyInserts();
+        var retried = idempotencyService.createTransaction(request, key);
+
+        assertEquals(created, retried);
+        assertEquals(keyInserts, keyInserts());
+    }
+
+    @Test
+    void testAnswersRetryFromDatabaseWhenNotCached() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var request = TestData.generateTransactionRequest(account.getId());
+        var key = UUID.randomUUID().toString();
+
+        var created = idempotencyService.createTransaction(request, key);
+        idempotencyService.cache.invalidateAll();
+        var keyInserts = keyInserts();
+        var retried = idempotencyService.createTransaction(request, key);
+
+        assertEquals(created.getTransactionId(), retried.getTransactionId());
+        assertEquals(1, transactionMapper.selectByAccountId(account.getId()).size());
+        assertEquals(keyInserts + 1, keyInserts());
+    }
+
+    @Test
+    void testCreatesTransactionOnceForConcurrentRetries() throws Exception {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var request = TestData.generateTransactionRequest(account.getId());
+        var key = UUID.randomUUID().toString();
+        var threads = 8;
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(threads);
+
+        var transactionIds = new ArrayList<Long>();
+        try {
+            var futures = new ArrayList<Future<Long>>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit((Callable<Long>) () -> {
+                    start.await();
+                    return idempotencyService.createTransaction(request, key).getTransactionId();
+                }));
+            }
+            start.countDown();
+            for (var future : futures) {
+                transactionIds.add(future.get(1, TimeUnit.MINUTES));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, transactionIds.stream().distinct().count());
+        assertEquals(1, transactionMapper.selectByAccountId(account.getId()).size());
+    }
+
+    @Test
+    void testDoesNotTakeKeyOfRejectedTransaction() {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var request = TestData.generateTransactionRequest(account.getId())
+                .setDirection(TransactionDirection.OUT)
+                .setAmount(BigDecimal.valueOf(10000L));
+        var key = UUID.randomUUID().toString();
+
+        assertThrows(InsufficientFundsException.class, () -> idempotencyService.createTransaction(request, key));
+
+        request.setDirection(TransactionDirection.IN);
+        var created = idempotencyService.createTransaction(request, key);
+
+        assertEquals(TransactionDirection.IN, created.getDirection());
+    }
+
+    @Test
+    void testRejectsInvalidKey() {
+        var request = TestData.generateTransactionRequest(1L);
+        var keyInserts = keyInserts();
+
+        assertThrows(InvalidIdempotencyKeyException.class, () -> idempotencyService.createTransaction(request, " "));
+        assertThrows(
+                InvalidIdempotencyKeyException.class,
+                () -> idempotencyService.createTransaction(request, "k".repeat(IdempotencyService.MAX_KEY_LENGTH + 1))
+        );
+        assertEquals(keyInserts, keyInserts());
+    }
+
+    private long keyInserts() {
+        var timer = meterRegistry.find(MapperMetricsInterceptor.TIMER_NAME)
+                .tags("mapper", "IdempotencyKeyMapper", "operation", "insertKey")
+                .timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
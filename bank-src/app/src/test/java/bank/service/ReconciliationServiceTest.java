@@ -0,0 +1,149 @@
+package bank.service;
+
+import bank.TestData;
+import bank.dto.ReconciliationReportDto;
+import bank.enums.DiscrepancyType;
+import bank.enums.TransactionDirection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional, as ranges are reconciled in transactions of their own
+ */
+@SpringBootTest(properties = {
+        "bank.reconciliation.enabled=true",
+        "bank.reconciliation.chunk-accounts=2",
+        "bank.reconciliation.max-reported=2"
+})
+public class ReconciliationServiceTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    ReconciliationService reconciliationService;
+
+    @Autowired
+    AccountService accountService;
+
+    @Autowired
+    TransactionService transactionService;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testFindsNoDiscrepanciesInConsistentLedger() {
+        var accountIds = createAccountsWithHistory(7);
+
+        var report = reconcile(accountIds);
+
+        assertTrue(report.isConsistent());
+        assertEquals(7, report.getAccounts());
+        assertEquals(7 * 3, report.getTransactions());
+        assertEquals(report, reconciliationService.getLastReport().orElseThrow());
+    }
+
+    @Test
+    void testReportsDriftedBalanceAndBalanceAfter() {
+        var accountIds = createAccountsWithHistory(5);
+        var driftedBalance = accountIds.get(1);
+        var driftedTransaction = accountIds.get(3);
+        jdbcTemplate.update("update balance set amount = amount + 0.01 where account_id = ? and currency = 'EUR'",
+                driftedBalance);
+        var transactionId = transactionService.findAllByAccountId(driftedTransaction).get(1).getTransactionId();
+        jdbcTemplate.update("update transaction set balance_after = balance_after - 0.0001 where id = ?", transactionId);
+
+        var report = reconcile(accountIds);
+
+        assertEquals(2, report.getDiscrepancyCount());
+        var balance = report.getDiscrepancies().get(0);
+        assertEquals(DiscrepancyType.BALANCE, balance.getType());
+        assertEquals(driftedBalance, balance.getAccountId());
+        assertEquals(EUR, balance.getCurrency());
+        assertEquals(0, new BigDecimal("130").compareTo(balance.getExpected()));
+        assertEquals(0, new BigDecimal("130.01").compareTo(balance.getActual()));
+        var balanceAfter = report.getDiscrepancies().get(1);
+        assertEquals(DiscrepancyType.BALANCE_AFTER, balanceAfter.getType());
+        assertEquals(driftedTransaction, balanceAfter.getAccountId());
+        assertEquals(transactionId, balanceAfter.getTransactionId());
+        assertEquals(0, new BigDecimal("70").compareTo(balanceAfter.getExpected()));
+        assertEquals(0, new BigDecimal("69.9999").compareTo(balanceAfter.getActual()));
+    }
+
+    @Test
+    void testCapsReportedDiscrepancies() {
+        var accountIds = createAccountsWithHistory(4);
+        for (var accountId : accountIds) {
+            jdbcTemplate.update("update balance set amount = amount + 1 where account_id = ?", accountId);
+        }
+
+        var report = reconcile(accountIds);
+
+        assertEquals(4 * 4, report.getDiscrepancyCount());
+        assertEquals(2, report.getDiscrepancies().size());
+        assertEquals(accountIds.get(0), report.getDiscrepancies().get(0).getAccountId());
+        assertEquals(DiscrepancyType.BALANCE, report.getDiscrepancies().get(0).getType());
+    }
+
+    @Test
+    void testStartsFromSnapshotBeforeRetainedHistory() {
+        var accountIds = createAccountsWithHistory(2);
+        var archived = accountIds.get(0);
+        // as if 50 EUR had been credited in a month archived since
+        var snapshotDay = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).minusMonths(2).minusDays(1);
+        jdbcTemplate.update("insert into balance_snapshot(account_id, currency, day, amount) values (?, 'EUR', ?, 50)",
+                archived, snapshotDay);
+        jdbcTemplate.update("update balance set amount = amount + 50 where account_id = ? and currency = 'EUR'",
+                archived);
+        jdbcTemplate.update("update transaction set balance_after = balance_after + 50 where account_id = ?", archived);
+
+        reconciliationService.retentionMonths = 1;
+        var report = reconcile(accountIds);
+
+        assertTrue(report.isConsistent());
+        assertEquals(2 * 3, report.getTransactions());
+    }
+
+    @AfterEach
+    void tearDown() {
+        reconciliationService.retentionMonths = 0;
+    }
+
+    /**
+     * Accounts with 100 in, 30 out and 60 in EUR
+     */
+    private List<Long> createAccountsWithHistory(int count) {
+        var accountIds = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            var accountId = accountService.createAccount(TestData.generateCreateAccountRequest()).getId();
+            transactionService.createTransaction(TestData.generateTransactionRequest(accountId));
+            transactionService.createTransaction(TestData.generateTransactionRequest(accountId)
+                    .setAmount(new BigDecimal("30")).setDirection(TransactionDirection.OUT));
+            transactionService.createTransaction(TestData.generateTransactionRequest(accountId)
+                    .setAmount(new BigDecimal("60")));
+            accountIds.add(accountId);
+        }
+        return accountIds;
+    }
+
+    private ReconciliationReportDto reconcile(List<Long> accountIds) {
+        return reconciliationService.reconcile(accountIds.get(0), accountIds.get(accountIds.size() - 1) + 1);
+    }
+}
@@ -2,25 +2,37 @@ package bank.service;
 
 import bank.TestData;
 import bank.configuration.RabbitMqConf;
+import bank.data.OutboxMapper;
+import bank.dto.AccountDto;
+import bank.dto.BatchEntryResultDto;
+import bank.enums.BatchEntryStatus;
 import bank.enums.TransactionDirection;
 import bank.exception.AccountNotFoundException;
+import bank.exception.IdempotencyKeyExpiredException;
 import bank.exception.InsufficientFundsException;
 import bank.exception.InvalidCurrencyException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.transaction.TestTransaction;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Currency;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @SpringBootTest
 @Transactional
@@ -35,6 +47,15 @@ public class TransactionServiceTest {
     @Autowired
     AccountService accountService;
 
+    @Autowired
+    OutboxMapper outboxMapper;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
     @Test
     void testCreateTransaction() {
         var accountDto = accountService
@@ -77,21 +98,24 @@ public class TransactionServiceTest {
     }
 
     @Test
-    void testCreateTransactionSendsMessage() {
+    void testCreateTransactionWritesMessageToOutbox() {
         var accountDto = accountService
                 .createAccount(TestData.generateCreateAccountRequest());
 
-        assertEquals(0, transactionService.findAllByAccountId(accountDto.getId()).size());
-
         var transactionRequest = TestData.generateTransactionRequest(accountDto.getId());
 
         var transactionDto = transactionService.createTransaction(transactionRequest);
 
-        verify(rabbitTemplate).convertAndSend(
-                eq(RabbitMqConf.EXCHANGE_NAME),
-                eq("create-transaction"),
-                eq(transactionDto)
-        );
+        var messages = outboxMapper.selectMessages(Integer.MAX_VALUE).stream()
+                .filter(m -> accountDto.getId().equals(m.getAccountId()))
+                .filter(m -> "create-transaction".equals(m.getRoutingKey()))
+                .collect(Collectors.toList());
+
+        assertEquals(1, messages.size());
+        assertEquals(RabbitMqConf.EXCHANGE_NAME, messages.get(0).getExchange());
+        assertTrue(new String(messages.get(0).getPayload())
+                .contains("\"transactionId\":" + transactionDto.getTransactionId()));
+        verifyNoInteractions(rabbitTemplate);
     }
 
     @Test
@@ -131,6 +155,44 @@ public class TransactionServiceTest {
         );
     }
 
+    @Test
+    void testCountsTransactionOutcomesByCurrency() {
+        var accountDto = accountService.createAccount(
+                TestData.generateCreateAccountRequest().setCurrencies(Set.of(Currency.getInstance("EUR")))
+        );
+        var created = outcomeCount("created", "EUR");
+        var insufficientFunds = outcomeCount("insufficient_funds", "EUR");
+        var invalidCurrency = outcomeCount("invalid_currency", "USD");
+
+        var debit = TestData.generateTransactionRequest(accountDto.getId())
+                .setDirection(TransactionDirection.OUT)
+                .setAmount(BigDecimal.valueOf(10000L));
+        var usd = TestData.generateTransactionRequest(accountDto.getId())
+                .setCurrency(Currency.getInstance("USD"));
+        transactionService.createTransactions(List.of(
+                TestData.generateTransactionRequest(accountDto.getId()), debit, usd, debit
+        ));
+        assertEquals(created, outcomeCount("created", "EUR"));
+
+        TestTransaction.flagForCommit();
+        TestTransaction.end();
+
+        assertEquals(created + 1, outcomeCount("created", "EUR"));
+        assertEquals(insufficientFunds + 2, outcomeCount("insufficient_funds", "EUR"));
+        assertEquals(invalidCurrency + 1, outcomeCount("invalid_currency", "USD"));
+    }
+
+    @Test
+    void testDoesNotCountRolledBackTransactions() {
+        var accountDto = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var created = outcomeCount("created", "EUR");
+
+        transactionService.createTransactions(List.of(TestData.generateTransactionRequest(accountDto.getId())));
+        TestTransaction.end();
+
+        assertEquals(created, outcomeCount("created", "EUR"));
+    }
+
     @Test
     void testGetTransactionsForUnknownAccount() {
         assertThrows(
@@ -206,4 +268,222 @@ public class TransactionServiceTest {
         assertEquals(1, transactions.size());
         assertTrue(transactions.stream().allMatch(t -> transactionDto1.getTransactionId().equals(t.getTransactionId())));
     }
+
+    @Test
+    void testGetTransactionPages() {
+        var accountDto = accountService
+                .createAccount(TestData.generateCreateAccountRequest());
+
+        var transactionIds = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            transactionIds.add(transactionService
+                    .createTransaction(TestData.generateTransactionRequest(accountDto.getId())).getTransactionId());
+        }
+
+        var firstPage = transactionService.findPageByAccountId(accountDto.getId(), null, null, null, 2);
+        var secondPage = transactionService.findPageByAccountId(accountDto.getId(), firstPage.getNextCursor(), null, null, 2);
+        var lastPage = transactionService.findPageByAccountId(accountDto.getId(), secondPage.getNextCursor(), null, null, 2);
+
+        var pagedIds = new ArrayList<Long>();
+        for (var page : List.of(firstPage, secondPage, lastPage)) {
+            page.getTransactions().forEach(t -> pagedIds.add(t.getTransactionId()));
+        }
+
+        assertEquals(transactionIds, pagedIds);
+        assertEquals(transactionIds.get(1), firstPage.getNextCursor());
+        assertEquals(1, lastPage.getTransactions().size());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void testGetTransactionPageWhenNoTransactions() {
+        var accountDto = accountService
+                .createAccount(TestData.generateCreateAccountRequest());
+
+        var page = transactionService.findPageByAccountId(accountDto.getId(), null, null, null, 10);
+
+        assertTrue(page.getTransactions().isEmpty());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void testGetTransactionPageForUnknownAccount() {
+        assertThrows(
+                AccountNotFoundException.class,
+                () -> transactionService.findPageByAccountId(new Random().nextLong(), null, null, null, 10)
+        );
+    }
+
+    @Test
+    void testStreamTransactions() {
+        var accountDto = accountService
+                .createAccount(TestData.generateCreateAccountRequest());
+
+        var transactionIds = new ArrayList<Long>();
+        for (int i = 0; i < 3; i++) {
+            transactionIds.add(transactionService
+                    .createTransaction(TestData.generateTransactionRequest(accountDto.getId())).getTransactionId());
+        }
+
+        var streamedIds = new ArrayList<Long>();
+        transactionService.streamAllByAccountId(accountDto.getId(), null, null, t -> streamedIds.add(t.getTransactionId()));
+
+        assertEquals(transactionIds, streamedIds);
+    }
+
+    @Test
+    void testGetTransactionPageWithinTimeWindow() {
+        var accountDto = accountService
+                .createAccount(TestData.generateCreateAccountRequest());
+        var createdAt = transactionService
+                .createTransaction(TestData.generateTransactionRequest(accountDto.getId())).getCreatedAt();
+        transactionService.createTransaction(TestData.generateTransactionRequest(accountDto.getId()));
+
+        assertNotNull(createdAt);
+        assertEquals(2, transactionService.findPageByAccountId(
+                accountDto.getId(), null, createdAt.minusSeconds(60), createdAt.plusSeconds(60), 10
+        ).getTransactions().size());
+        assertTrue(transactionService.findPageByAccountId(
+                accountDto.getId(), null, createdAt.plusSeconds(60), null, 10
+        ).getTransactions().isEmpty());
+        assertTrue(transactionService.findPageByAccountId(
+                accountDto.getId(), null, null, createdAt, 10
+        ).getTransactions().isEmpty());
+    }
+
+    @Test
+    void testCreateTransactions() {
+        var accountDto1 = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var accountDto2 = accountService.createAccount(
+                TestData.generateCreateAccountRequest().setCurrencies(Set.of(Currency.getInstance("EUR")))
+        );
+
+        var requests = List.of(
+                TestData.generateTransactionRequest(accountDto1.getId()),
+                TestData.generateTransactionRequest(accountDto2.getId()),
+                TestData.generateTransactionRequest(accountDto1.getId())
+                        .setDirection(TransactionDirection.OUT).setAmount(BigDecimal.valueOf(150L)),
+                TestData.generateTransactionRequest(accountDto1.getId())
+                        .setDirection(TransactionDirection.OUT).setAmount(BigDecimal.valueOf(40L)),
+                TestData.generateTransactionRequest(accountDto2.getId()).setCurrency(Currency.getInstance("USD")),
+                TestData.generateTransactionRequest(new Random().nextLong()),
+                TestData.generateTransactionRequest(accountDto1.getId()).setCurrency(Currency.getInstance("USD"))
+        );
+
+        var result = transactionService.createTransactions(requests);
+
+        assertEquals(4, result.getCreated());
+        assertEquals(3, result.getRejected());
+        assertEquals(
+                List.of(BatchEntryStatus.CREATED, BatchEntryStatus.CREATED, BatchEntryStatus.REJECTED,
+                        BatchEntryStatus.CREATED, BatchEntryStatus.REJECTED, BatchEntryStatus.REJECTED,
+                        BatchEntryStatus.CREATED),
+                result.getResults().stream().map(BatchEntryResultDto::getStatus).collect(Collectors.toList())
+        );
+        assertEquals(new InsufficientFundsException().getMessage(), result.getResults().get(2).getError());
+
+        var balancesAfter = result.getResults().stream()
+                .filter(r -> r.getStatus() == BatchEntryStatus.CREATED)
+                .map(r -> r.getTransaction().getBalanceAfter())
+                .collect(Collectors.toList());
+        assertEquals(0, BigDecimal.valueOf(100L).compareTo(balancesAfter.get(0)));
+        assertEquals(0, BigDecimal.valueOf(100L).compareTo(balancesAfter.get(1)));
+        assertEquals(0, BigDecimal.valueOf(60L).compareTo(balancesAfter.get(2)));
+        assertEquals(0, BigDecimal.valueOf(100L).compareTo(balancesAfter.get(3)));
+
+        var account1 = accountService.find(accountDto1.getId());
+        assertEquals(0, BigDecimal.valueOf(60L).compareTo(balanceOf(account1, "EUR")));
+        assertEquals(0, BigDecimal.valueOf(100L).compareTo(balanceOf(account1, "USD")));
+        assertEquals(3, transactionService.findAllByAccountId(accountDto1.getId()).size());
+        assertEquals(1, transactionService.findAllByAccountId(accountDto2.getId()).size());
+    }
+
+    @Test
+    void testAnswersRepeatedIdempotencyKeyOfBatchWithFirstTransaction() {
+        var accountDto = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var key = UUID.randomUUID().toString();
+        var request = TestData.generateTransactionRequest(accountDto.getId());
+
+        var results = transactionService.postTransactions(
+                List.of(request, request, TestData.generateTransactionRequest(accountDto.getId())),
+                Arrays.asList(key, key, null)
+        );
+
+        assertEquals(results.get(0).getTransaction(), results.get(1).getTransaction());
+        assertNotEquals(results.get(0).getTransaction(), results.get(2).getTransaction());
+        assertEquals(2, transactionService.findAllByAccountId(accountDto.getId()).size());
+        assertEquals(results.get(0).getTransaction(), transactionService
+                .postTransactions(List.of(request), List.of(key)).get(0).getTransaction());
+    }
+
+    @Test
+    void testReleasesIdempotencyKeyOfRejectedRequest() {
+        var accountDto = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var key = UUID.randomUUID().toString();
+        var request = TestData.generateTransactionRequest(accountDto.getId())
+                .setDirection(TransactionDirection.OUT)
+                .setAmount(BigDecimal.valueOf(10000L));
+
+        var rejected = transactionService.postTransactions(List.of(request), List.of(key)).get(0);
+        var created = transactionService.postTransactions(
+                List.of(request.setDirection(TransactionDirection.IN)), List.of(key)
+        ).get(0);
+
+        assertTrue(rejected.getError() instanceof InsufficientFundsException);
+        assertEquals(TransactionDirection.IN, created.getTransaction().getDirection());
+    }
+
+    @Test
+    void testRejectsOnlyRequestWhoseKeyHasNoTransaction() {
+        var accountDto = accountService.createAccount(TestData.generateCreateAccountRequest());
+        var key = UUID.randomUUID().toString();
+        // as left behind by a transaction in an archived partition
+        jdbcTemplate.update(
+                "insert into idempotency_key(key, transaction_id, transaction_created_at) values (?, -1, now())", key
+        );
+
+        var results = transactionService.postTransactions(
+                List.of(TestData.generateTransactionRequest(accountDto.getId()),
+                        TestData.generateTransactionRequest(accountDto.getId())),
+                Arrays.asList(key, null)
+        );
+
+        assertTrue(results.get(0).getError() instanceof IdempotencyKeyExpiredException);
+        assertTrue(results.get(1).isCreated());
+    }
+
+    @Test
+    void testCreateTransactionsWritesMessagesToOutbox() {
+        var accountDto = accountService.createAccount(TestData.generateCreateAccountRequest());
+
+        var result = transactionService.createTransactions(List.of(
+                TestData.generateTransactionRequest(accountDto.getId()),
+                TestData.generateTransactionRequest(accountDto.getId())
+        ));
+
+        var messages = outboxMapper.selectMessages(Integer.MAX_VALUE).stream()
+                .filter(m -> accountDto.getId().equals(m.getAccountId()))
+                .filter(m -> "create-transaction".equals(m.getRoutingKey()))
+                .collect(Collectors.toList());
+
+        assertEquals(2, messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            assertTrue(new String(messages.get(i).getPayload()).contains(
+                    "\"transactionId\":" + result.getResults().get(i).getTransaction().getTransactionId()
+            ));
+        }
+    }
+
+    private static BigDecimal balanceOf(AccountDto account, String currency) {
+        return account.getBalances().stream()
+                .filter(b -> b.getCurrency().equals(Currency.getInstance(currency)))
+                .findAny().orElseThrow().getAmount();
+    }
+
+    private double outcomeCount(String outcome, String currency) {
+        var counter = meterRegistry.find(TransactionService.OUTCOME_COUNTER_NAME)
+                .tags("outcome", outcome, "currency", currency)
+                .counter();
+        return counter == null ? 0 : counter.count();
+    }
 }
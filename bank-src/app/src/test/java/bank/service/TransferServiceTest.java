@@ -0,0 +1,163 @@
+package bank.service;
+
+import bank.TestData;
+import bank.exception.AccountNotFoundException;
+import bank.exception.InsufficientFundsException;
+import bank.exception.InvalidTransferException;
+import bank.request.TransferRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Not transactional, as concurrent transfers need the accounts committed
+ */
+@SpringBootTest
+public class TransferServiceTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private static final Currency USD = Currency.getInstance("USD");
+
+    @MockBean
+    private RabbitTemplate rabbitTemplate;
+
+    @Autowired
+    TransferService transferService;
+
+    @Autowired
+    TransactionService transactionService;
+
+    @Autowired
+    AccountService accountService;
+
+    @Test
+    void testTransfer() {
+        var from = fundedAccount("100");
+        var to = fundedAccount("0");
+
+        var transfer = transferService.transfer(request(from, to, "30"));
+
+        assertEquals(new BigDecimal("70"), balance(from, EUR));
+        assertEquals(new BigDecimal("30"), balance(to, EUR));
+        assertEquals(from, transfer.getDebit().getAccountId());
+        assertEquals(new BigDecimal("70"), transfer.getDebit().getBalanceAfter());
+        assertEquals(to, transfer.getCredit().getAccountId());
+        assertEquals(new BigDecimal("30"), transfer.getCredit().getBalanceAfter());
+        assertEquals(2, transactionService.findAllByAccountId(from).size());
+        assertEquals(1, transactionService.findAllByAccountId(to).size());
+    }
+
+    @Test
+    void testTransferWithInsufficientFundsChangesNothing() {
+        var from = fundedAccount("10");
+        var to = fundedAccount("0");
+
+        assertThrows(InsufficientFundsException.class, () -> transferService.transfer(request(from, to, "30")));
+
+        assertEquals(new BigDecimal("10"), balance(from, EUR));
+        assertEquals(new BigDecimal("0"), balance(to, EUR));
+        assertEquals(0, transactionService.findAllByAccountId(to).size());
+    }
+
+    @Test
+    void testInvalidTransfers() {
+        var from = fundedAccount("100");
+        var to = fundedAccount("0");
+
+        assertThrows(InvalidTransferException.class,
+                () -> transferService.transfer(request(from, from, "10")));
+        assertThrows(InvalidTransferException.class,
+                () -> transferService.transfer(request(from, to, "10").setToCurrency(USD)));
+        assertThrows(InvalidTransferException.class,
+                () -> transferService.transfer(request(from, to, "10").setToCurrency(USD).setRate(new BigDecimal("2"))));
+        assertThrows(InvalidTransferException.class,
+                () -> transferService.transfer(request(from, to, "10").setRate(new BigDecimal("2"))));
+        assertThrows(AccountNotFoundException.class,
+                () -> transferService.transfer(request(from, -1L, "10")));
+        assertEquals(new BigDecimal("100"), balance(from, EUR));
+    }
+
+    @Test
+    void testConcurrentTransfersInCycles() throws Exception {
+        var accounts = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            accounts.add(fundedAccount("100"));
+        }
+
+        var threads = 16;
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var futures = new ArrayList<Future<Integer>>();
+            for (int t = 0; t < threads; t++) {
+                var forward = t % 2 == 0;
+                futures.add(executor.submit((Callable<Integer>) () -> {
+                    var transfers = 0;
+                    for (int i = 0; i < 50; i++) {
+                        var from = accounts.get(i % accounts.size());
+                        var to = accounts.get((i + 1) % accounts.size());
+                        try {
+                            transferService.transfer(forward ? request(from, to, "7") : request(to, from, "7"));
+                            transfers++;
+                        } catch (InsufficientFundsException e) {
+                            // an account of the cycle may be drained for a while
+                        }
+                    }
+                    return transfers;
+                }));
+            }
+            var transfers = 0;
+            for (var future : futures) {
+                transfers += future.get(2, TimeUnit.MINUTES);
+            }
+            assertTrue(transfers > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        var total = BigDecimal.ZERO;
+        for (var account : accounts) {
+            var balance = balance(account, EUR);
+            assertTrue(balance.signum() >= 0);
+            total = total.add(balance);
+        }
+        assertEquals(0, new BigDecimal("500").compareTo(total));
+    }
+
+    private Long fundedAccount(String amount) {
+        var account = accountService.createAccount(TestData.generateCreateAccountRequest());
+        if (new BigDecimal(amount).signum() > 0) {
+            transactionService.createTransaction(TestData.generateTransactionRequest(account.getId())
+                    .setAmount(new BigDecimal(amount)));
+        }
+        return account.getId();
+    }
+
+    private BigDecimal balance(Long accountId, Currency currency) {
+        return accountService.find(accountId).getBalances().stream()
+                .filter(balance -> balance.getCurrency().equals(currency))
+                .findAny().orElseThrow().getAmount();
+    }
+
+    private static TransferRequest request(Long from, Long to, String amount) {
+        return new TransferRequest()
+                .setFromAccountId(from)
+                .setToAccountId(to)
+                .setAmount(new BigDecimal(amount))
+                .setCurrency(EUR)
+                .setDescription("Transfer description");
+    }
+}
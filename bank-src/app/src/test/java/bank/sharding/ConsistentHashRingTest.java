@@ -0,0 +1,57 @@
+package bank.sharding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final int KEYS = 100000;
+
+    @Test
+    void testAssignsKeysEvenly() {
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+
+        var counts = new HashMap<String, Integer>();
+        for (long key = 1; key <= KEYS; key++) {
+            counts.merge(ring.ownerOf(key), 1, Integer::sum);
+        }
+
+        assertEquals(3, counts.size());
+        counts.values().forEach(count -> assertEquals(KEYS / 3.0, count, KEYS * 0.05));
+    }
+
+    @Test
+    void testAssignsKeysRegardlessOfNodeOrder() {
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        var reordered = new ConsistentHashRing(List.of("c", "a", "b"), 128);
+
+        for (long key = 1; key <= KEYS; key++) {
+            assertEquals(ring.ownerOf(key), reordered.ownerOf(key));
+        }
+    }
+
+    @Test
+    void testMovesKeysOnlyToAddedNode() {
+        var ring = new ConsistentHashRing(List.of("a", "b", "c"), 128);
+        var grown = new ConsistentHashRing(List.of("a", "b", "c", "d"), 128);
+
+        var moved = 0;
+        for (long key = 1; key <= KEYS; key++) {
+            var owner = grown.ownerOf(key);
+            if (!owner.equals(ring.ownerOf(key))) {
+                assertEquals("d", owner);
+                moved++;
+            }
+        }
+        assertEquals(KEYS / 4.0, moved, KEYS * 0.05);
+    }
+
+    @Test
+    void testRejectsEmptyRing() {
+        assertThrows(IllegalArgumentException.class, () -> new ConsistentHashRing(List.of(), 128));
+    }
+}
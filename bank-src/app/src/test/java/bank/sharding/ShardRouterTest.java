@@ -0,0 +1,93 @@
+package bank.sharding;
+
+import bank.exception.AccountNotOwnedException;
+import bank.exception.CrossShardRequestException;
+import bank.exception.PostingNotOwnedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardRouterTest {
+
+    private final ShardRouter shardRouter = new ShardRouter();
+
+    private final ShardRouter otherShardRouter = new ShardRouter();
+
+    @BeforeEach
+    void setUp() {
+        var nodes = new String[]{"a=http://a:8080", "b=http://b:8080"};
+        shardRouter.nodeId = "a";
+        shardRouter.nodes = nodes;
+        shardRouter.init();
+        otherShardRouter.nodeId = "b";
+        otherShardRouter.nodes = nodes;
+        otherShardRouter.init();
+    }
+
+    @Test
+    void testEveryAccountHasOneOwner() {
+        LongStream.rangeClosed(1, 1000).forEach(id -> assertNotEquals(shardRouter.owns(id), otherShardRouter.owns(id)));
+    }
+
+    @Test
+    void testRedirectsToOwner() {
+        var id = foreignId();
+
+        var exception = assertThrows(AccountNotOwnedException.class, () -> shardRouter.checkOwner(id));
+
+        assertEquals("http://b:8080", exception.getOwnerUrl());
+        assertDoesNotThrow(() -> otherShardRouter.checkOwner(id));
+    }
+
+    @Test
+    void testRejectsAccountsOfDifferentOwners() {
+        assertThrows(CrossShardRequestException.class, () -> shardRouter.checkOwner(List.of(ownId(), foreignId())));
+        assertThrows(AccountNotOwnedException.class, () -> shardRouter.checkOwner(List.of(foreignId(), foreignId())));
+        assertDoesNotThrow(() -> shardRouter.checkOwner(List.of(ownId(), ownId())));
+    }
+
+    @Test
+    void testAllocatesOwnedIds() {
+        var sequence = new AtomicLong();
+
+        for (int i = 0; i < 100; i++) {
+            var id = shardRouter.allocateId(sequence::incrementAndGet);
+            assertTrue(shardRouter.owns(id));
+            assertEquals(sequence.get(), id);
+        }
+    }
+
+    @Test
+    void testRedirectsPostingStatusToAcceptingNode() {
+        for (int i = 0; i < 100; i++) {
+            var id = otherShardRouter.allocatePostingId();
+
+            var exception = assertThrows(PostingNotOwnedException.class, () -> shardRouter.checkOwner(id));
+
+            assertEquals("http://b:8080", exception.getOwnerUrl());
+            assertDoesNotThrow(() -> otherShardRouter.checkOwner(id));
+        }
+    }
+
+    @Test
+    void testRejectsUnknownNode() {
+        var router = new ShardRouter();
+        router.nodeId = "c";
+        router.nodes = new String[]{"a=http://a:8080", "b=http://b:8080"};
+
+        assertThrows(IllegalStateException.class, router::init);
+    }
+
+    private long ownId() {
+        return LongStream.iterate(1, id -> id + 1).filter(shardRouter::owns).findFirst().orElseThrow();
+    }
+
+    private long foreignId() {
+        return LongStream.iterate(1, id -> id + 1).filter(id -> !shardRouter.owns(id)).findFirst().orElseThrow();
+    }
+}
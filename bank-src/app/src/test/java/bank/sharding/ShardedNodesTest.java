@@ -0,0 +1,138 @@
+package bank.sharding;
+
+import bank.App;
+import bank.TestData;
+import bank.data.AccountMapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Two nodes of a sharded deployment in one JVM, each with a database of its own
+ */
+class ShardedNodesTest {
+
+    private static ConfigurableApplicationContext nodeA;
+
+    private static ConfigurableApplicationContext nodeB;
+
+    private static String urlA;
+
+    private static String urlB;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeAll
+    static void startNodes() throws IOException {
+        var portA = freePort();
+        var portB = freePort();
+        urlA = "http://localhost:" + portA;
+        urlB = "http://localhost:" + portB;
+        var nodes = "a=" + urlA + ",b=" + urlB;
+        nodeA = startNode("a", portA, nodes);
+        nodeB = startNode("b", portB, nodes);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void testCreatesAccountsOwnedByNode() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            var idA = createAccount(urlA);
+            var idB = createAccount(urlB);
+
+            assertTrue(nodeA.getBean(ShardRouter.class).owns(idA));
+            assertTrue(nodeB.getBean(ShardRouter.class).owns(idB));
+            assertTrue(nodeB.getBean(AccountMapper.class).selectAccount(idA).isEmpty());
+            assertTrue(nodeA.getBean(AccountMapper.class).selectAccount(idB).isEmpty());
+        }
+    }
+
+    @Test
+    void testRedirectsToOwner() throws Exception {
+        var id = createAccount(urlA);
+
+        var response = send(HttpRequest.newBuilder(URI.create(urlB + "/account/" + id)).GET().build());
+
+        assertEquals(307, response.statusCode());
+        var location = response.headers().firstValue("Location").orElseThrow();
+        assertEquals(urlA + "/account/" + id, location);
+        assertEquals(200, send(HttpRequest.newBuilder(URI.create(location)).GET().build()).statusCode());
+    }
+
+    @Test
+    void testPostsTransactionsOnOwnerOnly() throws Exception {
+        var id = createAccount(urlA);
+        var body = objectMapper.writeValueAsString(TestData.generateTransactionRequest(id));
+
+        assertEquals(307, send(post(urlB + "/transaction", body)).statusCode());
+        assertEquals(201, send(post(urlA + "/transaction", body)).statusCode());
+    }
+
+    @Test
+    void testRedirectsPostingStatusToAcceptingNode() throws Exception {
+        var id = createAccount(urlA);
+        var body = objectMapper.writeValueAsString(TestData.generateTransactionRequest(id));
+        var accepted = send(post(urlA + "/transaction/async", body));
+        assertEquals(202, accepted.statusCode());
+        var path = accepted.headers().firstValue("Location").orElseThrow();
+
+        var response = send(HttpRequest.newBuilder(URI.create(urlB + path)).GET().build());
+
+        assertEquals(307, response.statusCode());
+        assertEquals(urlA + path, response.headers().firstValue("Location").orElseThrow());
+        assertEquals(200, send(HttpRequest.newBuilder(URI.create(urlA + path)).GET().build()).statusCode());
+    }
+
+    private long createAccount(String url) throws Exception {
+        var body = objectMapper.writeValueAsString(TestData.generateCreateAccountRequest());
+        var response = send(post(url + "/account", body));
+        assertEquals(201, response.statusCode());
+        return objectMapper.readTree(response.body()).get("id").asLong();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static HttpRequest post(String url, String body) {
+        return HttpRequest.newBuilder(URI.create(url))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private static ConfigurableApplicationContext startNode(String id, int port, String nodes) {
+        return new SpringApplicationBuilder(App.class).run(
+                "--server.port=" + port,
+                "--spring.datasource.url=jdbc:tc:postgresql:14.1:///shard-" + id,
+                "--bank.sharding.enabled=true",
+                "--bank.sharding.node-id=" + id,
+                "--bank.sharding.nodes=" + nodes
+        );
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}